@@ -0,0 +1,336 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import com.google.code.or.binlog.impl.event.FormatDescriptionEvent;
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+import com.google.code.or.binlog.impl.event.WriteRowsEventV2;
+import com.google.code.or.binlog.impl.event.XidEvent;
+import com.google.code.or.common.util.MySQLConstants;
+
+/**
+ * Generates synthetic binlog files: a format description event followed by transactions made of a
+ * table map event, a write rows (v2) event and a xid event. The rows are random but valid for the
+ * column types of the chosen {@link Workload}.
+ */
+public final class BinlogFixture {
+  //
+  private static final int HEADER_LENGTH = 19;
+  private static final int DIGITS_PER_4BYTES = 9;
+  private static final int DECIMAL_BINARY_SIZE[] = {0, 1, 1, 2, 2, 3, 3, 4, 4, 4};
+
+  /**
+   * The table shapes, each given by its column types and their metadata.
+   */
+  public enum Workload {
+    NARROW_INT(new int[] {MySQLConstants.TYPE_LONGLONG, MySQLConstants.TYPE_TINY,
+        MySQLConstants.TYPE_SHORT, MySQLConstants.TYPE_INT24, MySQLConstants.TYPE_LONG,
+        MySQLConstants.TYPE_LONG, MySQLConstants.TYPE_LONG, MySQLConstants.TYPE_LONGLONG},
+        new int[] {0, 0, 0, 0, 0, 0, 0, 0}),
+
+    WIDE_VARCHAR_BLOB(new int[] {MySQLConstants.TYPE_LONGLONG, MySQLConstants.TYPE_VARCHAR,
+        MySQLConstants.TYPE_VARCHAR, MySQLConstants.TYPE_VARCHAR, MySQLConstants.TYPE_VARCHAR,
+        MySQLConstants.TYPE_BLOB, MySQLConstants.TYPE_BLOB},
+        new int[] {0, 1024, 1024, 255, 255, 2, 2}),
+
+    DECIMAL(new int[] {MySQLConstants.TYPE_LONGLONG, MySQLConstants.TYPE_NEWDECIMAL,
+        MySQLConstants.TYPE_NEWDECIMAL, MySQLConstants.TYPE_NEWDECIMAL,
+        MySQLConstants.TYPE_NEWDECIMAL, MySQLConstants.TYPE_NEWDECIMAL,
+        MySQLConstants.TYPE_NEWDECIMAL}, new int[] {0, decimal(10, 2), decimal(10, 2),
+        decimal(18, 4), decimal(18, 4), decimal(30, 10), decimal(65, 30)}),
+
+    TEMPORAL2(new int[] {MySQLConstants.TYPE_LONGLONG, MySQLConstants.TYPE_DATETIME2,
+        MySQLConstants.TYPE_DATETIME2, MySQLConstants.TYPE_TIMESTAMP2,
+        MySQLConstants.TYPE_TIMESTAMP2, MySQLConstants.TYPE_TIME2}, new int[] {0, 0, 6, 0, 3, 0});
+
+    //
+    private final int[] types;
+    private final int[] metas;
+
+    private Workload(int[] types, int[] metas) {
+      this.types = types;
+      this.metas = metas;
+    }
+
+    public int getColumnCount() {
+      return this.types.length;
+    }
+  }
+
+  //
+  private final Workload workload;
+  private final boolean checksum;
+  private final int rowsPerEvent;
+  private final int transactions;
+  private final Random random = new Random(20141014L);
+
+  //
+  private final CRC32 crc = new CRC32();
+  private final ByteArrayOutputStream file = new ByteArrayOutputStream();
+  private int events;
+
+  /**
+	 * 
+	 */
+  public BinlogFixture(Workload workload, boolean checksum, int rowsPerEvent, int transactions) {
+    this.workload = workload;
+    this.checksum = checksum;
+    this.rowsPerEvent = rowsPerEvent;
+    this.transactions = transactions;
+  }
+
+  /**
+   * @return the number of events written to the file
+   */
+  public int writeTo(File file) throws IOException {
+    //
+    this.file.reset();
+    this.events = 0;
+    this.file.write(MySQLConstants.BINLOG_MAGIC);
+    writeFormatDescriptionEvent();
+    for (int i = 0; i < this.transactions; i++) {
+      writeTableMapEvent();
+      writeWriteRowsEvent();
+      writeXidEvent(i);
+    }
+
+    //
+    final FileOutputStream os = new FileOutputStream(file);
+    try {
+      this.file.writeTo(os);
+    } finally {
+      os.close();
+    }
+    return this.events;
+  }
+
+  /**
+	 * 
+	 */
+  private void writeFormatDescriptionEvent() throws IOException {
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    writeInt(body, 4, 2);
+    final byte[] version = new byte[50];
+    final byte[] v = "5.6.21-log".getBytes("US-ASCII");
+    System.arraycopy(v, 0, version, 0, v.length);
+    body.write(version);
+    writeInt(body, 0, 4);
+    body.write(HEADER_LENGTH);
+    body.write(new byte[35]); // Post header lengths
+    body.write(this.checksum ? 1 : 0); // BINLOG_CHECKSUM_ALG_CRC32 or OFF
+    if (!this.checksum) writeInt(body, 0, 4); // Written whatever the algorithm
+    writeEvent(FormatDescriptionEvent.EVENT_TYPE, body.toByteArray());
+  }
+
+  private void writeTableMapEvent() throws IOException {
+    //
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final int n = this.workload.getColumnCount();
+    writeInt(body, 1, 6);
+    writeInt(body, 1, 2);
+    writeString(body, "bench");
+    writeString(body, this.workload.name().toLowerCase());
+    body.write(n);
+    for (int i = 0; i < n; i++) body.write(this.workload.types[i]);
+
+    //
+    final ByteArrayOutputStream meta = new ByteArrayOutputStream();
+    for (int i = 0; i < n; i++) {
+      final int m = this.workload.metas[i];
+      switch (this.workload.types[i]) {
+        case MySQLConstants.TYPE_BLOB:
+        case MySQLConstants.TYPE_TIME2:
+        case MySQLConstants.TYPE_DATETIME2:
+        case MySQLConstants.TYPE_TIMESTAMP2:
+          meta.write(m);
+          break;
+        case MySQLConstants.TYPE_VARCHAR:
+        case MySQLConstants.TYPE_NEWDECIMAL:
+          writeInt(meta, m, 2);
+          break;
+        default:
+          break;
+      }
+    }
+    body.write(meta.size());
+    meta.writeTo(body);
+    body.write(new byte[(n + 7) >> 3]); // Nullabilities
+    writeEvent(TableMapEvent.EVENT_TYPE, body.toByteArray());
+  }
+
+  private void writeWriteRowsEvent() throws IOException {
+    //
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final int n = this.workload.getColumnCount();
+    writeInt(body, 1, 6);
+    writeInt(body, 1, 2);
+    writeInt(body, 2, 2); // Extra info length
+    body.write(n);
+    for (int i = 0; i < ((n + 7) >> 3); i++) body.write(0xFF); // Used columns
+
+    //
+    for (int r = 0; r < this.rowsPerEvent; r++) {
+      body.write(new byte[(n + 7) >> 3]); // Null columns
+      for (int i = 0; i < n; i++) {
+        writeValue(body, this.workload.types[i], this.workload.metas[i]);
+      }
+    }
+    writeEvent(WriteRowsEventV2.EVENT_TYPE, body.toByteArray());
+  }
+
+  private void writeXidEvent(long xid) throws IOException {
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    writeInt(body, xid, 8);
+    writeEvent(XidEvent.EVENT_TYPE, body.toByteArray());
+  }
+
+  private void writeEvent(int type, byte[] body) throws IOException {
+    //
+    final int length = HEADER_LENGTH + body.length + (this.checksum ? 4 : 0);
+    final ByteArrayOutputStream event = new ByteArrayOutputStream(length);
+    writeInt(event, 1413244800L, 4);
+    event.write(type);
+    writeInt(event, 1, 4);
+    writeInt(event, length, 4);
+    writeInt(event, this.file.size() + length, 4);
+    writeInt(event, 0, 2);
+    event.write(body);
+
+    //
+    if (this.checksum) {
+      final byte[] data = event.toByteArray();
+      this.crc.reset();
+      this.crc.update(data, 0, data.length);
+      writeInt(event, this.crc.getValue(), 4);
+    }
+    event.writeTo(this.file);
+    this.events++;
+  }
+
+  /**
+	 * 
+	 */
+  private void writeValue(ByteArrayOutputStream os, int type, int meta) throws IOException {
+    switch (type) {
+      case MySQLConstants.TYPE_TINY:
+        writeInt(os, this.random.nextInt(), 1);
+        break;
+      case MySQLConstants.TYPE_SHORT:
+        writeInt(os, this.random.nextInt(), 2);
+        break;
+      case MySQLConstants.TYPE_INT24:
+        writeInt(os, this.random.nextInt(), 3);
+        break;
+      case MySQLConstants.TYPE_LONG:
+        writeInt(os, this.random.nextInt(), 4);
+        break;
+      case MySQLConstants.TYPE_LONGLONG:
+        writeInt(os, this.random.nextLong(), 8);
+        break;
+      case MySQLConstants.TYPE_VARCHAR: {
+        final int length = this.random.nextInt(meta);
+        writeInt(os, length, meta < 256 ? 1 : 2);
+        os.write(randomAscii(length));
+        break;
+      }
+      case MySQLConstants.TYPE_BLOB: {
+        final int length = 512 + this.random.nextInt(1024);
+        writeInt(os, length, meta);
+        os.write(randomAscii(length));
+        break;
+      }
+      case MySQLConstants.TYPE_NEWDECIMAL:
+        writeDecimal(os, meta & 0xFF, meta >> 8);
+        break;
+      case MySQLConstants.TYPE_DATETIME2: {
+        final long ym = (2000 + this.random.nextInt(30)) * 13L + 1 + this.random.nextInt(12);
+        final long ymd = (ym << 5) | (1 + this.random.nextInt(28));
+        final long hms = (this.random.nextInt(24) << 12) | (this.random.nextInt(60) << 6)
+            | this.random.nextInt(60);
+        writeBigEndian(os, (1L << 39) | (ymd << 17) | hms, 5);
+        writeBigEndian(os, this.random.nextInt(1000000), (meta + 1) / 2);
+        break;
+      }
+      case MySQLConstants.TYPE_TIMESTAMP2:
+        writeBigEndian(os, 1000000000L + this.random.nextInt(500000000), 4);
+        writeBigEndian(os, this.random.nextInt(1000), (meta + 1) / 2);
+        break;
+      case MySQLConstants.TYPE_TIME2:
+        writeBigEndian(os, 0x800000L | (this.random.nextInt(24) << 12)
+            | (this.random.nextInt(60) << 6) | this.random.nextInt(60), 3);
+        writeBigEndian(os, 0, (meta + 1) / 2);
+        break;
+      default:
+        throw new IllegalArgumentException("unsupported column type: " + type);
+    }
+  }
+
+  private void writeDecimal(ByteArrayOutputStream os, int precision, int scale) throws IOException {
+    //
+    final int intg = precision - scale;
+    final int intg0 = intg / DIGITS_PER_4BYTES, intg0x = intg % DIGITS_PER_4BYTES;
+    final int frac0 = scale / DIGITS_PER_4BYTES, frac0x = scale % DIGITS_PER_4BYTES;
+    final ByteArrayOutputStream value = new ByteArrayOutputStream();
+    writeBigEndian(value, randomDigits(intg0x), DECIMAL_BINARY_SIZE[intg0x]);
+    for (int i = 0; i < intg0; i++) writeBigEndian(value, randomDigits(DIGITS_PER_4BYTES), 4);
+    for (int i = 0; i < frac0; i++) writeBigEndian(value, randomDigits(DIGITS_PER_4BYTES), 4);
+    writeBigEndian(value, randomDigits(frac0x), DECIMAL_BINARY_SIZE[frac0x]);
+
+    //
+    final byte[] data = value.toByteArray();
+    final boolean negative = this.random.nextBoolean();
+    if (negative) for (int i = 0; i < data.length; i++) data[i] = (byte) ~data[i];
+    data[0] ^= 0x80;
+    os.write(data);
+  }
+
+  private long randomDigits(int digits) {
+    long bound = 1;
+    for (int i = 0; i < digits; i++) bound *= 10;
+    return (long) (this.random.nextDouble() * bound);
+  }
+
+  private byte[] randomAscii(int length) {
+    final byte[] r = new byte[length];
+    for (int i = 0; i < length; i++) r[i] = (byte) ('a' + this.random.nextInt(26));
+    return r;
+  }
+
+  private static int decimal(int precision, int scale) {
+    return precision | (scale << 8);
+  }
+
+  private static void writeString(ByteArrayOutputStream os, String s) throws IOException {
+    final byte[] b = s.getBytes("US-ASCII");
+    os.write(b.length);
+    os.write(b);
+    os.write(0);
+  }
+
+  private static void writeInt(ByteArrayOutputStream os, long value, int length) {
+    for (int i = 0; i < length; i++) os.write((int) (value >>> (i << 3)));
+  }
+
+  private static void writeBigEndian(ByteArrayOutputStream os, long value, int length) {
+    for (int i = length - 1; i >= 0; i--) os.write((int) (value >>> (i << 3)));
+  }
+}
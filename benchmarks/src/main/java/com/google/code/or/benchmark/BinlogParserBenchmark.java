@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.benchmark;
+
+import java.io.File;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.BinlogParser;
+import com.google.code.or.binlog.BinlogParserFactory;
+import com.google.code.or.binlog.BinlogParserListener;
+import com.google.code.or.binlog.impl.FileBasedBinlogParser;
+import com.google.code.or.benchmark.BinlogFixture.Workload;
+
+/**
+ * Parses a synthetic binlog file end to end with the file based parser. The plain family parses a
+ * file without checksums, the ext family a CRC32 checksummed one, either read through a
+ * {@code RandomAccessFile} or memory mapped.
+ * <p>
+ * The events and bytes counters divided by the measured time give events/s and bytes/s, run with
+ * {@code -prof gc} for the allocation rate. The parser runs on the benchmark thread, so the
+ * normalized allocation rate covers the whole parse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class BinlogParserBenchmark {
+  // Runs the parser's worker task on the thread that starts it
+  private static final ThreadFactory INLINE = new ThreadFactory() {
+    public Thread newThread(final Runnable r) {
+      return new Thread(r) {
+        @Override
+        public synchronized void start() {
+          run();
+        }
+      };
+    }
+  };
+
+  //
+  @Param({"NARROW_INT", "WIDE_VARCHAR_BLOB", "DECIMAL", "TEMPORAL2"})
+  public Workload workload;
+
+  @Param({"plain", "ext"})
+  public String family;
+
+  @Param({"false", "true"})
+  public boolean memoryMapped;
+
+  @Param({"100"})
+  public int rowsPerEvent;
+
+  @Param({"2000"})
+  public int transactions;
+
+  //
+  private File file;
+  private int events;
+
+  /**
+   * Counts what one benchmark operation has parsed.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Counters {
+    public long events;
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      this.events = 0;
+      this.bytes = 0;
+    }
+  }
+
+  /**
+	 * 
+	 */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    final String prefix = "bench-" + this.workload.name().toLowerCase() + "-";
+    this.file = File.createTempFile(prefix, ".000001");
+    this.file.deleteOnExit();
+    final boolean checksum = "ext".equals(this.family);
+    this.events = new BinlogFixture(this.workload, checksum, this.rowsPerEvent, this.transactions)
+        .writeTo(this.file);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (this.file != null) this.file.delete();
+  }
+
+  /**
+	 * 
+	 */
+  @Benchmark
+  public void parse(final Counters counters, final Blackhole bh) throws Exception {
+    //
+    final FileBasedBinlogParser parser = createParser();
+    final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+    final long[] events = new long[1];
+    parser.setEventListener(new BinlogEventListener() {
+      public void onEvents(BinlogEventV4 event) {
+        events[0]++;
+        bh.consume(event);
+      }
+    });
+    parser.addParserListener(new BinlogParserListener.Adapter() {
+      @Override
+      public void onException(BinlogParser parser, Exception exception) {
+        failure.set(exception);
+      }
+    });
+
+    //
+    parser.setThreadFactory(INLINE);
+    parser.setMemoryMapped(this.memoryMapped);
+    parser.start();
+    if (failure.get() != null) throw failure.get();
+    if (events[0] != this.events) {
+      throw new IllegalStateException("parsed " + events[0] + " of " + this.events + " events");
+    }
+    counters.events += events[0];
+    counters.bytes += this.file.length();
+  }
+
+  private FileBasedBinlogParser createParser() {
+    final String name = this.file.getName();
+    final String path = this.file.getParent();
+    return BinlogParserFactory.createFileBinlogParser(4, 0, name, path);
+  }
+}
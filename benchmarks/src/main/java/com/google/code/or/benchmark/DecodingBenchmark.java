@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.code.or.binlog.ext.XChecksumCRC32Impl;
+import com.google.code.or.common.util.MySQLUtils;
+import com.google.code.or.io.XInputStream;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
+import com.google.code.or.io.impl.XInputStreamImpl;
+
+/**
+ * Micro benchmarks of the primitive readers of {@link XInputStreamImpl} over a byte array stream
+ * and of {@link ByteArrayXInputStream}, and of {@link MySQLUtils#toDecimal(int, int, byte[])}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DecodingBenchmark {
+  //
+  private static final int VALUES = 1024;
+
+  //
+  @Param({"buffered", "array"})
+  public String source;
+
+  //
+  private byte[] data;
+  private byte[][] decimals;
+
+  @Setup
+  public void setUp() {
+    //
+    final Random random = new Random(20141014L);
+    this.data = new byte[VALUES * 8];
+    random.nextBytes(this.data);
+
+    // DECIMAL(18,4): 3 + 4 + 2 bytes, positive
+    this.decimals = new byte[VALUES][];
+    for (int i = 0; i < VALUES; i++) {
+      final byte[] d = new byte[MySQLUtils.getDecimalBinarySize(18, 4)];
+      final long ip = (long) (random.nextDouble() * 100000000000000L);
+      putBigEndian(d, 0, ip / 1000000000L, 3);
+      putBigEndian(d, 3, ip % 1000000000L, 4);
+      putBigEndian(d, 7, random.nextInt(10000), 2);
+      d[0] ^= 0x80;
+      this.decimals[i] = d;
+    }
+  }
+
+  /**
+	 * 
+	 */
+  @Benchmark
+  @OperationsPerInvocation(VALUES * 2)
+  public void readInt(Blackhole bh) throws Exception {
+    final XInputStream is = stream();
+    for (int i = 0; i < VALUES * 2; i++) bh.consume(is.readInt(4));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public void readLong(Blackhole bh) throws Exception {
+    final XInputStream is = stream();
+    for (int i = 0; i < VALUES; i++) bh.consume(is.readLong(8));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VALUES * 2)
+  public void readIntWithChecksum(Blackhole bh) throws Exception {
+    final XInputStream is = stream();
+    final XChecksumCRC32Impl checksum = new XChecksumCRC32Impl();
+    for (int i = 0; i < VALUES * 2; i++) bh.consume(is.readInt(4, checksum));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public void readSignedLong(Blackhole bh) throws Exception {
+    final XInputStream is = stream();
+    for (int i = 0; i < VALUES; i++) bh.consume(is.readSignedLong(8));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public void toDecimal(Blackhole bh) {
+    for (int i = 0; i < VALUES; i++) {
+      final BigDecimal r = MySQLUtils.toDecimal(18, 4, this.decimals[i]);
+      bh.consume(r);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VALUES)
+  public void toUnscaledLong(Blackhole bh) {
+    for (int i = 0; i < VALUES; i++) {
+      bh.consume(MySQLUtils.toUnscaledLong(18, 4, this.decimals[i], 0));
+    }
+  }
+
+  /**
+	 * 
+	 */
+  private XInputStream stream() {
+    if ("array".equals(this.source)) return new ByteArrayXInputStream(this.data);
+    return new XInputStreamImpl(new ByteArrayInputStream(this.data), this.data.length);
+  }
+
+  private static void putBigEndian(byte[] b, int offset, long value, int length) {
+    for (int i = 0; i < length; i++) {
+      b[offset + i] = (byte) (value >>> ((length - 1 - i) << 3));
+    }
+  }
+}
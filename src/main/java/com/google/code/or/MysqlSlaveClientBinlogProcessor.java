@@ -23,8 +23,8 @@ import com.google.code.or.binlog.ext.XChecksum.ChecksumType;
 import com.google.code.or.binlog.impl.BinlogSimpleParserImpl;
 import com.google.code.or.common.glossary.column.StringColumn;
 import com.google.code.or.io.XInputStream;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 import com.google.code.or.io.impl.SocketFactoryImpl;
-import com.google.code.or.io.util.XDeserializer;
 import com.google.code.or.net.Packet;
 import com.google.code.or.net.Transport;
 import com.google.code.or.net.TransportException;
@@ -231,7 +231,7 @@ public class MysqlSlaveClientBinlogProcessor implements BinlogProcessor {
 	
 	@Override
 	public void processOneEventRecord(XInputStream is, BinlogProcessorCallback callback) {
-		XDeserializer stream = null;
+		ByteArrayXInputStream stream = null;
 		BinlogEventV4 event  = null;
 		byte[] eventPacket   = null;
     	try {
@@ -277,7 +277,7 @@ public class MysqlSlaveClientBinlogProcessor implements BinlogProcessor {
     			logger.debug("FOUND -1");
     			eventPacket[eventPacket.length - 1] = 0;
     		}
-    		stream = new XDeserializer(eventPacket);
+    		stream = new ByteArrayXInputStream(eventPacket);
     		stream.setReadLimit(eventPacket.length);
     		event  = parser.parse(stream);
     		
@@ -14,6 +14,10 @@
  */
 package com.google.code.or;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -21,8 +25,10 @@ import com.google.code.or.binlog.BinlogEventListener;
 import com.google.code.or.binlog.BinlogParser;
 import com.google.code.or.binlog.BinlogParserFactory;
 import com.google.code.or.binlog.ext.XChecksum;
-import com.google.code.or.binlog.ext.XChecksum.ChecksumType;
 import com.google.code.or.binlog.impl.FileBasedBinlogParser;
+import com.google.code.or.binlog.impl.MultiFileBinlogParser;
+import com.google.code.or.binlog.impl.index.BinlogIndex;
+import com.google.code.or.binlog.impl.index.BinlogIndexer;
 
 /**
  * 
@@ -42,6 +48,9 @@ public class OpenParser {
 
   //
   protected XChecksum checksum;
+  protected boolean memoryMapped = true;
+  protected boolean multiFile = false;
+  protected int replayThreads = Runtime.getRuntime().availableProcessors();
 
   /**
 	 * 
@@ -115,6 +124,81 @@ public class OpenParser {
     this.checksum = checksum;
   }
 
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  public void setMemoryMapped(boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
+  public boolean isMultiFile() {
+    return multiFile;
+  }
+
+  public void setMultiFile(boolean multiFile) {
+    this.multiFile = multiFile;
+  }
+
+  public int getReplayThreads() {
+    return replayThreads;
+  }
+
+  public void setReplayThreads(int replayThreads) {
+    this.replayThreads = replayThreads;
+  }
+
+  /**
+   * Moves the start to the first transaction at or after the given timestamp in milliseconds,
+   * looking through the following files too with multi file replay, see {@link BinlogIndexer}.
+   *
+   * @return false if there is no such transaction, the start is left as is then
+   */
+  public boolean seekToTimestamp(long timestamp) throws IOException {
+    for (String name : getBinlogFileNames()) {
+      final BinlogIndex index = BinlogIndexer.open(new File(this.binlogFilePath, name));
+      final long position = index.findTimestamp(timestamp);
+      if (position < index.getLength()) return seek(name, position);
+    }
+    return false;
+  }
+
+  /**
+   * Moves the start to the transaction of the given GTID, see {@link BinlogIndex#findGtid(String)}.
+   */
+  public boolean seekToGtid(String gtid) throws IOException {
+    for (String name : getBinlogFileNames()) {
+      final BinlogIndex index = BinlogIndexer.open(new File(this.binlogFilePath, name));
+      final long position = index.findGtid(gtid);
+      if (position >= 0) return seek(name, position);
+    }
+    return false;
+  }
+
+  /**
+   * Moves the start right after the commit of the transaction of the given Xid.
+   */
+  public boolean seekToXid(long xid) throws IOException {
+    for (String name : getBinlogFileNames()) {
+      final BinlogIndex index = BinlogIndexer.open(new File(this.binlogFilePath, name));
+      final long position = index.findXid(xid);
+      if (position >= 0) return seek(name, position);
+    }
+    return false;
+  }
+
+  private List<String> getBinlogFileNames() {
+    if (!this.multiFile) return Collections.singletonList(this.binlogFileName);
+    final File dir = new File(this.binlogFilePath);
+    return MultiFileBinlogParser.listBinlogFiles(dir, this.binlogFileName);
+  }
+
+  private boolean seek(String name, long position) {
+    this.binlogFileName = name;
+    this.startPosition = position;
+    return true;
+  }
+
   /**
 	 * 
 	 */
@@ -137,12 +221,21 @@ public class OpenParser {
   /**
 	 * 
 	 */
-  protected FileBasedBinlogParser getDefaultBinlogParser() throws Exception {
-    if (this.checksum.getType() == ChecksumType.NONE)
-      return BinlogParserFactory.createFileBinlogParser(startPosition, stopPosition,
-          binlogFileName, binlogFilePath);
+  protected BinlogParser getDefaultBinlogParser() throws Exception {
+    //
+    if (this.multiFile) {
+      final MultiFileBinlogParser r = BinlogParserFactory.createMultiFileBinlogParser(
+          startPosition, stopPosition, binlogFileName, binlogFilePath, checksum);
+      r.setMemoryMapped(this.memoryMapped);
+      r.setReplayThreads(this.replayThreads);
+      return r;
+    }
 
-    return BinlogParserFactory.createFileBinlogParserExt(startPosition, stopPosition,
-        binlogFileName, binlogFilePath, checksum);
+    //
+    final FileBasedBinlogParser r = BinlogParserFactory.createFileBinlogParser(startPosition,
+        stopPosition, binlogFileName, binlogFilePath);
+    r.setChecksum(this.checksum);
+    r.setMemoryMapped(this.memoryMapped);
+    return r;
   }
 }
@@ -14,27 +14,52 @@
  */
 package com.google.code.or;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.BinlogEventFilter;
 import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.BinlogEventV4Header;
 import com.google.code.or.binlog.BinlogParser;
+import com.google.code.or.binlog.BinlogParserContext;
 import com.google.code.or.binlog.BinlogParserFactory;
 import com.google.code.or.binlog.BinlogParserListener;
+import com.google.code.or.binlog.CheckpointStore;
 import com.google.code.or.binlog.ext.XChecksum;
 import com.google.code.or.binlog.ext.XChecksum.ChecksumType;
 import com.google.code.or.binlog.ext.XChecksumFactory;
+import com.google.code.or.binlog.impl.AbstractBinlogParser;
+import com.google.code.or.binlog.impl.CheckpointEventListener;
+import com.google.code.or.binlog.impl.HeartbeatWatchdog;
+import com.google.code.or.binlog.impl.PipelinedBinlogParser;
 import com.google.code.or.binlog.impl.ReplicationBasedBinlogParser;
+import com.google.code.or.binlog.impl.TransactionBoundary;
+import com.google.code.or.binlog.impl.event.HeartbeatEvent;
+import com.google.code.or.binlog.impl.event.RotateEvent;
+import com.google.code.or.binlog.impl.index.BinlogIndex;
+import com.google.code.or.common.glossary.BinlogPosition;
 import com.google.code.or.common.glossary.column.StringColumn;
+import com.google.code.or.common.util.MySQLConstants;
+import com.google.code.or.common.util.XThreadFactory;
 import com.google.code.or.io.impl.SocketFactoryImpl;
+import com.google.code.or.io.util.WaitStrategy;
 import com.google.code.or.net.Packet;
 import com.google.code.or.net.Transport;
 import com.google.code.or.net.TransportException;
 import com.google.code.or.net.impl.AuthenticatorImpl;
+import com.google.code.or.net.impl.NioReactor;
+import com.google.code.or.net.impl.NioTransport;
 import com.google.code.or.net.impl.TransportImpl;
 import com.google.code.or.net.impl.packet.EOFPacket;
 import com.google.code.or.net.impl.packet.ErrorPacket;
@@ -49,6 +74,9 @@ import com.google.code.or.net.impl.packet.command.ComQuery;
  * @author Jingqi Xu
  */
 public class OpenReplicator {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(OpenReplicator.class);
+
   //
   protected int port = 3306;
   protected String host;
@@ -60,13 +88,37 @@ public class OpenReplicator {
   protected String encoding = "utf-8";
   protected int level1BufferSize = 1024 * 1024;
   protected int level2BufferSize = 8 * 1024 * 1024;
+  protected WaitStrategy waitStrategy = new WaitStrategy.Park();
   protected int socketReceiveBufferSize = 512 * 1024;
+  protected boolean pipelinedParsing = false;
+  protected NioReactor reactor;
+  protected CheckpointStore checkpointStore;
+  protected int connectTimeout = 10 * 1000;
+  protected boolean autoReconnect = false;
+  protected List<String> failoverHosts = Collections.emptyList();
+  protected long reconnectDelay = 100;
+  protected long maxReconnectDelay = 10 * 1000;
+  protected long heartbeatPeriod = 0;
+  protected int missedHeartbeats = 3;
 
   //
   protected Transport transport;
   protected BinlogParser binlogParser;
+  protected boolean customTransport;
+  protected boolean customBinlogParser;
   protected BinlogEventListener binlogEventListener;
   protected final AtomicBoolean running = new AtomicBoolean(false);
+  protected volatile HeartbeatWatchdog watchdog;
+
+  // Where to resume from, see autoReconnect
+  protected int hostIndex;
+  protected String serverUuid;
+  protected volatile String deliveredFileName;
+  protected volatile long deliveredPosition;
+  protected volatile String transactionFileName;
+  protected volatile long transactionPosition;
+  protected volatile Thread reconnector;
+  protected final Random random = new Random();
 
   protected XChecksum checksum;
 
@@ -86,12 +138,71 @@ public class OpenReplicator {
       return;
     }
 
+    // Resume from the last checkpoint
+    if (this.checkpointStore != null) {
+      final BinlogPosition p = this.checkpointStore.load();
+      if (p != null) {
+        this.binlogFileName = p.getBinlogFileName();
+        this.binlogPosition = p.getPosition();
+      }
+    }
+
     //
-    if (this.transport == null) this.transport = getDefaultTransport();
-    this.transport.connect(this.host, this.port);
+    if (this.autoReconnect && (this.customTransport || this.customBinlogParser)) {
+      this.running.set(false);
+      throw new IllegalStateException("auto reconnect requires the default transport and parser");
+    }
+
+    //
+    this.watchdog = this.heartbeatPeriod > 0 ? createWatchdog() : null;
+    this.hostIndex = 0;
+    this.deliveredFileName = this.transactionFileName = this.binlogFileName;
+    this.deliveredPosition = this.transactionPosition = this.binlogPosition;
+    doStart(false);
+  }
+
+  public void stop(long timeout, TimeUnit unit) throws Exception {
+    //
+    if (!this.running.compareAndSet(true, false)) {
+      return;
+    }
+
+    //
+    final Thread t = this.reconnector;
+    if (t != null) t.interrupt();
+    final HeartbeatWatchdog w = this.watchdog;
+    if (w != null) w.stop();
+    final Transport transport = this.transport;
+    if (transport != null) transport.disconnect();
+    final BinlogParser parser = this.binlogParser;
+    if (parser != null) parser.stop(timeout, unit);
+    if (this.checkpointStore != null) this.checkpointStore.flush();
+  }
+
+  public void stopQuietly(long timeout, TimeUnit unit) {
+    try {
+      stop(timeout, unit);
+    } catch (Exception e) {
+      // NOP
+    }
+  }
+
+  /**
+	 * 
+	 */
+  protected void doStart(boolean resuming) throws Exception {
+    // Bounds the setup too, as the socket reads never time out
+    final HeartbeatWatchdog w = this.watchdog;
+    if (w != null) w.start();
+
+    //
+    final String[] address = getHostAddress(this.hostIndex);
+    if (!this.customTransport) this.transport = getDefaultTransport();
+    this.transport.connect(address[0], Integer.parseInt(address[1]));
 
     //
     readSettings();
+    checkServer(resuming);
 
     //
     bindSettings();
@@ -100,34 +211,182 @@ public class OpenReplicator {
     dumpBinlog();
 
     //
-    if (this.binlogParser == null) this.binlogParser = getDefaultBinlogParser();
-    this.binlogParser.setEventListener(this.binlogEventListener);
+    if (!this.customBinlogParser) {
+      final ReplicationBasedBinlogParser p = getDefaultBinlogParser();
+      if (resuming) p.setEventFilter(new DeliveredEventFilter(p.getEventFilter()));
+      this.binlogParser = p;
+    }
+    BinlogEventListener listener = this.checkpointStore == null ? this.binlogEventListener
+        : new CheckpointEventListener(this.checkpointStore, this.binlogEventListener,
+            this.binlogFileName);
+    if (this.autoReconnect) listener = new Tracker(listener, resuming);
+    if (w != null) {
+      w.setEventListener(listener);
+      listener = w;
+      if (this.binlogParser instanceof AbstractBinlogParser) { // Records the receipts by header
+        final AbstractBinlogParser p = (AbstractBinlogParser) this.binlogParser;
+        BinlogEventFilter filter = p.getEventFilter();
+        if (filter instanceof HeartbeatWatchdog) { // Left by a previous start
+          filter = ((HeartbeatWatchdog) filter).getEventFilter();
+        }
+        w.setEventFilter(filter);
+        p.setEventFilter(w);
+      }
+    }
+    this.binlogParser.setEventListener(listener);
     this.binlogParser.addParserListener(new BinlogParserListener.Adapter() {
       @Override
       public void onStop(BinlogParser parser) {
-        stopQuietly(0, TimeUnit.MILLISECONDS);
+        if (w != null) w.stop();
+        if (autoReconnect && isRunning()) {
+          startReconnector();
+        } else {
+          stopQuietly(0, TimeUnit.MILLISECONDS);
+        }
       }
     });
     this.binlogParser.start();
   }
 
-  public void stop(long timeout, TimeUnit unit) throws Exception {
+  /**
+   * Reconnects to the current host at once then to each next one, and waits for a jittered and
+   * exponentially growing delay after each round of the hosts failed.
+   */
+  protected void reconnect() {
+    // The old parser may still be delivering an event, when stopped on a stall for instance
+    final BinlogParser parser = this.binlogParser;
+    if (parser instanceof AbstractBinlogParser) {
+      try {
+        while (!((AbstractBinlogParser) parser).awaitTermination(1, TimeUnit.SECONDS)) {
+          if (!isRunning()) return;
+          LOGGER.warn("waiting for the binlog event listener to return before reconnecting");
+        }
+      } catch (InterruptedException e) {
+        return; // Stopped
+      }
+    }
+
     //
-    if (!this.running.compareAndSet(true, false)) {
+    int failures = 0;
+    while (isRunning()) {
+      //
+      final Transport transport = this.transport;
+      if (transport != null) {
+        try {
+          transport.disconnect();
+        } catch (Exception e) {
+          // NOP
+        }
+      }
+
+      //
+      final int hosts = 1 + this.failoverHosts.size();
+      if (failures > 0) {
+        if (failures % hosts == 0) {
+          try {
+            Thread.sleep(getReconnectDelay(failures / hosts));
+          } catch (InterruptedException e) {
+            return; // Stopped
+          }
+        }
+        this.hostIndex = (this.hostIndex + 1) % hosts;
+      }
+
+      // Resumes from the start of the last transaction not fully delivered
+      this.binlogFileName = this.transactionFileName;
+      this.binlogPosition = this.transactionPosition;
+      try {
+        doStart(true);
+        LOGGER.info("reconnected to {}, binlog: {}:{}", new Object[] {
+            Arrays.toString(getHostAddress(this.hostIndex)), this.binlogFileName,
+            this.binlogPosition});
+        if (!isRunning()) { // Stopped meanwhile
+          this.transport.disconnect();
+          this.binlogParser.stop(0, TimeUnit.MILLISECONDS);
+        }
+        return;
+      } catch (Exception e) {
+        LOGGER.warn("failed to reconnect to " + Arrays.toString(getHostAddress(this.hostIndex))
+            + ", failures: " + (failures + 1), e);
+        failures++;
+      }
+    }
+  }
+
+  /**
+   * Refuses to resume from another server than the one first connected, as the binlog positions are
+   * local to each server. The servers are told apart by their server_uuid, or their server_id
+   * before MySQL 5.6, and are not checked if they have neither.
+   */
+  protected void checkServer(boolean resuming) {
+    //
+    String uuid = this.variables.get("server_uuid");
+    if (uuid == null) uuid = this.variables.get("server_id");
+    if (!resuming || this.serverUuid == null) {
+      this.serverUuid = uuid;
       return;
     }
 
     //
-    this.transport.disconnect();
-    this.binlogParser.stop(timeout, unit);
+    if (uuid != null && !uuid.equals(this.serverUuid)) {
+      throw new IllegalStateException("another server: " + uuid + ", expected: "
+          + this.serverUuid + ", binlog positions can not be resumed across servers");
+    }
   }
 
-  public void stopQuietly(long timeout, TimeUnit unit) {
-    try {
-      stop(timeout, unit);
-    } catch (Exception e) {
-      // NOP
-    }
+  protected long getReconnectDelay(int round) {
+    final long r = Math.min(this.maxReconnectDelay, this.reconnectDelay << Math.min(round - 1, 20));
+    return r / 2 + (long) (this.random.nextDouble() * (r / 2 + 1));
+  }
+
+  protected HeartbeatWatchdog createWatchdog() {
+    final HeartbeatWatchdog r = new HeartbeatWatchdog(this.heartbeatPeriod);
+    r.setMissedHeartbeats(this.missedHeartbeats);
+    r.setStallHandler(new Runnable() {
+      public void run() {
+        // Fails the stream, which then reconnects or stops
+        final Transport transport = OpenReplicator.this.transport;
+        final BinlogParser parser = OpenReplicator.this.binlogParser;
+        try {
+          if (transport != null) transport.disconnect();
+        } catch (Exception e) {
+          // NOP
+        }
+        try {
+          if (parser != null) parser.stop(0, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+          // NOP
+        }
+      }
+    });
+    return r;
+  }
+
+  private void startReconnector() {
+    LOGGER.warn("binlog stream stopped, reconnecting, delivered: {}:{}", this.deliveredFileName,
+        this.deliveredPosition);
+    final Thread t = new XThreadFactory("binlog-reconnector", true).newThread(new Runnable() {
+      public void run() {
+        try {
+          reconnect();
+        } finally {
+          if (reconnector == Thread.currentThread()) reconnector = null;
+        }
+      }
+    });
+    this.reconnector = t;
+    t.start();
+  }
+
+  private String[] getHostAddress(int index) {
+    //
+    if (index == 0) return new String[] {this.host, String.valueOf(this.port)};
+
+    //
+    final String address = this.failoverHosts.get(index - 1);
+    final int colon = address.lastIndexOf(':');
+    if (colon < 0) return new String[] {address, String.valueOf(this.port)};
+    return new String[] {address.substring(0, colon), address.substring(colon + 1)};
   }
 
   /**
@@ -197,6 +456,33 @@ public class OpenReplicator {
     this.binlogFileName = binlogFileName;
   }
 
+  /**
+   * Moves the start to the first transaction at or after the given timestamp in milliseconds, as
+   * found in the index of a local copy of the server's binlog file.
+   *
+   * @return false if there is no such transaction, the start is left as is then
+   */
+  public boolean seekToTimestamp(BinlogIndex index, long timestamp) {
+    final long position = index.findTimestamp(timestamp);
+    return position < index.getLength() && seek(index, position);
+  }
+
+  public boolean seekToGtid(BinlogIndex index, String gtid) {
+    final long position = index.findGtid(gtid);
+    return position >= 0 && seek(index, position);
+  }
+
+  public boolean seekToXid(BinlogIndex index, long xid) {
+    final long position = index.findXid(xid);
+    return position >= 0 && seek(index, position);
+  }
+
+  private boolean seek(BinlogIndex index, long position) {
+    this.binlogFileName = index.getBinlogFileName();
+    this.binlogPosition = position;
+    return true;
+  }
+
   public int getLevel1BufferSize() {
     return level1BufferSize;
   }
@@ -213,6 +499,17 @@ public class OpenReplicator {
     this.level2BufferSize = level2BufferSize;
   }
 
+  public WaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  /**
+   * @see TransportImpl#setWaitStrategy(WaitStrategy)
+   */
+  public void setWaitStrategy(WaitStrategy waitStrategy) {
+    this.waitStrategy = waitStrategy;
+  }
+
   public int getSocketReceiveBufferSize() {
     return socketReceiveBufferSize;
   }
@@ -221,6 +518,152 @@ public class OpenReplicator {
     this.socketReceiveBufferSize = socketReceiveBufferSize;
   }
 
+  public boolean isPipelinedParsing() {
+    return pipelinedParsing;
+  }
+
+  /**
+   * Decodes rows events on multiple threads, see {@link PipelinedBinlogParser}.
+   */
+  public void setPipelinedParsing(boolean pipelinedParsing) {
+    this.pipelinedParsing = pipelinedParsing;
+  }
+
+  public NioReactor getReactor() {
+    return reactor;
+  }
+
+  /**
+   * Receives and decodes the binlog by the given reactor's threads, shared with the other
+   * replicators of the reactor, instead of a thread of its own, see {@link NioTransport}.
+   */
+  public void setReactor(NioReactor reactor) {
+    this.reactor = reactor;
+  }
+
+  public int getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  /**
+   * @param connectTimeout in milliseconds, which bounds the time to fail over from an unreachable
+   *        host
+   */
+  public void setConnectTimeout(int connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public boolean isAutoReconnect() {
+    return autoReconnect;
+  }
+
+  /**
+   * Reconnects once the binlog stream stopped on its own, for instance on a network failure, rather
+   * than stopping. The binlog is dumped again from the start of the transaction of the last event
+   * delivered, whose table maps are parsed again, and the events already delivered are skipped
+   * before their bodies are parsed, so their rows are not streamed again to the row listeners of
+   * the parser either.
+   * <p>
+   * A new default transport and parser are created on each connect, so auto reconnect can not be
+   * started with a transport or parser set by {@link #setTransport(Transport)} or
+   * {@link #setBinlogParser(BinlogParser)}; override {@link #getDefaultTransport()} and
+   * {@link #getDefaultBinlogParser()} to configure them instead.
+   */
+  public void setAutoReconnect(boolean autoReconnect) {
+    this.autoReconnect = autoReconnect;
+  }
+
+  public List<String> getFailoverHosts() {
+    return failoverHosts;
+  }
+
+  /**
+   * @param hosts the hosts to reconnect to in turn after the host, each as {@code host[:port]}.
+   *        Positions are kept across hosts, so they must be other addresses of the same server, a
+   *        host with another server_uuid is refused, see {@link #checkServer(boolean)}.
+   */
+  public void setFailoverHosts(List<String> hosts) {
+    this.failoverHosts =
+        hosts == null ? Collections.<String>emptyList() : new ArrayList<String>(hosts);
+  }
+
+  public long getReconnectDelay() {
+    return reconnectDelay;
+  }
+
+  /**
+   * @param reconnectDelay in milliseconds, before reconnecting once every host failed, which
+   *        doubles after each round up to the max reconnect delay
+   */
+  public void setReconnectDelay(long reconnectDelay) {
+    this.reconnectDelay = reconnectDelay;
+  }
+
+  public long getMaxReconnectDelay() {
+    return maxReconnectDelay;
+  }
+
+  public void setMaxReconnectDelay(long maxReconnectDelay) {
+    this.maxReconnectDelay = maxReconnectDelay;
+  }
+
+  /**
+   * @return the heartbeat period in milliseconds, or 0 if heartbeats are disabled
+   */
+  public long getHeartbeatPeriod() {
+    return heartbeatPeriod;
+  }
+
+  /**
+   * @param heartbeatPeriod in milliseconds, for the master to send heartbeats while idle. If
+   *        positive, the binlog stream is watched for stalls by a {@link HeartbeatWatchdog} in
+   *        place of a read timeout.
+   */
+  public void setHeartbeatPeriod(long heartbeatPeriod) {
+    this.heartbeatPeriod = heartbeatPeriod;
+  }
+
+  public int getMissedHeartbeats() {
+    return missedHeartbeats;
+  }
+
+  /**
+   * @param missedHeartbeats the heartbeat periods without anything received after which the stream
+   *        is stalled and dropped
+   */
+  public void setMissedHeartbeats(int missedHeartbeats) {
+    this.missedHeartbeats = missedHeartbeats;
+  }
+
+  /**
+   * @return the watchdog of the stream, with its lag, if the heartbeat period is positive
+   */
+  public HeartbeatWatchdog getWatchdog() {
+    return watchdog;
+  }
+
+  /**
+   * @return the position after the last event delivered to the binlog event listener, if auto
+   *         reconnect is enabled
+   */
+  public BinlogPosition getDeliveredPosition() {
+    final String name = this.deliveredFileName;
+    return name == null ? null : new BinlogPosition(name, this.deliveredPosition);
+  }
+
+  public CheckpointStore getCheckpointStore() {
+    return checkpointStore;
+  }
+
+  /**
+   * Resumes from the position of the given store if it has one, and updates it after each
+   * transaction once the binlog event listener returned from it. A listener which hands the events
+   * off to other threads should rather update a store of its own once they are processed.
+   */
+  public void setCheckpointStore(CheckpointStore checkpointStore) {
+    this.checkpointStore = checkpointStore;
+  }
+
   /**
 	 * 
 	 */
@@ -228,16 +671,24 @@ public class OpenReplicator {
     return transport;
   }
 
+  /**
+   * @param transport used instead of a default one, which is created on each start if null
+   */
   public void setTransport(Transport transport) {
     this.transport = transport;
+    this.customTransport = transport != null;
   }
 
   public BinlogParser getBinlogParser() {
     return binlogParser;
   }
 
+  /**
+   * @param parser used instead of a default one, which is created on each start if null
+   */
   public void setBinlogParser(BinlogParser parser) {
     this.binlogParser = parser;
+    this.customBinlogParser = parser != null;
   }
 
   public BinlogEventListener getBinlogEventListener() {
@@ -262,6 +713,7 @@ public class OpenReplicator {
 
   protected void readSettings() throws Exception {
     //
+    this.variables.clear();
     final ComQuery command = new ComQuery();
     String cmd = "SHOW GLOBAL VARIABLES";
     StringColumn sc = StringColumn.valueOf(cmd.getBytes("UTF-8"));
@@ -328,6 +780,22 @@ public class OpenReplicator {
         throw new TransportException(error);
       }
     }
+
+    // In nanoseconds
+    if (this.heartbeatPeriod > 0) {
+      final ComQuery command = new ComQuery();
+      String cmd = "SET @master_heartbeat_period = " + this.heartbeatPeriod * 1000000L;
+      command.setSql(StringColumn.valueOf(cmd.getBytes("UTF-8")));
+      this.transport.getOutputStream().writePacket(command);
+      this.transport.getOutputStream().flush();
+
+      //
+      final Packet packet = this.transport.getInputStream().readPacket();
+      if (packet.getPacketBody()[0] == ErrorPacket.PACKET_MARKER) {
+        final ErrorPacket error = ErrorPacket.valueOf(packet);
+        throw new TransportException(error);
+      }
+    }
   }
 
   /**
@@ -353,32 +821,166 @@ public class OpenReplicator {
   }
 
   protected Transport getDefaultTransport() throws Exception {
+    //
+    if (this.reactor != null) {
+      final NioTransport r = new NioTransport(this.reactor);
+      r.setKeepAlive(true);
+      r.setTcpNoDelay(false);
+      r.setReceiveBufferSize(this.socketReceiveBufferSize);
+      r.setConnectTimeout(this.connectTimeout);
+      r.setAuthenticator(getDefaultAuthenticator());
+      return r;
+    }
+
     //
     final TransportImpl r = new TransportImpl();
     r.setLevel1BufferSize(this.level1BufferSize);
     r.setLevel2BufferSize(this.level2BufferSize);
-
-    //
-    final AuthenticatorImpl authenticator = new AuthenticatorImpl();
-    authenticator.setUser(this.user);
-    authenticator.setPassword(this.password);
-    authenticator.setEncoding(this.encoding);
-    r.setAuthenticator(authenticator);
+    r.setWaitStrategy(this.waitStrategy);
+    if (this.heartbeatPeriod > 0) r.setReadTimeout(0); // See HeartbeatWatchdog
+    r.setAuthenticator(getDefaultAuthenticator());
 
     //
     final SocketFactoryImpl socketFactory = new SocketFactoryImpl();
     socketFactory.setKeepAlive(true);
     socketFactory.setTcpNoDelay(false);
     socketFactory.setReceiveBufferSize(this.socketReceiveBufferSize);
+    socketFactory.setConnectTimeout(this.connectTimeout);
     r.setSocketFactory(socketFactory);
     return r;
   }
 
+  protected AuthenticatorImpl getDefaultAuthenticator() {
+    final AuthenticatorImpl r = new AuthenticatorImpl();
+    r.setUser(this.user);
+    r.setPassword(this.password);
+    r.setEncoding(this.encoding);
+    return r;
+  }
+
   protected ReplicationBasedBinlogParser getDefaultBinlogParser() throws Exception {
-    if (checksum.getType() == ChecksumType.NONE)
-      return BinlogParserFactory.createReplicationBinlogParser(this.transport, this.binlogFileName);
+    if (this.transport instanceof NioTransport)
+      return BinlogParserFactory.createNioBinlogParser((NioTransport) this.transport,
+          this.binlogFileName, this.checksum);
+    if (this.pipelinedParsing)
+      return BinlogParserFactory.createPipelinedBinlogParser(this.transport, this.binlogFileName,
+          this.checksum);
+
+    // The fake rotate event comes before any format description event, hence the given checksum
+    final ReplicationBasedBinlogParser r =
+        BinlogParserFactory.createReplicationBinlogParser(this.transport, this.binlogFileName);
+    r.setChecksum(this.checksum);
+    return r;
+  }
+
+  /**
+   * Rejects the events delivered before resuming by their headers, except the table maps which the
+   * rows events to come refer to, and the events which the {@link Tracker} follows the transaction
+   * with and skips itself.
+   */
+  private final class DeliveredEventFilter implements BinlogEventFilter {
+    //
+    private final BinlogEventFilter eventFilter;
+    private final long position = deliveredPosition;
+    private boolean skipping = true;
+
+    /**
+		 * 
+		 */
+    public DeliveredEventFilter(BinlogEventFilter eventFilter) {
+      this.eventFilter = eventFilter;
+    }
 
-    return BinlogParserFactory.createReplicationBinlogParserExt(this.transport,
-        this.binlogFileName, this.checksum);
+    /**
+		 * 
+		 */
+    public boolean accepts(BinlogEventV4Header header, BinlogParserContext context) {
+      //
+      final int type = header.getEventType();
+      if (this.skipping && type != MySQLConstants.HEARTBEAT_LOG_EVENT) {
+        final long next = header.getNextPosition();
+        if (next > this.position) {
+          this.skipping = false;
+        } else if (next > 0 && !isFollowed(type)) {
+          return false;
+        }
+      }
+
+      //
+      return this.eventFilter == null || this.eventFilter.accepts(header, context);
+    }
+
+    private boolean isFollowed(int type) {
+      switch (type) {
+        case MySQLConstants.TABLE_MAP_EVENT:
+        case MySQLConstants.GTID_LOG_EVENT:
+        case MySQLConstants.QUERY_EVENT:
+        case MySQLConstants.XID_EVENT:
+        case MySQLConstants.ROTATE_EVENT:
+        case MySQLConstants.FORMAT_DESCRIPTION_EVENT:
+          return true;
+        default:
+          return false;
+      }
+    }
+  }
+
+  /**
+   * Tracks the position of the events delivered and, when resuming, skips the ones delivered
+   * before, which the {@link DeliveredEventFilter} did not reject.
+   */
+  private final class Tracker implements BinlogEventListener {
+    //
+    private final BinlogEventListener eventListener;
+    private final TransactionBoundary transactions = new TransactionBoundary();
+    private boolean skipping;
+
+    /**
+		 * 
+		 */
+    public Tracker(BinlogEventListener eventListener, boolean resuming) {
+      this.eventListener = eventListener;
+      this.skipping = resuming;
+    }
+
+    /**
+		 * 
+		 */
+    public void onEvents(BinlogEventV4 event) {
+      // Heartbeats are not part of the binlog
+      if (event instanceof HeartbeatEvent) {
+        if (this.eventListener != null) this.eventListener.onEvents(event);
+        return;
+      }
+
+      // The fake rotate and format description events have no next position
+      final long next = event.getHeader().getNextPosition();
+      if (this.skipping) {
+        if (next <= deliveredPosition) {
+          this.transactions.update(event); // The start of the transaction resumed from
+          return;
+        }
+        this.skipping = false;
+      }
+
+      //
+      if (this.eventListener != null) this.eventListener.onEvents(event);
+
+      //
+      final boolean boundary = this.transactions.update(event);
+      if (event instanceof RotateEvent) {
+        final RotateEvent re = (RotateEvent) event;
+        deliveredFileName = re.getBinlogFileName().toString();
+        deliveredPosition = re.getBinlogPosition();
+      } else if (next > 0) {
+        deliveredPosition = next;
+      } else {
+        return;
+      }
+      if (boundary) {
+        transactionFileName = deliveredFileName;
+        transactionPosition = deliveredPosition;
+      }
+    }
   }
 }
@@ -0,0 +1,560 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.BinlogParser;
+import com.google.code.or.binlog.impl.AbstractBinlogParser;
+import com.google.code.or.binlog.impl.TransactionBoundary;
+import com.google.code.or.binlog.impl.event.HeartbeatEvent;
+import com.google.code.or.binlog.impl.event.RotateEvent;
+import com.google.code.or.common.glossary.BinlogPosition;
+import com.google.code.or.common.util.ToStringBuilder;
+import com.google.code.or.common.util.XThreadFactory;
+import com.google.code.or.net.impl.NioReactor;
+
+/**
+ * Runs many {@link OpenReplicator}s, one per source, over shared and bounded resources instead of
+ * a thread and a pair of stream buffers each:
+ * <ul>
+ * <li>the binlogs are received by the selector threads of one {@link NioReactor} into their direct
+ * buffers, and decoded by its pool of {@link #getDecoderThreads()} threads;</li>
+ * <li>the replicators are connected, which blocks until the binlog dump starts, by a pool of
+ * {@link #getSetupThreads()} threads;</li>
+ * <li>both pools run on virtual threads if {@link #isVirtualThreads()} and the runtime supports
+ * them.</li>
+ * </ul>
+ * A supervisor checks the sources every {@link #getSuperviseInterval()} milliseconds: it restarts
+ * the ones which stopped, after {@link #getRestartDelay()} milliseconds, from the end of the last
+ * transaction they delivered, it releases the event buffer of the ones idle for
+ * {@link #getIdleTimeout()} milliseconds and it measures their throughput.
+ */
+public class ReplicatorGroup {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReplicatorGroup.class);
+
+  //
+  private int selectorThreads = 1;
+  private int decoderThreads = Runtime.getRuntime().availableProcessors();
+  private int setupThreads = 8;
+  private boolean virtualThreads = false;
+  private long superviseInterval = 1000;
+  private long restartDelay = 5000;
+  private long idleTimeout = 60 * 1000;
+
+  //
+  private NioReactor reactor;
+  private ExecutorService setup;
+  private ScheduledExecutorService supervisor;
+  private final AtomicBoolean running = new AtomicBoolean(false);
+  private final ConcurrentMap<String, Source> sources = new ConcurrentHashMap<String, Source>();
+
+  /**
+	 * 
+	 */
+  public boolean isRunning() {
+    return this.running.get();
+  }
+
+  public void start() throws Exception {
+    //
+    if (!this.running.compareAndSet(false, true)) {
+      return;
+    }
+
+    //
+    this.reactor = new NioReactor();
+    this.reactor.setSelectorThreads(this.selectorThreads);
+    this.reactor.setDecoders(Executors.newFixedThreadPool(Math.max(1, this.decoderThreads),
+        newThreadFactory("replicator-decoder")));
+    this.reactor.start();
+    this.setup = Executors.newFixedThreadPool(Math.max(1, this.setupThreads),
+        newThreadFactory("replicator-setup"));
+
+    //
+    this.supervisor =
+        Executors.newSingleThreadScheduledExecutor(new XThreadFactory("replicator-group", true));
+    this.supervisor.scheduleWithFixedDelay(new Runnable() {
+      public void run() {
+        supervise();
+      }
+    }, this.superviseInterval, this.superviseInterval, TimeUnit.MILLISECONDS);
+
+    //
+    for (Source source : this.sources.values()) {
+      schedule(source, 0);
+    }
+  }
+
+  public void stop(long timeout, TimeUnit unit) throws Exception {
+    //
+    if (!this.running.compareAndSet(true, false)) {
+      return;
+    }
+
+    //
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    this.supervisor.shutdownNow();
+    this.setup.shutdownNow();
+    for (Source source : this.sources.values()) {
+      source.stop();
+    }
+    final ExecutorService decoders = this.reactor.getDecoders();
+    this.reactor.stop(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    decoders.shutdown();
+    decoders.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Adds a source, which is started right away if the group is running. The replicator is started
+   * with the reactor of the group, so its binlog event listener is called by the decoder threads.
+   * Its transport and parser are created on each start, it must not have custom ones.
+   */
+  public Source addSource(String name, OpenReplicator replicator) {
+    //
+    if (replicator.customTransport || replicator.customBinlogParser) {
+      throw new IllegalArgumentException("custom transport or parser, source: " + name);
+    }
+
+    //
+    final Source r = new Source(name, replicator);
+    if (this.sources.putIfAbsent(name, r) != null) {
+      throw new IllegalArgumentException("duplicate source: " + name);
+    }
+
+    //
+    if (isRunning()) schedule(r, 0);
+    return r;
+  }
+
+  /**
+   * Stops and removes the given source.
+   */
+  public Source removeSource(String name) {
+    final Source r = this.sources.remove(name);
+    if (r != null) r.stop();
+    return r;
+  }
+
+  public Source getSource(String name) {
+    return this.sources.get(name);
+  }
+
+  public List<Source> getSources() {
+    return new ArrayList<Source>(this.sources.values());
+  }
+
+  /**
+	 * 
+	 */
+  public int getRunningSources() {
+    int r = 0;
+    for (Source source : this.sources.values()) {
+      if (source.getState() == State.RUNNING) r++;
+    }
+    return r;
+  }
+
+  public long getEventCount() {
+    long r = 0;
+    for (Source source : this.sources.values()) r += source.getEventCount();
+    return r;
+  }
+
+  public long getByteCount() {
+    long r = 0;
+    for (Source source : this.sources.values()) r += source.getByteCount();
+    return r;
+  }
+
+  /**
+   * @return the events per second of all the sources over the last supervise interval
+   */
+  public double getEventRate() {
+    double r = 0;
+    for (Source source : this.sources.values()) r += source.getEventRate();
+    return r;
+  }
+
+  public double getByteRate() {
+    double r = 0;
+    for (Source source : this.sources.values()) r += source.getByteRate();
+    return r;
+  }
+
+  /**
+   * @return the largest lag of the running sources in milliseconds
+   */
+  public long getMaxLag() {
+    long r = 0;
+    for (Source source : this.sources.values()) {
+      if (source.getState() == State.RUNNING) r = Math.max(r, source.getLag());
+    }
+    return r;
+  }
+
+  /**
+	 * 
+	 */
+  public int getSelectorThreads() {
+    return selectorThreads;
+  }
+
+  public void setSelectorThreads(int selectorThreads) {
+    this.selectorThreads = selectorThreads;
+  }
+
+  public int getDecoderThreads() {
+    return decoderThreads;
+  }
+
+  public void setDecoderThreads(int decoderThreads) {
+    this.decoderThreads = decoderThreads;
+  }
+
+  public int getSetupThreads() {
+    return setupThreads;
+  }
+
+  public void setSetupThreads(int setupThreads) {
+    this.setupThreads = setupThreads;
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * @param virtualThreads whether to run the decoder and setup pools on virtual threads, if the
+   *        runtime supports them
+   */
+  public void setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  public long getSuperviseInterval() {
+    return superviseInterval;
+  }
+
+  public void setSuperviseInterval(long superviseInterval) {
+    this.superviseInterval = superviseInterval;
+  }
+
+  public long getRestartDelay() {
+    return restartDelay;
+  }
+
+  /**
+   * @param restartDelay in milliseconds, the sources which stopped are not restarted if negative
+   */
+  public void setRestartDelay(long restartDelay) {
+    this.restartDelay = restartDelay;
+  }
+
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  public void setIdleTimeout(long idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  public NioReactor getReactor() {
+    return reactor;
+  }
+
+  /**
+	 * 
+	 */
+  private void schedule(final Source source, long delay) {
+    source.state = State.STARTING;
+    this.supervisor.schedule(new Runnable() {
+      public void run() {
+        try {
+          setup.execute(new Runnable() {
+            public void run() {
+              source.start(reactor);
+            }
+          });
+        } catch (Exception e) {
+          source.state = State.STOPPED; // Shutting down
+        }
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+
+  private void supervise() {
+    final long now = System.currentTimeMillis();
+    for (Source source : this.sources.values()) {
+      try {
+        //
+        source.measure(now);
+
+        //
+        if (source.state == State.RUNNING && !source.replicator.isRunning()) {
+          LOGGER.warn("source stopped: {}", source);
+          source.state = State.FAILED;
+          source.stoppedAt = now;
+        } else if (source.state == State.RUNNING && now - source.lastEventTime > this.idleTimeout) {
+          final BinlogParser parser = source.replicator.getBinlogParser();
+          if (parser instanceof AbstractBinlogParser) ((AbstractBinlogParser) parser).trimBuffers();
+        }
+
+        //
+        if (source.state == State.FAILED && this.restartDelay >= 0
+            && now - source.stoppedAt >= this.restartDelay) {
+          source.restarts++;
+          schedule(source, 0);
+        }
+      } catch (Exception e) {
+        LOGGER.error("failed to supervise source: " + source, e);
+      }
+    }
+  }
+
+  private ThreadFactory newThreadFactory(String name) {
+    //
+    if (this.virtualThreads) {
+      try {
+        final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        final Class<?> c = Class.forName("java.lang.Thread$Builder");
+        c.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+        return (ThreadFactory) c.getMethod("factory").invoke(builder);
+      } catch (Exception e) {
+        LOGGER.info("virtual threads are not supported, falling back to platform threads");
+      }
+    }
+
+    //
+    return new XThreadFactory(name, true);
+  }
+
+  /**
+   * The state of a source.
+   */
+  public static enum State {
+    STOPPED, STARTING, RUNNING, FAILED
+  }
+
+  /**
+   * A replicator of the group, with its counters.
+   */
+  public static final class Source implements BinlogEventListener {
+    //
+    private final String name;
+    private final OpenReplicator replicator;
+    private final BinlogEventListener eventListener;
+    private final TransactionBoundary transactions = new TransactionBoundary();
+    private volatile State state = State.STOPPED;
+    private volatile Exception lastException;
+    private volatile int restarts;
+    private volatile long stoppedAt;
+
+    // Updated by one decoder thread at a time
+    private volatile long eventCount;
+    private volatile long byteCount;
+    private volatile long lastEventTime;
+    private volatile long lag;
+    private volatile String binlogFileName;
+    private volatile BinlogPosition position;
+
+    // Updated by the supervisor
+    private long measuredAt;
+    private long measuredEvents;
+    private long measuredBytes;
+    private volatile double eventRate;
+    private volatile double byteRate;
+
+    /**
+		 * 
+		 */
+    Source(String name, OpenReplicator replicator) {
+      this.name = name;
+      this.replicator = replicator;
+      this.eventListener = replicator.getBinlogEventListener();
+      this.binlogFileName = replicator.getBinlogFileName();
+    }
+
+    @Override
+    public String toString() {
+      return new ToStringBuilder(this).append("name", name).append("state", state)
+          .append("position", position).append("eventCount", eventCount)
+          .append("lag", lag).append("restarts", restarts).append("lastException", lastException)
+          .toString();
+    }
+
+    /**
+		 * 
+		 */
+    public String getName() {
+      return name;
+    }
+
+    public OpenReplicator getReplicator() {
+      return replicator;
+    }
+
+    public State getState() {
+      return state;
+    }
+
+    public Exception getLastException() {
+      return lastException;
+    }
+
+    public int getRestarts() {
+      return restarts;
+    }
+
+    public long getEventCount() {
+      return eventCount;
+    }
+
+    /**
+     * @return the total length in the binlog of the events received
+     */
+    public long getByteCount() {
+      return byteCount;
+    }
+
+    public double getEventRate() {
+      return eventRate;
+    }
+
+    public double getByteRate() {
+      return byteRate;
+    }
+
+    /**
+     * @return the milliseconds between the timestamp of the last event received and its receipt
+     */
+    public long getLag() {
+      return lag;
+    }
+
+    public long getLastEventTime() {
+      return lastEventTime;
+    }
+
+    /**
+     * @return the position after the last transaction delivered, where a restart resumes from, or
+     *         null if none was yet
+     */
+    public BinlogPosition getPosition() {
+      return position;
+    }
+
+    /**
+		 * 
+		 */
+    public void onEvents(BinlogEventV4 event) {
+      // Caught up, and still idle
+      if (event instanceof HeartbeatEvent) {
+        this.lag = 0;
+        if (this.eventListener != null) this.eventListener.onEvents(event);
+        return;
+      }
+
+      //
+      final long now = System.currentTimeMillis();
+      this.eventCount++;
+      this.byteCount += event.getHeader().getEventLength();
+      this.lastEventTime = now;
+      if (event.getHeader().getTimestamp() > 0) {
+        this.lag = Math.max(0, now - event.getHeader().getTimestamp());
+      }
+
+      //
+      if (this.eventListener != null) this.eventListener.onEvents(event);
+
+      // Transaction boundaries, once delivered
+      final boolean boundary = this.transactions.update(event);
+      final long next = event.getHeader().getNextPosition();
+      if (event instanceof RotateEvent) {
+        final RotateEvent re = (RotateEvent) event;
+        this.binlogFileName = re.getBinlogFileName().toString();
+        if (boundary) this.position = new BinlogPosition(this.binlogFileName, re.getBinlogPosition());
+      } else if (boundary && next > 0) {
+        this.position = new BinlogPosition(this.binlogFileName, next);
+      }
+    }
+
+    /**
+		 * 
+		 */
+    private void start(NioReactor reactor) {
+      //
+      if (this.state != State.STARTING) {
+        return;
+      }
+
+      //
+      try {
+        final BinlogPosition p = this.position;
+        if (p != null) {
+          this.replicator.setBinlogFileName(p.getBinlogFileName());
+          this.replicator.setBinlogPosition(p.getPosition());
+        }
+        this.transactions.reset();
+        this.replicator.setReactor(reactor);
+        this.replicator.setBinlogEventListener(this);
+        this.replicator.start();
+        this.lastEventTime = System.currentTimeMillis();
+        this.state = State.RUNNING;
+      } catch (Exception e) {
+        LOGGER.error("failed to start source: " + this.name, e);
+        this.lastException = e;
+        this.replicator.stopQuietly(0, TimeUnit.MILLISECONDS);
+        this.stoppedAt = System.currentTimeMillis();
+        this.state = State.FAILED;
+      }
+    }
+
+    private void stop() {
+      this.state = State.STOPPED;
+      this.replicator.stopQuietly(0, TimeUnit.MILLISECONDS);
+    }
+
+    private void measure(long now) {
+      //
+      final long events = this.eventCount, bytes = this.byteCount;
+      if (this.measuredAt > 0 && now > this.measuredAt) {
+        final double seconds = (now - this.measuredAt) / 1000.0;
+        this.eventRate = (events - this.measuredEvents) / seconds;
+        this.byteRate = (bytes - this.measuredBytes) / seconds;
+      }
+
+      //
+      this.measuredAt = now;
+      this.measuredEvents = events;
+      this.measuredBytes = bytes;
+    }
+  }
+}
@@ -16,12 +16,15 @@ package com.google.code.or.binlog;
 
 import com.google.code.or.binlog.ext.XChecksum;
 import com.google.code.or.binlog.impl.FileBasedBinlogParser;
+import com.google.code.or.binlog.impl.MultiFileBinlogParser;
+import com.google.code.or.binlog.impl.NioBinlogParser;
+import com.google.code.or.binlog.impl.PipelinedBinlogParser;
 import com.google.code.or.binlog.impl.ReplicationBasedBinlogParser;
-import com.google.code.or.binlog.impl.ext.FileBasedBinlogParserExt;
-import com.google.code.or.binlog.impl.ext.ReplicationBasedBinlogParserExt;
 import com.google.code.or.binlog.impl.parser.DeleteRowsEventParser;
 import com.google.code.or.binlog.impl.parser.DeleteRowsEventV2Parser;
 import com.google.code.or.binlog.impl.parser.FormatDescriptionEventParser;
+import com.google.code.or.binlog.impl.parser.GtidEventParser;
+import com.google.code.or.binlog.impl.parser.HeartbeatEventParser;
 import com.google.code.or.binlog.impl.parser.IncidentEventParser;
 import com.google.code.or.binlog.impl.parser.IntvarEventParser;
 import com.google.code.or.binlog.impl.parser.QueryEventParser;
@@ -35,23 +38,8 @@ import com.google.code.or.binlog.impl.parser.UserVarEventParser;
 import com.google.code.or.binlog.impl.parser.WriteRowsEventParser;
 import com.google.code.or.binlog.impl.parser.WriteRowsEventV2Parser;
 import com.google.code.or.binlog.impl.parser.XidEventParser;
-import com.google.code.or.binlog.impl.parser.ext.DeleteRowsEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.DeleteRowsEventV2ParserExt;
-import com.google.code.or.binlog.impl.parser.ext.FormatDescriptionEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.IncidentEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.IntvarEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.QueryEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.RandEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.RotateEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.StopEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.TableMapEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.UpdateRowsEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.UpdateRowsEventV2ParserExt;
-import com.google.code.or.binlog.impl.parser.ext.UserVarEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.WriteRowsEventParserExt;
-import com.google.code.or.binlog.impl.parser.ext.WriteRowsEventV2ParserExt;
-import com.google.code.or.binlog.impl.parser.ext.XidEventParserExt;
 import com.google.code.or.net.Transport;
+import com.google.code.or.net.impl.NioTransport;
 
 /**
  * @author baomingfeng
@@ -79,32 +67,65 @@ public class BinlogParserFactory {
     r.registgerEventParser(new UpdateRowsEventV2Parser());
     r.registgerEventParser(new DeleteRowsEventV2Parser());
     r.registgerEventParser(new FormatDescriptionEventParser());
+    r.registgerEventParser(new HeartbeatEventParser());
+    r.registgerEventParser(new GtidEventParser());
     //
     r.setTransport(transport);
     r.setBinlogFileName(binlogFileName);
     return r;
   }
 
-  public static ReplicationBasedBinlogParserExt createReplicationBinlogParserExt(
-      Transport transport, String binlogFileName, XChecksum checksum) {
+  public static PipelinedBinlogParser createPipelinedBinlogParser(Transport transport,
+      String binlogFileName, XChecksum checksum) {
     //
-    final ReplicationBasedBinlogParserExt r = new ReplicationBasedBinlogParserExt();
-    r.registgerEventParser(new StopEventParserExt(checksum));
-    r.registgerEventParser(new RotateEventParserExt(checksum));
-    r.registgerEventParser(new IntvarEventParserExt(checksum));
-    r.registgerEventParser(new XidEventParserExt(checksum));
-    r.registgerEventParser(new RandEventParserExt(checksum));
-    r.registgerEventParser(new QueryEventParserExt(checksum));
-    r.registgerEventParser(new UserVarEventParserExt(checksum));
-    r.registgerEventParser(new IncidentEventParserExt(checksum));
-    r.registgerEventParser(new TableMapEventParserExt(checksum));
-    r.registgerEventParser(new WriteRowsEventParserExt(checksum));
-    r.registgerEventParser(new UpdateRowsEventParserExt(checksum));
-    r.registgerEventParser(new DeleteRowsEventParserExt(checksum));
-    r.registgerEventParser(new WriteRowsEventV2ParserExt(checksum));
-    r.registgerEventParser(new UpdateRowsEventV2ParserExt(checksum));
-    r.registgerEventParser(new DeleteRowsEventV2ParserExt(checksum));
-    r.registgerEventParser(new FormatDescriptionEventParserExt(checksum));
+    final PipelinedBinlogParser r = new PipelinedBinlogParser();
+    r.registgerEventParser(new StopEventParser());
+    r.registgerEventParser(new RotateEventParser());
+    r.registgerEventParser(new IntvarEventParser());
+    r.registgerEventParser(new XidEventParser());
+    r.registgerEventParser(new RandEventParser());
+    r.registgerEventParser(new QueryEventParser());
+    r.registgerEventParser(new UserVarEventParser());
+    r.registgerEventParser(new IncidentEventParser());
+    r.registgerEventParser(new TableMapEventParser());
+    r.registgerEventParser(new WriteRowsEventParser());
+    r.registgerEventParser(new UpdateRowsEventParser());
+    r.registgerEventParser(new DeleteRowsEventParser());
+    r.registgerEventParser(new WriteRowsEventV2Parser());
+    r.registgerEventParser(new UpdateRowsEventV2Parser());
+    r.registgerEventParser(new DeleteRowsEventV2Parser());
+    r.registgerEventParser(new FormatDescriptionEventParser());
+    r.registgerEventParser(new HeartbeatEventParser());
+    r.registgerEventParser(new GtidEventParser());
+    //
+    r.setTransport(transport);
+    r.setBinlogFileName(binlogFileName);
+    r.setChecksum(checksum);
+    return r;
+  }
+
+  public static NioBinlogParser createNioBinlogParser(NioTransport transport,
+      String binlogFileName, XChecksum checksum) {
+    //
+    final NioBinlogParser r = new NioBinlogParser();
+    r.registgerEventParser(new StopEventParser());
+    r.registgerEventParser(new RotateEventParser());
+    r.registgerEventParser(new IntvarEventParser());
+    r.registgerEventParser(new XidEventParser());
+    r.registgerEventParser(new RandEventParser());
+    r.registgerEventParser(new QueryEventParser());
+    r.registgerEventParser(new UserVarEventParser());
+    r.registgerEventParser(new IncidentEventParser());
+    r.registgerEventParser(new TableMapEventParser());
+    r.registgerEventParser(new WriteRowsEventParser());
+    r.registgerEventParser(new UpdateRowsEventParser());
+    r.registgerEventParser(new DeleteRowsEventParser());
+    r.registgerEventParser(new WriteRowsEventV2Parser());
+    r.registgerEventParser(new UpdateRowsEventV2Parser());
+    r.registgerEventParser(new DeleteRowsEventV2Parser());
+    r.registgerEventParser(new FormatDescriptionEventParser());
+    r.registgerEventParser(new HeartbeatEventParser());
+    r.registgerEventParser(new GtidEventParser());
     //
     r.setTransport(transport);
     r.setBinlogFileName(binlogFileName);
@@ -132,6 +153,8 @@ public class BinlogParserFactory {
     r.registgerEventParser(new UpdateRowsEventV2Parser());
     r.registgerEventParser(new DeleteRowsEventV2Parser());
     r.registgerEventParser(new FormatDescriptionEventParser());
+    r.registgerEventParser(new HeartbeatEventParser());
+    r.registgerEventParser(new GtidEventParser());
     //
     r.setStopPosition(stopPosition);
     r.setStartPosition(startPosition);
@@ -140,32 +163,15 @@ public class BinlogParserFactory {
     return r;
   }
 
-  // XXX
-  public static FileBasedBinlogParserExt createFileBinlogParserExt(long startPosition,
+  public static MultiFileBinlogParser createMultiFileBinlogParser(long startPosition,
       long stopPosition, String binlogFileName, String binlogFilePath, XChecksum checksum) {
     //
-    final FileBasedBinlogParserExt r = new FileBasedBinlogParserExt();
-    r.registgerEventParser(new StopEventParserExt(checksum));
-    r.registgerEventParser(new RotateEventParserExt(checksum));
-    r.registgerEventParser(new IntvarEventParserExt(checksum));
-    r.registgerEventParser(new XidEventParserExt(checksum));
-    r.registgerEventParser(new RandEventParserExt(checksum));
-    r.registgerEventParser(new QueryEventParserExt(checksum));
-    r.registgerEventParser(new UserVarEventParserExt(checksum));
-    r.registgerEventParser(new IncidentEventParserExt(checksum));
-    r.registgerEventParser(new TableMapEventParserExt(checksum));
-    r.registgerEventParser(new WriteRowsEventParserExt(checksum));
-    r.registgerEventParser(new UpdateRowsEventParserExt(checksum));
-    r.registgerEventParser(new DeleteRowsEventParserExt(checksum));
-    r.registgerEventParser(new WriteRowsEventV2ParserExt(checksum));
-    r.registgerEventParser(new UpdateRowsEventV2ParserExt(checksum));
-    r.registgerEventParser(new DeleteRowsEventV2ParserExt(checksum));
-    r.registgerEventParser(new FormatDescriptionEventParserExt(checksum));
-    //
+    final MultiFileBinlogParser r = new MultiFileBinlogParser();
     r.setStopPosition(stopPosition);
     r.setStartPosition(startPosition);
     r.setBinlogFileName(binlogFileName);
     r.setBinlogFilePath(binlogFilePath);
+    if (checksum != null) r.setChecksum(checksum);
     return r;
   }
 }
@@ -0,0 +1,32 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog;
+
+import com.google.code.or.binlog.impl.event.AbstractRowEvent;
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+import com.google.code.or.common.glossary.RowView;
+
+/**
+ * Receives the rows of rows events as reusable {@link RowView}s instead of materialized
+ * {@link com.google.code.or.common.glossary.Row}s. The views are only valid during the callback.
+ */
+public interface BinlogRowViewListener {
+
+  /**
+   * @param before the row image before the change, null for write rows events
+   * @param after the row image after the change, null for delete rows events
+   */
+  void onRowView(AbstractRowEvent event, TableMapEvent tme, RowView before, RowView after);
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog;
+
+import java.util.List;
+
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+
+/**
+ * Keeps the last table map event of each table id for the rows events that refer to it. The table
+ * maps are put by the thread parsing the binlog, and may be read concurrently by other threads.
+ */
+public interface BinlogTableMapStore {
+
+  TableMapEvent get(long tableId);
+
+  void put(TableMapEvent event);
+
+  /**
+   * @return the removed table map event, or null if there was none for the given table id
+   */
+  TableMapEvent remove(long tableId);
+
+  void clear();
+
+  int size();
+
+  /**
+   * @return a snapshot of the table map events, in no particular order
+   */
+  List<TableMapEvent> values();
+}
@@ -12,33 +12,19 @@
  * or implied. See the License for the specific language governing permissions and limitations under
  * the License.
  */
-package com.google.code.or.binlog.impl.parser.ext;
+package com.google.code.or.binlog;
 
-import com.google.code.or.binlog.BinlogEventParser;
-import com.google.code.or.binlog.ext.XChecksum;
+import com.google.code.or.binlog.impl.Transaction;
 
 /**
- * 
- * @author Arbore
+ * Receives whole transactions from a {@link com.google.code.or.binlog.impl.TransactionAssembler},
+ * in commit order.
  */
-public abstract class AbstractBinlogEventParserExt implements BinlogEventParser {
-  //
-  protected final int eventType;
-
-  protected final XChecksum checksum;
-
-  /**
-	 * 
-	 */
-  public AbstractBinlogEventParserExt(int eventType, XChecksum checksum) {
-    this.eventType = eventType;
-    this.checksum = checksum;
-  }
+public interface BinlogTransactionListener {
 
   /**
-	 * 
-	 */
-  public final int getEventType() {
-    return eventType;
-  }
+   * The events of a transaction spilled to disk can only be iterated during the callback, its
+   * spill file is deleted right after.
+   */
+  void onTransaction(Transaction transaction);
 }
@@ -0,0 +1,48 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog;
+
+import java.io.IOException;
+
+import com.google.code.or.common.glossary.BinlogPosition;
+
+/**
+ * Keeps the position up to which the binlog was processed, for replication to resume from it. The
+ * positions are updated once per transaction and may be made durable in batches, so a restart may
+ * process again the transactions after the last durable position.
+ */
+public interface CheckpointStore {
+
+  /**
+   * @return the last position updated, or the last one stored if none was since the store was
+   *         opened, or null if none was ever stored
+   */
+  BinlogPosition load() throws IOException;
+
+  /**
+   * Records the given position, which may not be durable until the next {@link #flush()}.
+   */
+  void update(BinlogPosition position);
+
+  /**
+   * Makes the last position updated durable.
+   */
+  void flush() throws IOException;
+
+  /**
+   * Flushes the store and releases its resources.
+   */
+  void close() throws IOException;
+}
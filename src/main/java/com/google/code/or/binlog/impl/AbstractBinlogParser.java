@@ -15,9 +15,7 @@
 package com.google.code.or.binlog.impl;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -30,13 +28,27 @@ import com.google.code.or.binlog.BinlogEventFilter;
 import com.google.code.or.binlog.BinlogEventListener;
 import com.google.code.or.binlog.BinlogEventParser;
 import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.BinlogEventV4Header;
 import com.google.code.or.binlog.BinlogParser;
 import com.google.code.or.binlog.BinlogParserContext;
 import com.google.code.or.binlog.BinlogParserListener;
+import com.google.code.or.binlog.BinlogRowEventFilter;
+import com.google.code.or.binlog.BinlogRowListener;
+import com.google.code.or.binlog.BinlogRowViewListener;
+import com.google.code.or.binlog.BinlogTableMapStore;
+import com.google.code.or.binlog.ext.XChecksum;
+import com.google.code.or.binlog.ext.XChecksum.ChecksumType;
+import com.google.code.or.binlog.ext.XChecksumCRC32Impl;
+import com.google.code.or.binlog.impl.event.BinlogEventV4HeaderImpl;
 import com.google.code.or.binlog.impl.event.RotateEvent;
 import com.google.code.or.binlog.impl.event.TableMapEvent;
+import com.google.code.or.binlog.impl.filter.ColumnProjection;
+import com.google.code.or.binlog.impl.parser.AbstractRowEventParser;
 import com.google.code.or.binlog.impl.parser.NopEventParser;
+import com.google.code.or.common.util.MySQLConstants;
 import com.google.code.or.common.util.XThreadFactory;
+import com.google.code.or.io.XInputStream;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 
 /**
  * 
@@ -46,17 +58,26 @@ public abstract class AbstractBinlogParser implements BinlogParser {
   //
   private static final Logger LOGGER = LoggerFactory.getLogger(AbstractBinlogParser.class);
 
+  //
+  protected static final int HEADER_LENGTH = 19;
+  protected static final int CHECKSUM_LENGTH = 4;
+
   //
   protected Thread worker;
   protected ThreadFactory threadFactory;
   protected BinlogEventFilter eventFilter;
   protected BinlogEventListener eventListener;
   protected boolean clearTableMapEventsOnRotate = true;
+  protected BinlogTableMapStore tableMapStore;
   protected final List<BinlogParserListener> parserListeners;
   protected final AtomicBoolean verbose = new AtomicBoolean(false);
   protected final AtomicBoolean running = new AtomicBoolean(false);
   protected final BinlogEventParser defaultParser = new NopEventParser();
   protected final BinlogEventParser[] parsers = new BinlogEventParser[128];
+  protected XChecksum checksum;
+  private XChecksum formatChecksum;
+  private byte[] eventBody = new byte[0];
+  private final byte[] eventHeader = new byte[HEADER_LENGTH];
 
   //
   protected abstract void doParse() throws Exception;
@@ -111,7 +132,7 @@ public abstract class AbstractBinlogParser implements BinlogParser {
       timeout -= unit.convert(System.nanoTime() - now, TimeUnit.NANOSECONDS);
 
       //
-      if (timeout > 0) {
+      if (timeout > 0 && this.worker != null) {
         unit.timedJoin(this.worker, timeout);
         this.worker = null;
       }
@@ -120,6 +141,19 @@ public abstract class AbstractBinlogParser implements BinlogParser {
     }
   }
 
+  /**
+   * Waits for the threads delivering the events to exit once stopped, for example before another
+   * parser delivers events to the same listener.
+   *
+   * @return false if they are still running after the given timeout
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    final Thread t = this.worker;
+    if (t == null || t == Thread.currentThread()) return true;
+    unit.timedJoin(t, timeout);
+    return !t.isAlive();
+  }
+
   /**
 	 * 
 	 */
@@ -155,6 +189,18 @@ public abstract class AbstractBinlogParser implements BinlogParser {
     this.eventListener = listener;
   }
 
+  public XChecksum getChecksum() {
+    return checksum;
+  }
+
+  /**
+   * Forces the checksum of the events, by default it is picked from the checksum algorithm of the
+   * last format description event.
+   */
+  public void setChecksum(XChecksum checksum) {
+    this.checksum = checksum;
+  }
+
   public boolean isClearTableMapEventsOnRotate() {
     return clearTableMapEventsOnRotate;
   }
@@ -163,6 +209,18 @@ public abstract class AbstractBinlogParser implements BinlogParser {
     this.clearTableMapEventsOnRotate = clearTableMapEventsOnRotate;
   }
 
+  public BinlogTableMapStore getTableMapStore() {
+    return tableMapStore;
+  }
+
+  /**
+   * Sets the store of the table maps, by default each parse keeps them in an unbounded
+   * {@link TableMapCache}.
+   */
+  public void setTableMapStore(BinlogTableMapStore store) {
+    this.tableMapStore = store;
+  }
+
   /**
 	 * 
 	 */
@@ -193,6 +251,217 @@ public abstract class AbstractBinlogParser implements BinlogParser {
     }
   }
 
+  /**
+   * Switches the registered rows event parsers to {@link com.google.code.or.common.glossary.RowView}
+   * decoding, or back to materialized rows if the listener is null.
+   */
+  public void setRowViewListener(BinlogRowViewListener listener) {
+    for (BinlogEventParser parser : this.parsers) {
+      if (parser instanceof AbstractRowEventParser) {
+        ((AbstractRowEventParser) parser).setRowViewListener(listener);
+      }
+    }
+  }
+
+  /**
+   * Switches the registered rows event parsers to streaming their rows to the given listener as
+   * they are decoded, or back to materialized rows if the listener is null.
+   */
+  public void setRowListener(BinlogRowListener listener) {
+    for (BinlogEventParser parser : this.parsers) {
+      if (parser instanceof AbstractRowEventParser) {
+        ((AbstractRowEventParser) parser).setRowListener(listener);
+      }
+    }
+  }
+
+  /**
+   * Sets the table filter of the registered rows event parsers, rows events of rejected tables are
+   * skipped right after their table id.
+   */
+  public void setRowEventFilter(BinlogRowEventFilter filter) {
+    for (BinlogEventParser parser : this.parsers) {
+      if (parser instanceof AbstractRowEventParser) {
+        ((AbstractRowEventParser) parser).setRowEventFilter(filter);
+      }
+    }
+  }
+
+  /**
+   * Sets the columns the registered rows event parsers decode per table, or all of them if the
+   * projection is null.
+   */
+  public void setColumnProjection(ColumnProjection projection) {
+    for (BinlogEventParser parser : this.parsers) {
+      if (parser instanceof AbstractRowEventParser) {
+        ((AbstractRowEventParser) parser).setColumnProjection(projection);
+      }
+    }
+  }
+
+  /**
+   * Releases the buffer holding the bodies of events with checksum, which otherwise keeps the size
+   * of the largest event so far, for example while the parser is idle.
+   */
+  public void trimBuffers() {
+    this.eventBody = new byte[0];
+  }
+
+  /**
+   * Skips the body of an event rejected by the event filter, including its checksum if any, the
+   * body is never looked into.
+   */
+  protected void skipEvent(XInputStream is, BinlogEventV4Header header) throws Exception {
+    is.skip(header.getEventLength() - header.getHeaderLength());
+  }
+
+  /**
+   * @return the checksum of the events to come, or null if they have none
+   */
+  protected XChecksum getEventChecksum() {
+    final XChecksum r = this.checksum != null ? this.checksum : this.formatChecksum;
+    return r == null || r.getType() == ChecksumType.NONE ? null : r;
+  }
+
+  /**
+   * Picks the checksum of the events to come from the body of a format description event. As of
+   * MySQL 5.6.1 its post header lengths are followed by the checksum algorithm of the binlog and
+   * by its own checksum, whatever the algorithm.
+   * 
+   * @return the length of the body without its checksum
+   */
+  protected int onFormatDescription(byte[] body, int offset, int length) {
+    // Binlog version, server version, create timestamp and header length take 57 bytes
+    if (length < 57 + 1 + CHECKSUM_LENGTH || !isChecksumAware(body, offset + 2)) {
+      this.formatChecksum = null;
+      return length;
+    }
+
+    //
+    final int r = length - CHECKSUM_LENGTH;
+    final int algorithm = body[offset + r - 1] & 0xFF;
+    if (algorithm != MySQLConstants.BINLOG_CHECKSUM_ALG_CRC32) {
+      this.formatChecksum = null;
+    } else if (this.formatChecksum == null) {
+      this.formatChecksum = new XChecksumCRC32Impl();
+    }
+    return r;
+  }
+
+  /**
+   * Reads the header of an event, it is kept for the checksum verification of the body.
+   */
+  protected BinlogEventV4HeaderImpl parseEventHeader(XInputStream is) throws Exception {
+    final byte[] b = this.eventHeader;
+    is.read(b, 0, HEADER_LENGTH);
+    final BinlogEventV4HeaderImpl r = new BinlogEventV4HeaderImpl();
+    r.setTimestamp(readLong(b, 0, 4) * 1000L);
+    r.setEventType((int) readLong(b, 4, 1));
+    r.setServerId(readLong(b, 5, 4));
+    r.setEventLength(readLong(b, 9, 4));
+    r.setNextPosition(readLong(b, 13, 4));
+    r.setFlags((int) readLong(b, 17, 2));
+    r.setTimestampOfReceipt(System.currentTimeMillis());
+    return r;
+  }
+
+  /**
+   * Parses the body of an event read by {@link #parseEventHeader(XInputStream)}. Without checksum
+   * the body is parsed straight from the stream, otherwise it is buffered and its checksum is
+   * verified with one bulk update before it is parsed.
+   */
+  protected void parseEventBody(XInputStream is, BinlogEventV4Header header,
+      BinlogParserContext context) throws Exception {
+    //
+    final boolean fde = header.getEventType() == MySQLConstants.FORMAT_DESCRIPTION_EVENT;
+    final boolean accepted = this.eventFilter == null || this.eventFilter.accepts(header, context);
+    if (!accepted && !fde) {
+      skipEvent(is, header);
+      return;
+    }
+
+    //
+    BinlogEventParser parser = getEventParser(header.getEventType());
+    if (parser == null) parser = this.defaultParser;
+    if (!fde && getEventChecksum() == null) {
+      parser.parse(is, header, context);
+      return;
+    }
+
+    // The format description event is always read to pick the checksum
+    final XInputStream body = readEventBody(is, header);
+    if (!accepted) return;
+    parser.parse(body, header, context);
+    if (body.available() != 0) {
+      throw new RuntimeException("assertion failed, available: " + body.available()
+          + ", event type: " + header.getEventType());
+    }
+  }
+
+  /**
+   * @return a stream over the buffered body without its checksum
+   */
+  private XInputStream readEventBody(XInputStream is, BinlogEventV4Header header)
+      throws Exception {
+    //
+    final int length = (int) (header.getEventLength() - header.getHeaderLength());
+    byte[] b = this.eventBody; // Read once, see trimBuffers()
+    if (b.length < length) {
+      b = new byte[Math.max(length, b.length << 1)];
+      this.eventBody = b;
+    }
+    is.read(b, 0, length);
+
+    //
+    int size = length;
+    if (header.getEventType() == MySQLConstants.FORMAT_DESCRIPTION_EVENT) {
+      size = onFormatDescription(b, 0, length);
+    } else {
+      size -= CHECKSUM_LENGTH;
+    }
+    final XChecksum checksum = getEventChecksum();
+    if (checksum != null && size < length) {
+      checksum.reset();
+      checksum.update(this.eventHeader, 0, HEADER_LENGTH);
+      checksum.update(b, 0, size);
+      checksum.validateAndReset((int) readLong(b, size, CHECKSUM_LENGTH));
+    }
+
+    //
+    final XInputStream r = new ByteArrayXInputStream(b, 0, size);
+    if (size > 0) r.setReadLimit(size);
+    return r;
+  }
+
+  /**
+   * @return the little-endian unsigned value of the given bytes
+   */
+  protected static long readLong(byte[] data, int offset, int length) {
+    long r = 0;
+    for (int i = length - 1; i >= 0; i--) {
+      r = (r << 8) | (data[offset + i] & 0xFF);
+    }
+    return r;
+  }
+
+  /**
+   * @return true if the NUL padded server version at the given offset is 5.6.1 or later
+   */
+  public static boolean isChecksumAware(byte[] data, int offset) {
+    final int[] v = new int[3];
+    for (int i = 0, j = 0; i < 50 && j < v.length; i++) {
+      final int c = data[offset + i];
+      if (c >= '0' && c <= '9') {
+        v[j] = v[j] * 10 + c - '0';
+      } else if (c == '.') {
+        j++;
+      } else {
+        break;
+      }
+    }
+    return v[0] > 5 || (v[0] == 5 && (v[1] > 6 || (v[1] == 6 && v[2] >= 1)));
+  }
+
   /**
 	 * 
 	 */
@@ -216,19 +485,19 @@ public abstract class AbstractBinlogParser implements BinlogParser {
   /**
 	 * 
 	 */
-  private void notifyOnStart() {
+  protected void notifyOnStart() {
     for (BinlogParserListener listener : this.parserListeners) {
       listener.onStart(this);
     }
   }
 
-  private void notifyOnStop() {
+  protected void notifyOnStop() {
     for (BinlogParserListener listener : this.parserListeners) {
       listener.onStop(this);
     }
   }
 
-  private void notifyOnException(Exception exception) {
+  protected void notifyOnException(Exception exception) {
     for (BinlogParserListener listener : this.parserListeners) {
       listener.onException(this, exception);
     }
@@ -258,15 +527,22 @@ public abstract class AbstractBinlogParser implements BinlogParser {
   protected class Context implements BinlogParserContext, BinlogEventListener {
     //
     private String binlogFileName;
-    private final Map<Long, TableMapEvent> tableMapEvents = new HashMap<Long, TableMapEvent>();
+    private final BinlogTableMapStore tableMapEvents;
 
     /**
 		 * 
 		 */
-    public Context() {}
+    public Context() {
+      this(null);
+    }
 
     public Context(String binlogFileName) {
+      this(binlogFileName, tableMapStore != null ? tableMapStore : new TableMapCache());
+    }
+
+    public Context(String binlogFileName, BinlogTableMapStore tableMapEvents) {
       this.binlogFileName = binlogFileName;
+      this.tableMapEvents = tableMapEvents;
     }
 
     /**
@@ -300,7 +576,7 @@ public abstract class AbstractBinlogParser implements BinlogParser {
       //
       if (event instanceof TableMapEvent) {
         final TableMapEvent tme = (TableMapEvent) event;
-        this.tableMapEvents.put(tme.getTableId(), tme);
+        this.tableMapEvents.put(tme);
       } else if (event instanceof RotateEvent) {
         final RotateEvent re = (RotateEvent) event;
         this.binlogFileName = re.getBinlogFileName().toString();
@@ -1,7 +1,10 @@
 package com.google.code.or.binlog.impl;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,12 +14,15 @@ import com.google.code.or.binlog.BinlogEventParser;
 import com.google.code.or.binlog.BinlogEventV4;
 import com.google.code.or.binlog.BinlogParserContext;
 import com.google.code.or.binlog.BinlogSimpleParser;
+import com.google.code.or.binlog.BinlogTableMapStore;
 import com.google.code.or.binlog.impl.event.BinlogEventV4HeaderImpl;
 import com.google.code.or.binlog.impl.event.RotateEvent;
 import com.google.code.or.binlog.impl.event.TableMapEvent;
 import com.google.code.or.binlog.impl.parser.DeleteRowsEventParser;
 import com.google.code.or.binlog.impl.parser.DeleteRowsEventV2Parser;
 import com.google.code.or.binlog.impl.parser.FormatDescriptionEventParser;
+import com.google.code.or.binlog.impl.parser.GtidEventParser;
+import com.google.code.or.binlog.impl.parser.HeartbeatEventParser;
 import com.google.code.or.binlog.impl.parser.IncidentEventParser;
 import com.google.code.or.binlog.impl.parser.IntvarEventParser;
 import com.google.code.or.binlog.impl.parser.NopEventParser;
@@ -39,7 +45,7 @@ public class BinlogSimpleParserImpl implements BinlogSimpleParser, BinlogEventLi
 	private final BinlogEventParser defaultParser;
 	private final BinlogEventParser[] parsers;
 	
-	private final Map<Long, TableMapEvent> tableMapEvents;
+	private BinlogTableMapStore tableMapEvents;
 	private String binlogFileName;
 	private BinlogEventV4 parsedEvent;
 	
@@ -48,7 +54,7 @@ public class BinlogSimpleParserImpl implements BinlogSimpleParser, BinlogEventLi
 	public BinlogSimpleParserImpl() {
 		this.defaultParser = new NopEventParser();
 		this.parsers = new BinlogEventParser[128];
-		this.tableMapEvents = new HashMap<Long, TableMapEvent>();
+		this.tableMapEvents = new TableMapCache();
 		this.clearTableMapOnRotate = true;
 		
 	    this.registgerEventParser(new StopEventParser());
@@ -67,6 +73,8 @@ public class BinlogSimpleParserImpl implements BinlogSimpleParser, BinlogEventLi
 	    this.registgerEventParser(new UpdateRowsEventV2Parser());
 	    this.registgerEventParser(new DeleteRowsEventV2Parser());
 	    this.registgerEventParser(new FormatDescriptionEventParser());
+	    this.registgerEventParser(new HeartbeatEventParser());
+	    this.registgerEventParser(new GtidEventParser());
 	}
 	
 	@Override
@@ -96,9 +104,111 @@ public class BinlogSimpleParserImpl implements BinlogSimpleParser, BinlogEventLi
 		}
 	}
 
-	public Map<Long, TableMapEvent> getTableMapEvents() {
+	public BinlogTableMapStore getTableMapStore() {
 		return tableMapEvents;
 	}
+	public void setTableMapStore(BinlogTableMapStore store) {
+		this.tableMapEvents = store;
+	}
+
+	/**
+	 * @deprecated use {@link #getTableMapStore()}, the returned map is a view of the store whose
+	 *             iterators go over a snapshot of its table maps
+	 */
+	@Deprecated
+	public Map<Long, TableMapEvent> getTableMapEvents() {
+		final BinlogTableMapStore store = this.tableMapEvents;
+		return new AbstractMap<Long, TableMapEvent>() {
+			@Override
+			public TableMapEvent get(Object key) {
+				return key instanceof Long ? store.get((Long) key) : null;
+			}
+			@Override
+			public boolean containsKey(Object key) {
+				return get(key) != null;
+			}
+			@Override
+			public TableMapEvent put(Long key, TableMapEvent value) {
+				if (key.longValue() != value.getTableId()) {
+					throw new IllegalArgumentException("invalid table id: " + key + ", event: " + value);
+				}
+				final TableMapEvent r = store.get(key);
+				store.put(value);
+				return r;
+			}
+			@Override
+			public TableMapEvent remove(Object key) {
+				return key instanceof Long ? store.remove((Long) key) : null;
+			}
+			@Override
+			public void clear() {
+				store.clear();
+			}
+			@Override
+			public int size() {
+				return store.size();
+			}
+			@Override
+			public String toString() {
+				return store.toString();
+			}
+			@Override
+			public Set<Map.Entry<Long, TableMapEvent>> entrySet() {
+				return new TableMapEntrySet(this, store);
+			}
+		};
+	}
+
+	private static final class TableMapEntrySet extends AbstractSet<Map.Entry<Long, TableMapEvent>> {
+		private final Map<Long, TableMapEvent> map;
+		private final BinlogTableMapStore store;
+
+		public TableMapEntrySet(Map<Long, TableMapEvent> map, BinlogTableMapStore store) {
+			this.map = map;
+			this.store = store;
+		}
+
+		@Override
+		public int size() {
+			return store.size();
+		}
+
+		@Override
+		public void clear() {
+			store.clear();
+		}
+
+		@Override
+		public Iterator<Map.Entry<Long, TableMapEvent>> iterator() {
+			final Iterator<TableMapEvent> it = store.values().iterator();
+			return new Iterator<Map.Entry<Long, TableMapEvent>>() {
+				private TableMapEvent last;
+
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				public Map.Entry<Long, TableMapEvent> next() {
+					this.last = it.next();
+					return new AbstractMap.SimpleEntry<Long, TableMapEvent>(last.getTableId(), last) {
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						public TableMapEvent setValue(TableMapEvent value) {
+							map.put(getKey(), value);
+							return super.setValue(value);
+						}
+					};
+				}
+
+				public void remove() {
+					if (this.last == null) throw new IllegalStateException();
+					store.remove(this.last.getTableId());
+					this.last = null;
+				}
+			};
+		}
+	}
 
 	public BinlogEventParser getEventParser(int type) {
 		return this.parsers[type];
@@ -129,7 +239,7 @@ public class BinlogSimpleParserImpl implements BinlogSimpleParser, BinlogEventLi
 	public void onEvents(BinlogEventV4 event) {
 		if (event instanceof TableMapEvent) {
 			final TableMapEvent e = (TableMapEvent) event;
-			this.tableMapEvents.put(e.getTableId(), e);
+			this.tableMapEvents.put(e);
 		}
 		else if (event instanceof RotateEvent) {
 			final RotateEvent e = (RotateEvent) event;
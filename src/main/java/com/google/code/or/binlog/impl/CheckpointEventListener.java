@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.CheckpointStore;
+import com.google.code.or.binlog.impl.event.RotateEvent;
+import com.google.code.or.common.glossary.BinlogPosition;
+
+/**
+ * Hands the events to the given listener and updates the given store with the position after each
+ * transaction once the listener returned from its last event, never in the middle of one. The
+ * transactions are delimited by {@link TransactionBoundary}.
+ */
+public class CheckpointEventListener implements BinlogEventListener {
+  //
+  private final CheckpointStore store;
+  private final BinlogEventListener eventListener;
+  private final TransactionBoundary transactions = new TransactionBoundary();
+  private String binlogFileName;
+
+  /**
+	 * 
+	 */
+  public CheckpointEventListener(CheckpointStore store, BinlogEventListener eventListener,
+      String binlogFileName) {
+    this.store = store;
+    this.eventListener = eventListener;
+    this.binlogFileName = binlogFileName;
+  }
+
+  /**
+	 * 
+	 */
+  public void onEvents(BinlogEventV4 event) {
+    //
+    if (this.eventListener != null) this.eventListener.onEvents(event);
+
+    //
+    final boolean boundary = this.transactions.update(event);
+    final long next = event.getHeader().getNextPosition();
+    if (event instanceof RotateEvent) {
+      final RotateEvent re = (RotateEvent) event;
+      this.binlogFileName = re.getBinlogFileName().toString();
+      if (boundary) {
+        this.store.update(new BinlogPosition(this.binlogFileName, re.getBinlogPosition()));
+      }
+    } else if (boundary && next > 0 && this.binlogFileName != null) {
+      this.store.update(new BinlogPosition(this.binlogFileName, next));
+    }
+  }
+
+  public CheckpointStore getStore() {
+    return store;
+  }
+
+  public BinlogEventListener getEventListener() {
+    return eventListener;
+  }
+
+  public String getBinlogFileName() {
+    return binlogFileName;
+  }
+}
@@ -15,17 +15,18 @@
 package com.google.code.or.binlog.impl;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.code.or.binlog.BinlogEventParser;
 import com.google.code.or.binlog.impl.event.BinlogEventV4HeaderImpl;
 import com.google.code.or.common.util.CodecUtils;
 import com.google.code.or.common.util.IOUtils;
 import com.google.code.or.common.util.MySQLConstants;
 import com.google.code.or.io.XInputStream;
+import com.google.code.or.io.impl.MappedFileXInputStream;
 import com.google.code.or.io.impl.XInputStreamImpl;
 import com.google.code.or.io.util.RamdomAccessFileInputStream;
 
@@ -43,8 +44,7 @@ public class FileBasedBinlogParser extends AbstractBinlogParser {
   protected String binlogFilePath;
   protected long stopPosition = 0;
   protected long startPosition = 4;
-
-
+  protected boolean memoryMapped = false;
 
   /**
 	 * 
@@ -96,6 +96,14 @@ public class FileBasedBinlogParser extends AbstractBinlogParser {
     this.startPosition = startPosition;
   }
 
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  public void setMemoryMapped(boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
   /**
 	 * 
 	 */
@@ -106,14 +114,7 @@ public class FileBasedBinlogParser extends AbstractBinlogParser {
     while (isRunning() && is.available() > 0) {
       try {
         //
-        final BinlogEventV4HeaderImpl header = new BinlogEventV4HeaderImpl();
-        header.setTimestamp(is.readLong(4) * 1000L);
-        header.setEventType(is.readInt(1));
-        header.setServerId(is.readLong(4));
-        header.setEventLength(is.readInt(4));
-        header.setNextPosition(is.readLong(4));
-        header.setFlags(is.readInt(2));
-        header.setTimestampOfReceipt(System.currentTimeMillis());
+        final BinlogEventV4HeaderImpl header = parseEventHeader(is);
         is.setReadLimit((int) (header.getEventLength() - header.getHeaderLength())); // Ensure the
                                                                                      // event
                                                                                      // boundary
@@ -127,13 +128,7 @@ public class FileBasedBinlogParser extends AbstractBinlogParser {
         }
 
         // Parse the event body
-        if (this.eventFilter != null && !this.eventFilter.accepts(header, context)) {
-          this.defaultParser.parse(is, header, context);
-        } else {
-          BinlogEventParser parser = getEventParser(header.getEventType());
-          if (parser == null) parser = this.defaultParser;
-          parser.parse(is, header, context);
-        }
+        parseEventBody(is, header, context);
 
         // Ensure the packet boundary
         if (is.available() != 0) {
@@ -154,7 +149,7 @@ public class FileBasedBinlogParser extends AbstractBinlogParser {
 	 */
   protected XInputStream open(String path) throws Exception {
     //
-    final XInputStream is = new XInputStreamImpl(new RamdomAccessFileInputStream(new File(path)));
+    final XInputStream is = newInputStream(new File(path));
     try {
       // Check binlog magic
       final byte[] magic = is.readBytes(MySQLConstants.BINLOG_MAGIC.length);
@@ -164,7 +159,16 @@ public class FileBasedBinlogParser extends AbstractBinlogParser {
 
       //
       if (this.startPosition > MySQLConstants.BINLOG_MAGIC.length) {
-        is.skip(this.startPosition - MySQLConstants.BINLOG_MAGIC.length);
+        final long position = readFormatDescription(is);
+        if (this.startPosition < position) {
+          throw new IllegalArgumentException("invalid start position: " + this.startPosition
+              + ", file: " + path);
+        }
+        if (is instanceof MappedFileXInputStream) {
+          ((MappedFileXInputStream) is).seek(this.startPosition);
+        } else {
+          is.skip(this.startPosition - position);
+        }
       }
       return is;
     } catch (Exception e) {
@@ -172,4 +176,31 @@ public class FileBasedBinlogParser extends AbstractBinlogParser {
       throw e;
     }
   }
+
+  /**
+   * Reads the first event of the file, which is skipped by a later start position, for the
+   * checksum of the events, see {@link #onFormatDescription(byte[], int, int)}.
+   * 
+   * @return the position after the event
+   */
+  protected long readFormatDescription(XInputStream is) throws Exception {
+    final BinlogEventV4HeaderImpl header = parseEventHeader(is);
+    final int length = (int) (header.getEventLength() - header.getHeaderLength());
+    final byte[] body = is.readBytes(length);
+    if (header.getEventType() == MySQLConstants.FORMAT_DESCRIPTION_EVENT) {
+      onFormatDescription(body, 0, length); // Or a start event v3, without checksum
+    }
+    return MySQLConstants.BINLOG_MAGIC.length + header.getEventLength();
+  }
+
+  /**
+   * Opens the binlog file, mapped into memory if {@link #isMemoryMapped()}.
+   */
+  protected XInputStream newInputStream(File file) throws IOException {
+    if (this.memoryMapped) {
+      return new MappedFileXInputStream(file);
+    } else {
+      return new XInputStreamImpl(new RamdomAccessFileInputStream(file));
+    }
+  }
 }
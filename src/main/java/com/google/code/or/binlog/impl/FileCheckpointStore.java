@@ -0,0 +1,331 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.CheckpointStore;
+import com.google.code.or.common.glossary.BinlogPosition;
+import com.google.code.or.common.util.IOUtils;
+import com.google.code.or.common.util.XThreadFactory;
+
+/**
+ * Stores the checkpoints in a local file. Updates only replace the pending position in memory, a
+ * background thread writes it once {@link #getFlushInterval()} milliseconds passed or
+ * {@link #getFlushUpdates()} updates were made since the last write, whichever comes first, so
+ * that many transactions share one synchronous write.
+ * <p>
+ * The file is written to a temporary file which is synced and renamed over the previous one, so a
+ * crash leaves either the previous or the new file. Where the previous file has to be deleted
+ * before the rename, the synced temporary file is read instead while the file is missing. The
+ * parent directory is not synced, see {@link IOUtils#replace(File, File)}. Besides the last
+ * position, the file keeps the {@link #getHistorySize()} positions written before it to go back
+ * to, see {@link #getHistory()}.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileCheckpointStore.class);
+
+  //
+  private static final int MAGIC = 0x4F52434B; // ORCK
+  private static final int VERSION = 1;
+
+  //
+  private final File file;
+  private long flushInterval = 1000;
+  private int flushUpdates = 1000;
+  private int historySize = 8;
+
+  //
+  private final Object lock = new Object();
+  private final Object writeLock = new Object();
+  private final LinkedList<BinlogPosition> history = new LinkedList<BinlogPosition>();
+  private BinlogPosition pending;
+  private BinlogPosition last;
+  private int updates;
+  private boolean loaded;
+  private boolean closed;
+  private Thread flusher;
+
+  /**
+	 * 
+	 */
+  public FileCheckpointStore(File file) {
+    this.file = file;
+  }
+
+  public FileCheckpointStore(String path) {
+    this(new File(path));
+  }
+
+  @Override
+  public String toString() {
+    return "FileCheckpointStore[file=" + file + ",last=" + last + "]";
+  }
+
+  /**
+	 * 
+	 */
+  public BinlogPosition load() throws IOException {
+    synchronized (this.lock) {
+      if (this.last == null) ensureLoaded();
+      return this.last;
+    }
+  }
+
+  public void update(BinlogPosition position) {
+    //
+    if (position == null) {
+      throw new IllegalArgumentException("position is null");
+    }
+
+    //
+    synchronized (this.lock) {
+      if (this.closed) {
+        throw new IllegalStateException("checkpoint store is closed: " + this.file);
+      }
+      this.last = position;
+      this.pending = position;
+      if (++this.updates >= this.flushUpdates) this.lock.notifyAll();
+      if (this.flusher == null) {
+        this.flusher = new XThreadFactory("checkpoint-flusher", true).newThread(new Flusher());
+        this.flusher.start();
+      }
+    }
+  }
+
+  public void flush() throws IOException {
+    synchronized (this.writeLock) {
+      //
+      final BinlogPosition p;
+      synchronized (this.lock) {
+        p = this.pending;
+        this.pending = null;
+        this.updates = 0;
+      }
+
+      //
+      if (p == null) return;
+      try {
+        write(p);
+      } catch (IOException e) {
+        synchronized (this.lock) {
+          if (this.pending == null) this.pending = p; // Retried by the next flush
+        }
+        throw e;
+      }
+    }
+  }
+
+  public void close() throws IOException {
+    //
+    final Thread t;
+    synchronized (this.lock) {
+      if (this.closed) return;
+      this.closed = true;
+      this.lock.notifyAll();
+      t = this.flusher;
+    }
+
+    //
+    if (t != null) {
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    flush();
+  }
+
+  /**
+   * @return the positions in the file, the last one written first
+   */
+  public List<BinlogPosition> getHistory() throws IOException {
+    synchronized (this.writeLock) {
+      synchronized (this.lock) {
+        ensureLoaded();
+      }
+      return new ArrayList<BinlogPosition>(this.history);
+    }
+  }
+
+  /**
+	 * 
+	 */
+  public File getFile() {
+    return file;
+  }
+
+  public long getFlushInterval() {
+    return flushInterval;
+  }
+
+  public void setFlushInterval(long flushInterval) {
+    this.flushInterval = flushInterval;
+  }
+
+  public int getFlushUpdates() {
+    return flushUpdates;
+  }
+
+  public void setFlushUpdates(int flushUpdates) {
+    this.flushUpdates = flushUpdates;
+  }
+
+  public int getHistorySize() {
+    return historySize;
+  }
+
+  public void setHistorySize(int historySize) {
+    this.historySize = historySize;
+  }
+
+  /**
+	 * 
+	 */
+  private void ensureLoaded() throws IOException {
+    //
+    if (this.loaded) return;
+    final File f = IOUtils.getReplacedFile(this.file, getTmpFile());
+    if (f == this.file) {
+      this.history.addAll(read(f));
+    } else if (f != null) {
+      try {
+        this.history.addAll(read(f)); // Left by a crash while replacing the file
+      } catch (IOException e) {
+        LOGGER.warn("failed to read checkpoint file: " + f + ", ignoring it", e); // Never replaced
+      }
+    }
+    if (this.last == null) this.last = this.history.peekFirst();
+    this.loaded = true;
+  }
+
+  private void write(BinlogPosition p) throws IOException {
+    //
+    synchronized (this.lock) {
+      ensureLoaded();
+    }
+    final List<BinlogPosition> positions = new ArrayList<BinlogPosition>(this.history.size() + 1);
+    positions.add(p);
+    for (BinlogPosition h : this.history) {
+      if (positions.size() > this.historySize) break;
+      if (!h.equals(p)) positions.add(h);
+    }
+
+    //
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    final DataOutputStream os = new DataOutputStream(bytes);
+    os.writeInt(MAGIC);
+    os.writeByte(VERSION);
+    os.writeInt(positions.size());
+    for (BinlogPosition position : positions) {
+      os.writeUTF(position.getBinlogFileName());
+      os.writeLong(position.getPosition());
+    }
+
+    //
+    final File tmp = getTmpFile();
+    final FileOutputStream fos = new FileOutputStream(tmp);
+    try {
+      fos.write(bytes.toByteArray());
+      fos.getFD().sync();
+    } finally {
+      fos.close();
+    }
+
+    //
+    IOUtils.replace(tmp, this.file);
+
+    //
+    this.history.clear();
+    this.history.addAll(positions);
+  }
+
+  private File getTmpFile() {
+    return new File(this.file.getPath() + ".tmp");
+  }
+
+  private static List<BinlogPosition> read(File file) throws IOException {
+    final DataInputStream is =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      //
+      if (is.readInt() != MAGIC) {
+        throw new IOException("invalid checkpoint file magic, file: " + file);
+      }
+      final int version = is.readByte();
+      if (version != VERSION) {
+        throw new IOException("unsupported checkpoint file version: " + version + ", file: " + file);
+      }
+
+      //
+      final int count = is.readInt();
+      final List<BinlogPosition> r = new ArrayList<BinlogPosition>(count);
+      for (int i = 0; i < count; i++) {
+        final String binlogFileName = is.readUTF();
+        r.add(new BinlogPosition(binlogFileName, is.readLong()));
+      }
+      return r;
+    } finally {
+      is.close();
+    }
+  }
+
+  /**
+   * Writes the pending position on interval or once enough updates were made.
+   */
+  private final class Flusher implements Runnable {
+
+    public void run() {
+      while (true) {
+        //
+        synchronized (lock) {
+          final long deadline = System.currentTimeMillis() + flushInterval;
+          while (!closed && updates < flushUpdates) {
+            final long timeout = deadline - System.currentTimeMillis();
+            if (timeout <= 0) break;
+            try {
+              lock.wait(timeout);
+            } catch (InterruptedException e) {
+              return;
+            }
+          }
+          if (closed) return; // Flushed by close()
+        }
+
+        //
+        try {
+          flush();
+        } catch (Exception e) {
+          LOGGER.error("failed to flush checkpoint, file: " + file, e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.BinlogEventFilter;
+import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.BinlogEventV4Header;
+import com.google.code.or.binlog.BinlogParserContext;
+import com.google.code.or.binlog.impl.event.HeartbeatEvent;
+import com.google.code.or.common.glossary.BinlogPosition;
+import com.google.code.or.common.util.XThreadFactory;
+
+/**
+ * Watches a binlog stream whose master sends heartbeats every {@link #getHeartbeatPeriod()}
+ * milliseconds while idle, and hands its events to the given listener. The stream is stalled once
+ * nothing, event or heartbeat, was received for {@link #getMissedHeartbeats()} periods, in which
+ * case the stall handler is run, typically to drop the connection. The stream is never stalled
+ * while the listener is handling an event, as it holds up the reads meanwhile, and the periods are
+ * counted from its return then.
+ * <p>
+ * The receipts are recorded by the header of each event, with the watchdog set as the event filter
+ * of the parser in front of the given filter, so the events rejected by the filters or dropped by
+ * the row filters count too. Without it only the events reaching the listener count. The time the
+ * parser takes over an event before the listener, such as streaming its rows to row listeners,
+ * is not told apart from an idle stream.
+ * <p>
+ * As the master only sends heartbeats once it has no more events to send, the lag is 0 after a
+ * heartbeat, and the delay between the timestamp of the last event and its receipt otherwise. The
+ * watchdogs share one timer thread.
+ */
+public class HeartbeatWatchdog implements BinlogEventListener, BinlogEventFilter {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(HeartbeatWatchdog.class);
+
+  //
+  private static ScheduledExecutorService timer;
+
+  //
+  private final long heartbeatPeriod;
+  private int missedHeartbeats = 3;
+  private volatile BinlogEventListener eventListener;
+  private volatile BinlogEventFilter eventFilter;
+  private volatile Runnable stallHandler;
+
+  //
+  private ScheduledFuture<?> future;
+  private volatile long lastReceiptTime;
+  private volatile boolean delivering;
+  private volatile long lastHeartbeatTime;
+  private volatile long lag;
+  private volatile BinlogPosition masterPosition;
+  private volatile long stallCount;
+
+  /**
+   * @param heartbeatPeriod in milliseconds, as given to the master
+   */
+  public HeartbeatWatchdog(long heartbeatPeriod) {
+    if (heartbeatPeriod <= 0) {
+      throw new IllegalArgumentException("invalid heartbeat period: " + heartbeatPeriod);
+    }
+    this.heartbeatPeriod = heartbeatPeriod;
+  }
+
+  @Override
+  public String toString() {
+    return "HeartbeatWatchdog[heartbeatPeriod=" + heartbeatPeriod + ",lag=" + lag
+        + ",masterPosition=" + masterPosition + ",stallCount=" + stallCount + "]";
+  }
+
+  /**
+   * Starts watching, as if something was received now.
+   */
+  public synchronized void start() {
+    this.lastReceiptTime = System.currentTimeMillis();
+    if (this.future != null) return;
+    this.future = getTimer().scheduleWithFixedDelay(new Runnable() {
+      public void run() {
+        check(System.currentTimeMillis());
+      }
+    }, this.heartbeatPeriod, this.heartbeatPeriod, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stop() {
+    if (this.future == null) return;
+    this.future.cancel(false);
+    this.future = null;
+  }
+
+  /**
+	 * 
+	 */
+  public boolean accepts(BinlogEventV4Header header, BinlogParserContext context) {
+    this.lastReceiptTime = System.currentTimeMillis();
+    final BinlogEventFilter filter = this.eventFilter;
+    return filter == null || filter.accepts(header, context);
+  }
+
+  public void onEvents(BinlogEventV4 event) {
+    //
+    final long now = System.currentTimeMillis();
+    if (event instanceof HeartbeatEvent) {
+      final HeartbeatEvent he = (HeartbeatEvent) event;
+      this.lastHeartbeatTime = now;
+      this.lag = 0;
+      this.masterPosition = new BinlogPosition(he.getBinlogFileName().toString(),
+          event.getHeader().getNextPosition());
+    } else if (event.getHeader().getTimestamp() > 0) {
+      this.lag = Math.max(0, now - event.getHeader().getTimestamp());
+    }
+
+    //
+    final BinlogEventListener listener = this.eventListener;
+    if (listener == null) return;
+    this.delivering = true;
+    try {
+      listener.onEvents(event);
+    } finally {
+      this.lastReceiptTime = System.currentTimeMillis();
+      this.delivering = false;
+    }
+  }
+
+  /**
+   * @return whether the stream is stalled as of the given time
+   */
+  public boolean isStalled(long now) {
+    if (this.delivering) return false;
+    return now - this.lastReceiptTime > this.heartbeatPeriod * this.missedHeartbeats;
+  }
+
+  /**
+	 * 
+	 */
+  protected void check(long now) {
+    //
+    if (!isStalled(now)) return;
+    this.stallCount++;
+    LOGGER.warn("binlog stream stalled, idle: {}ms, heartbeat period: {}ms",
+        now - this.lastReceiptTime, this.heartbeatPeriod);
+    this.lastReceiptTime = now; // Reported once per missed heartbeats
+
+    //
+    final Runnable handler = this.stallHandler;
+    if (handler != null) {
+      try {
+        handler.run();
+      } catch (Exception e) {
+        LOGGER.error("failed to handle binlog stream stall", e);
+      }
+    }
+  }
+
+  private static synchronized ScheduledExecutorService getTimer() {
+    if (timer == null) {
+      final XThreadFactory tf = new XThreadFactory("binlog-watchdog", true);
+      timer = Executors.newSingleThreadScheduledExecutor(tf);
+    }
+    return timer;
+  }
+
+  /**
+	 * 
+	 */
+  public long getHeartbeatPeriod() {
+    return heartbeatPeriod;
+  }
+
+  public int getMissedHeartbeats() {
+    return missedHeartbeats;
+  }
+
+  public void setMissedHeartbeats(int missedHeartbeats) {
+    this.missedHeartbeats = missedHeartbeats;
+  }
+
+  public BinlogEventListener getEventListener() {
+    return eventListener;
+  }
+
+  public void setEventListener(BinlogEventListener eventListener) {
+    this.eventListener = eventListener;
+  }
+
+  public BinlogEventFilter getEventFilter() {
+    return eventFilter;
+  }
+
+  public void setEventFilter(BinlogEventFilter eventFilter) {
+    this.eventFilter = eventFilter;
+  }
+
+  public Runnable getStallHandler() {
+    return stallHandler;
+  }
+
+  public void setStallHandler(Runnable stallHandler) {
+    this.stallHandler = stallHandler;
+  }
+
+  /**
+   * @return the lag in milliseconds as of the last event or heartbeat received
+   */
+  public long getLag() {
+    return lag;
+  }
+
+  /**
+   * @return the position of the master as of the last heartbeat, or null if none was received
+   */
+  public BinlogPosition getMasterPosition() {
+    return masterPosition;
+  }
+
+  public long getLastReceiptTime() {
+    return lastReceiptTime;
+  }
+
+  public long getLastHeartbeatTime() {
+    return lastHeartbeatTime;
+  }
+
+  public long getStallCount() {
+    return stallCount;
+  }
+}
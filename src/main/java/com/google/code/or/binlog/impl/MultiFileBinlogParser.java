@@ -0,0 +1,385 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.BinlogParserFactory;
+import com.google.code.or.binlog.BinlogRowEventFilter;
+import com.google.code.or.binlog.BinlogRowListener;
+import com.google.code.or.binlog.BinlogRowViewListener;
+import com.google.code.or.binlog.ext.XChecksumFactory;
+import com.google.code.or.binlog.impl.filter.ColumnProjection;
+import com.google.code.or.common.util.XThreadFactory;
+
+/**
+ * Replays a sequence of binlog files, by default the given file and every later file of the same
+ * base name in its directory, the way the server would have rotated through them.
+ * <p>
+ * Each file is parsed from its format description event on by a {@link FileBasedBinlogParser} of
+ * its own, which keeps track of the file's own table maps, and up to
+ * {@link #getReplayThreads()} files are parsed concurrently. The parsed events of a file are
+ * buffered in a queue of up to {@link #getQueueSize()} bytes of events and the worker thread hands
+ * them to the listener file by file, so the listener sees the events in global file and position
+ * order. The start position applies to the first file and the stop position to the last one.
+ * <p>
+ * A replayer whose queue is full waits for the listener, so the queue size is how far ahead of the
+ * listener a file can be parsed. A file is only parsed in parallel with the file being delivered
+ * as far as its queue goes, so a larger queue buys more look-ahead for more memory: up to
+ * {@link #getReplayThreads()} times the queue size of binlog, and somewhat more once decoded.
+ */
+public class MultiFileBinlogParser extends AbstractBinlogParser {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(MultiFileBinlogParser.class);
+
+  //
+  private static final Object END = new Object();
+
+  //
+  protected String binlogFileName;
+  protected String binlogFilePath;
+  protected List<String> binlogFileNames;
+  protected long stopPosition = 0;
+  protected long startPosition = 4;
+  protected boolean memoryMapped = false;
+  protected int queueSize = 64 * 1024 * 1024;
+  protected int replayThreads = Runtime.getRuntime().availableProcessors();
+  protected BinlogRowEventFilter rowEventFilter;
+  protected ColumnProjection columnProjection;
+
+  //
+  protected ExecutorService replayers;
+  protected List<Segment> segments;
+
+  /**
+	 * 
+	 */
+  public MultiFileBinlogParser() {}
+
+  @Override
+  protected void doStart() throws Exception {
+    //
+    List<String> names = this.binlogFileNames;
+    if (names == null) names = listBinlogFiles(new File(this.binlogFilePath), this.binlogFileName);
+    if (names.isEmpty()) {
+      throw new IllegalArgumentException("no binlog files to replay, path: " + this.binlogFilePath
+          + ", name: " + this.binlogFileName);
+    }
+
+    //
+    this.segments = new ArrayList<Segment>(names.size());
+    for (int i = 0; i < names.size(); i++) {
+      final long start = i == 0 ? this.startPosition : 4;
+      final long stop = i == names.size() - 1 ? this.stopPosition : 0;
+      this.segments.add(new Segment(createFileParser(names.get(i), start, stop)));
+    }
+
+    // Files are picked up in order, so the file being delivered is always parsed
+    final XThreadFactory tf = new XThreadFactory("binlog-replayer", true);
+    this.replayers = Executors.newFixedThreadPool(Math.max(1, this.replayThreads), tf);
+    for (Segment segment : this.segments) {
+      this.replayers.execute(segment);
+    }
+  }
+
+  @Override
+  protected void doStop(long timeout, TimeUnit unit) throws Exception {
+    if (this.segments != null) {
+      for (Segment segment : this.segments) {
+        segment.parser.running.set(false);
+      }
+    }
+    if (this.replayers != null) this.replayers.shutdownNow();
+  }
+
+  /**
+	 * 
+	 */
+  public String getBinlogFileName() {
+    return binlogFileName;
+  }
+
+  public void setBinlogFileName(String name) {
+    this.binlogFileName = name;
+  }
+
+  public String getBinlogFilePath() {
+    return binlogFilePath;
+  }
+
+  public void setBinlogFilePath(String path) {
+    this.binlogFilePath = path;
+  }
+
+  public List<String> getBinlogFileNames() {
+    return binlogFileNames;
+  }
+
+  public void setBinlogFileNames(List<String> names) {
+    this.binlogFileNames = names;
+  }
+
+  public long getStopPosition() {
+    return stopPosition;
+  }
+
+  public void setStopPosition(long stopPosition) {
+    this.stopPosition = stopPosition;
+  }
+
+  public long getStartPosition() {
+    return startPosition;
+  }
+
+  public void setStartPosition(long startPosition) {
+    this.startPosition = startPosition;
+  }
+
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  public void setMemoryMapped(boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  /**
+   * @param queueSize in bytes of binlog, of the events buffered per file
+   */
+  public void setQueueSize(int queueSize) {
+    this.queueSize = queueSize;
+  }
+
+  public int getReplayThreads() {
+    return replayThreads;
+  }
+
+  public void setReplayThreads(int replayThreads) {
+    this.replayThreads = replayThreads;
+  }
+
+  @Override
+  public void setRowEventFilter(BinlogRowEventFilter filter) {
+    this.rowEventFilter = filter;
+  }
+
+  @Override
+  public void setColumnProjection(ColumnProjection projection) {
+    this.columnProjection = projection;
+  }
+
+  @Override
+  public void setRowViewListener(BinlogRowViewListener listener) {
+    throw new UnsupportedOperationException("row views are not supported by multi file replay");
+  }
+
+  @Override
+  public void setRowListener(BinlogRowListener listener) {
+    throw new UnsupportedOperationException("row streaming is not supported by multi file replay");
+  }
+
+  /**
+	 * 
+	 */
+  @Override
+  protected void doParse() throws Exception {
+    for (Segment segment : this.segments) {
+      while (true) {
+        //
+        final Object o = segment.queue.poll(100, TimeUnit.MILLISECONDS);
+        if (o == null) {
+          if (!isRunning()) return;
+          continue;
+        }
+
+        //
+        if (o == END) {
+          break;
+        } else if (o instanceof Exception) {
+          throw (Exception) o;
+        }
+
+        //
+        final BinlogEventV4 event = (BinlogEventV4) o;
+        segment.release(event);
+        try {
+          this.eventListener.onEvents(event);
+        } catch (Exception e) {
+          LOGGER.error("failed to notify binlog event listener, event: " + event, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Lists the files of the given directory named after the given file, that is with the same base
+   * name and a numeric extension, starting from the given file, in binlog order. The extension
+   * grows by a digit past .999999, so it is compared by value.
+   */
+  public static List<String> listBinlogFiles(File dir, String first) {
+    //
+    final int index = first.lastIndexOf('.');
+    if (index < 0) {
+      throw new IllegalArgumentException("invalid binlog file name: " + first);
+    }
+    final String prefix = first.substring(0, index + 1);
+    final long sequence = Long.parseLong(first.substring(index + 1));
+
+    //
+    final List<String> r = new ArrayList<String>();
+    final String[] names = dir.list();
+    if (names == null) {
+      throw new IllegalArgumentException("invalid binlog file path: " + dir);
+    }
+    for (String name : names) {
+      if (!name.startsWith(prefix)) continue;
+      final String extension = name.substring(prefix.length());
+      if (!isDigits(extension) || Long.parseLong(extension) < sequence) continue;
+      r.add(name);
+    }
+
+    //
+    Collections.sort(r, new Comparator<String>() {
+      public int compare(String a, String b) {
+        final long x = Long.parseLong(a.substring(prefix.length()));
+        final long y = Long.parseLong(b.substring(prefix.length()));
+        return x < y ? -1 : (x == y ? 0 : 1);
+      }
+    });
+    return r;
+  }
+
+  private static boolean isDigits(String s) {
+    if (s.length() == 0) return false;
+    for (int i = 0; i < s.length(); i++) {
+      if (!Character.isDigit(s.charAt(i))) return false;
+    }
+    return true;
+  }
+
+  /**
+	 * 
+	 */
+  protected FileBasedBinlogParser createFileParser(String name, long start, long stop) {
+    //
+    final FileBasedBinlogParser r =
+        BinlogParserFactory.createFileBinlogParser(start, stop, name, this.binlogFilePath);
+    if (this.checksum != null) {
+      r.setChecksum(XChecksumFactory.create(this.checksum.getType().name()));
+    }
+
+    //
+    r.setVerbose(isVerbose());
+    r.setMemoryMapped(this.memoryMapped);
+    r.setEventFilter(this.eventFilter);
+    if (this.rowEventFilter != null) r.setRowEventFilter(this.rowEventFilter);
+    r.setColumnProjection(this.columnProjection);
+    r.setClearTableMapEventsOnRotate(this.clearTableMapEventsOnRotate);
+    return r;
+  }
+
+  /**
+   * One file of the replay, parsed by a replayer thread into a queue bounded by bytes.
+   */
+  protected class Segment implements Runnable, BinlogEventListener {
+    //
+    private final FileBasedBinlogParser parser;
+    private final BlockingQueue<Object> queue;
+    private final Semaphore space;
+    private final int capacity;
+
+    /**
+		 * 
+		 */
+    public Segment(FileBasedBinlogParser parser) {
+      this.parser = parser;
+      this.parser.setEventListener(this);
+      this.queue = new LinkedBlockingQueue<Object>();
+      this.capacity = Math.max(1, queueSize);
+      this.space = new Semaphore(this.capacity);
+    }
+
+    /**
+		 * 
+		 */
+    public void run() {
+      //
+      if (!isRunning()) return;
+      Object r = END;
+      try {
+        this.parser.running.set(true);
+        this.parser.doStart();
+        try {
+          this.parser.doParse();
+        } finally {
+          this.parser.doStop(0, TimeUnit.MILLISECONDS);
+        }
+        if (!this.parser.isRunning()) return; // Stopped
+      } catch (Exception e) {
+        r = e;
+      } finally {
+        this.parser.running.set(false);
+      }
+
+      //
+      try {
+        this.queue.put(r);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    public void onEvents(BinlogEventV4 event) {
+      try {
+        // An event larger than the queue takes it whole
+        final int size = size(event);
+        while (!this.space.tryAcquire(size, 100, TimeUnit.MILLISECONDS)) {
+          if (!isRunning()) return;
+        }
+        this.queue.put(event);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        this.parser.running.set(false);
+      }
+    }
+
+    private void release(BinlogEventV4 event) {
+      this.space.release(size(event));
+    }
+
+    private int size(BinlogEventV4 event) {
+      return (int) Math.max(1, Math.min(this.capacity, event.getHeader().getEventLength()));
+    }
+  }
+}
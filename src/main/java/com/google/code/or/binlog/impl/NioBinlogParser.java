@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.impl.event.BinlogEventV4HeaderImpl;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
+import com.google.code.or.net.impl.NioConnection;
+import com.google.code.or.net.impl.NioTransport;
+import com.google.code.or.net.impl.packet.EOFPacket;
+import com.google.code.or.net.impl.packet.ErrorPacket;
+import com.google.code.or.net.impl.packet.OKPacket;
+
+/**
+ * A replication parser without a thread of its own: the packets of its {@link NioTransport} are
+ * read by the selector threads of the transport's reactor and decoded by the reactor's
+ * decoder pool, which is shared by the parsers of all the transports of the reactor.
+ * <p>
+ * The packets of a parser are decoded one at a time and in order, at most
+ * {@link #getBatchSize()} of them per turn on a decoder thread, so that one busy stream does not
+ * hold up the others.
+ *
+ * @see com.google.code.or.net.impl.NioReactor
+ */
+public class NioBinlogParser extends ReplicationBasedBinlogParser implements NioConnection.Handler {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(NioBinlogParser.class);
+
+  //
+  protected int batchSize = 64;
+  protected Executor executor;
+
+  //
+  private Context context;
+  private volatile NioConnection connection;
+  private volatile Thread decoder;
+  private final Queue<Frame> frames = new ConcurrentLinkedQueue<Frame>();
+  private final AtomicBoolean scheduled = new AtomicBoolean(false);
+  private final Runnable drainer = new Runnable() {
+    public void run() {
+      drain();
+    }
+  };
+
+  /**
+	 * 
+	 */
+  public NioBinlogParser() {}
+
+  /**
+   * Starts receiving the packets of the transport, without starting a worker thread.
+   */
+  @Override
+  public void start() throws Exception {
+    //
+    if (!this.running.compareAndSet(false, true)) {
+      return;
+    }
+
+    //
+    doStart();
+    notifyOnStart();
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    //
+    if (!(this.transport instanceof NioTransport)) {
+      throw new IllegalArgumentException("invalid transport: " + this.transport);
+    }
+
+    //
+    final NioTransport t = (NioTransport) this.transport;
+    if (this.executor == null) this.executor = t.getReactor().getDecoders();
+    this.context = new Context(this.binlogFileName);
+    this.connection = t.receive(this);
+  }
+
+  @Override
+  protected void doStop(long timeout, TimeUnit unit) throws Exception {
+    this.frames.clear();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Thread t; (t = this.decoder) != null && t != Thread.currentThread();) {
+      if (System.nanoTime() - deadline >= 0) return false;
+      Thread.sleep(1);
+    }
+    return true;
+  }
+
+  /**
+	 * 
+	 */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Sets the pool decoding the packets, the decoder pool of the transport's reactor by default.
+   */
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+	 * 
+	 */
+  public void onPacket(NioConnection connection, int sequence, byte[] packet) {
+    this.connection = connection; // May come before receive() returned
+    this.frames.offer(new Frame(sequence, packet));
+    schedule();
+  }
+
+  public void onException(NioConnection connection, Exception exception) {
+    if (isRunning()) fail(exception);
+  }
+
+  /**
+   * Decodes the next packets, called by a decoder thread.
+   */
+  @Override
+  protected void doParse() throws Exception {
+    for (int i = 0; i < this.batchSize && isRunning(); i++) {
+      final Frame frame = this.frames.poll();
+      if (frame == null) return;
+      try {
+        parsePacket(frame.sequence, frame.packet);
+      } finally {
+        this.connection.release();
+      }
+    }
+  }
+
+  protected void parsePacket(int sequence, byte[] packet) throws Exception {
+    //
+    final ByteArrayXInputStream is = new ByteArrayXInputStream(packet);
+    final int packetMarker = is.readInt(1);
+    if (packetMarker != OKPacket.PACKET_MARKER) { // 0x00
+      if ((byte) packetMarker == ErrorPacket.PACKET_MARKER) {
+        final ErrorPacket p = ErrorPacket.valueOf(packet.length, sequence, packetMarker, is);
+        throw new RuntimeException(p.toString());
+      } else if ((byte) packetMarker == EOFPacket.PACKET_MARKER) {
+        final EOFPacket p = EOFPacket.valueOf(packet.length, sequence, packetMarker, is);
+        throw new RuntimeException(p.toString());
+      } else {
+        throw new RuntimeException("assertion failed, invalid packet marker: " + packetMarker);
+      }
+    }
+
+    // Parse the event header
+    final BinlogEventV4HeaderImpl header = parseEventHeader(is);
+    if (isVerbose() && LOGGER.isInfoEnabled()) {
+      LOGGER.info("received an event, sequence: {}, header: {}", sequence, header);
+    }
+
+    // Parse the event body
+    parseEventBody(is, header, this.context);
+
+    // Ensure the packet boundary
+    if (is.available() != 0) {
+      throw new RuntimeException("assertion failed, available: " + is.available()
+          + ", event type: " + header.getEventType());
+    }
+  }
+
+  /**
+	 * 
+	 */
+  private void schedule() {
+    if (this.scheduled.compareAndSet(false, true)) {
+      try {
+        this.executor.execute(this.drainer);
+      } catch (Exception e) {
+        this.scheduled.set(false);
+        fail(e);
+      }
+    }
+  }
+
+  private void drain() {
+    this.decoder = Thread.currentThread(); // See awaitTermination()
+    try {
+      doParse();
+    } catch (Exception e) {
+      fail(e);
+    } finally {
+      this.decoder = null;
+      this.scheduled.set(false);
+    }
+    if (isRunning() && !this.frames.isEmpty()) schedule();
+  }
+
+  private void fail(Exception e) {
+    notifyOnException(e);
+    LOGGER.error("failed to parse binlog", e);
+    try {
+      stop(0, TimeUnit.MILLISECONDS);
+    } catch (Exception ex) {
+      LOGGER.error("failed to stop binlog parser", ex);
+    }
+  }
+
+  private static final class Frame {
+    //
+    private final int sequence;
+    private final byte[] packet;
+
+    /**
+		 * 
+		 */
+    public Frame(int sequence, byte[] packet) {
+      this.sequence = sequence;
+      this.packet = packet;
+    }
+  }
+}
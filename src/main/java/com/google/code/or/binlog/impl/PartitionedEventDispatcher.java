@@ -0,0 +1,595 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.impl.event.AbstractRowEvent;
+import com.google.code.or.binlog.impl.event.DeleteRowsEvent;
+import com.google.code.or.binlog.impl.event.DeleteRowsEventV2;
+import com.google.code.or.binlog.impl.event.QueryEvent;
+import com.google.code.or.binlog.impl.event.RotateEvent;
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+import com.google.code.or.binlog.impl.event.UpdateRowsEvent;
+import com.google.code.or.binlog.impl.event.UpdateRowsEventV2;
+import com.google.code.or.binlog.impl.event.WriteRowsEvent;
+import com.google.code.or.binlog.impl.event.WriteRowsEventV2;
+import com.google.code.or.common.glossary.BinlogPosition;
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Pair;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.util.XThreadFactory;
+
+/**
+ * A {@link BinlogEventListener} stage which hands the events of a parser over to
+ * {@link #getPartitions()} worker threads, each of them with a bounded queue of
+ * {@link #getQueueCapacity()} events, so that a slow event listener does not hold up the reads
+ * of the parser until its queue is full.
+ * <p>
+ * The rows events are partitioned by table, so the events of a table are delivered in binlog
+ * order. The rows of the tables given key columns by {@link #addKeyColumns(String, String, int...)}
+ * are further partitioned by the values of these columns, the rows of an event which fall in
+ * different partitions are then delivered as copies of the event holding the rows of each
+ * partition, so the changes of a row are delivered in binlog order. A table map event is delivered
+ * in the partitions of its rows, ahead of them. Any other event is delivered in the first
+ * partition, a query other than BEGIN, such as DDL, only once every partition is drained so that
+ * it comes after the rows events before it.
+ * <p>
+ * {@link #getCommittedPosition()} is the position after the last transaction whose events were
+ * all delivered in every partition, from which the parser can be restarted without missing any.
+ * The transactions are delimited by {@link TransactionBoundary}. The table map events are
+ * forgotten at each rotate event, the table ids being reused by the transactions of a binlog file
+ * only.
+ */
+public class PartitionedEventDispatcher implements BinlogEventListener {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedEventDispatcher.class);
+
+  //
+  private int partitions = Runtime.getRuntime().availableProcessors();
+  private int queueCapacity = 1024;
+  private String binlogFileName;
+  private BinlogEventListener eventListener;
+  private final ConcurrentMap<String, int[]> keyColumns = new ConcurrentHashMap<String, int[]>();
+
+  //
+  private final AtomicBoolean running = new AtomicBoolean(false);
+  private final Map<Long, Route> routes = new HashMap<Long, Route>();
+  private final Queue<Boundary> boundaries = new ConcurrentLinkedQueue<Boundary>();
+  private final TransactionBoundary transactions = new TransactionBoundary();
+  private Partition[] workers;
+  private ExecutorService executor;
+  private BinlogPosition committedPosition;
+  private long sequence;
+  private volatile long dispatched;
+
+  /**
+	 * 
+	 */
+  public PartitionedEventDispatcher() {}
+
+  public PartitionedEventDispatcher(BinlogEventListener eventListener, int partitions) {
+    this.eventListener = eventListener;
+    this.partitions = partitions;
+  }
+
+  /**
+	 * 
+	 */
+  public int getPartitions() {
+    return partitions;
+  }
+
+  public void setPartitions(int partitions) {
+    this.partitions = partitions;
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  public String getBinlogFileName() {
+    return binlogFileName;
+  }
+
+  /**
+   * Sets the name of the binlog file the events come from until the next rotate event.
+   */
+  public void setBinlogFileName(String name) {
+    this.binlogFileName = name;
+  }
+
+  public BinlogEventListener getEventListener() {
+    return eventListener;
+  }
+
+  public void setEventListener(BinlogEventListener listener) {
+    this.eventListener = listener;
+  }
+
+  /**
+   * Partitions the rows of the given table by the given columns, given by their ordinals, from the
+   * next table map event of the table on. The columns must be present in the rows, in the before
+   * image of updates.
+   */
+  public void addKeyColumns(String database, String table, int... columns) {
+    for (int column : columns) {
+      if (column < 0) throw new IllegalArgumentException("invalid column: " + column);
+    }
+    this.keyColumns.put(database + "." + table, columns.clone());
+  }
+
+  public void removeKeyColumns(String database, String table) {
+    this.keyColumns.remove(database + "." + table);
+  }
+
+  /**
+	 * 
+	 */
+  public boolean isRunning() {
+    return this.running.get();
+  }
+
+  public void start() {
+    //
+    if (!this.running.compareAndSet(false, true)) {
+      return;
+    }
+
+    //
+    final int n = Math.max(1, this.partitions);
+    this.workers = new Partition[n];
+    final XThreadFactory tf = new XThreadFactory("binlog-dispatcher", true);
+    this.executor = Executors.newFixedThreadPool(n, tf);
+    for (int i = 0; i < n; i++) {
+      this.workers[i] = new Partition();
+      this.executor.execute(this.workers[i]);
+    }
+  }
+
+  /**
+   * Stops accepting events, the events already queued are still delivered within the given
+   * timeout.
+   */
+  public void stop(long timeout, TimeUnit unit) throws InterruptedException {
+    //
+    if (!this.running.compareAndSet(true, false)) {
+      return;
+    }
+
+    //
+    this.executor.shutdown();
+    if (!this.executor.awaitTermination(timeout, unit)) {
+      LOGGER.warn("timeout waiting for the dispatcher to drain, discarding its queued events");
+      this.executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return the position after the last transaction whose events were all delivered, or null if
+   *         none was yet
+   */
+  public synchronized BinlogPosition getCommittedPosition() {
+    //
+    long watermark = this.dispatched;
+    final Partition[] workers = this.workers;
+    if (workers != null) {
+      for (Partition worker : workers) {
+        final long completed = worker.completed;
+        if (completed < worker.enqueued) watermark = Math.min(watermark, completed);
+      }
+    }
+
+    //
+    for (Boundary b = this.boundaries.peek(); b != null; b = this.boundaries.peek()) {
+      if (b.sequence > watermark) break;
+      this.committedPosition = b.position;
+      this.boundaries.poll();
+    }
+    return this.committedPosition;
+  }
+
+  /**
+	 * 
+	 */
+  public void onEvents(BinlogEventV4 event) {
+    //
+    if (event == null || !isRunning()) {
+      return;
+    }
+
+    //
+    final long seq = ++this.sequence;
+    if (event instanceof AbstractRowEvent) {
+      final AbstractRowEvent re = (AbstractRowEvent) event;
+      dispatch(seq, re, this.routes.get(re.getTableId()));
+    } else if (event instanceof TableMapEvent) {
+      final TableMapEvent tme = (TableMapEvent) event;
+      this.routes.put(tme.getTableId(), route(tme));
+    } else {
+      if (event instanceof QueryEvent && !TransactionBoundary.isBegin((QueryEvent) event)) {
+        drain();
+      } else if (event instanceof RotateEvent) {
+        this.routes.clear();
+        for (Partition worker : this.workers) worker.tableMapEvents.clear();
+      }
+      this.workers[0].put(new Item(seq, event));
+    }
+
+    //
+    final BinlogPosition boundary = getBoundary(event);
+    if (boundary != null) this.boundaries.offer(new Boundary(seq, boundary));
+    this.dispatched = seq;
+    if (boundary != null) getCommittedPosition(); // Keeps the boundaries short
+  }
+
+  /**
+	 * 
+	 */
+  private void dispatch(long seq, AbstractRowEvent event, Route route) {
+    //
+    if (route == null) {
+      this.workers[partition(Long.valueOf(event.getTableId()).hashCode())]
+          .put(new Item(seq, event));
+      return;
+    }
+
+    //
+    final List<?> rows = getRows(event);
+    final int[] indexes = route.keyColumns == null ? null : indexOf(event, route.keyColumns);
+    if (indexes == null || rows == null || rows.size() <= 1) {
+      dispatch(seq, event, route, partition(route.hash));
+      return;
+    }
+
+    // Groups the rows by partition, in binlog order
+    final List<Object>[] parts = newParts();
+    int count = 0, last = -1;
+    for (Object row : rows) {
+      final Row r = row instanceof Pair ? (Row) ((Pair<?>) row).getBefore() : (Row) row;
+      final int p = partition(route.hash * 31 + hash(r, indexes));
+      if (parts[p] == null) {
+        parts[p] = new ArrayList<Object>();
+        count++;
+      }
+      parts[p].add(row);
+      last = p;
+    }
+
+    //
+    if (count == 1) {
+      dispatch(seq, event, route, last);
+      return;
+    }
+    for (int p = 0; p < parts.length; p++) {
+      if (parts[p] != null) dispatch(seq, copyOf(event, parts[p]), route, p);
+    }
+  }
+
+  private void dispatch(long seq, AbstractRowEvent event, Route route, int partition) {
+    final Partition worker = this.workers[partition];
+    if (worker.tableMapEvents.put(route.tme.getTableId(), route.tme) != route.tme) {
+      worker.put(new Item(-1, route.tme));
+    }
+    worker.put(new Item(seq, event));
+  }
+
+  /**
+   * Blocks the parser until every event queued so far was delivered.
+   */
+  private void drain() {
+    for (Partition worker : this.workers) {
+      while (worker.completed < worker.enqueued) {
+        if (!isRunning()) return;
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private BinlogPosition getBoundary(BinlogEventV4 event) {
+    //
+    final boolean boundary = this.transactions.update(event);
+    if (event instanceof RotateEvent) {
+      final RotateEvent re = (RotateEvent) event;
+      this.binlogFileName = re.getBinlogFileName().toString();
+      return boundary ? new BinlogPosition(this.binlogFileName, re.getBinlogPosition()) : null;
+    }
+
+    //
+    if (!boundary || this.binlogFileName == null) {
+      return null;
+    }
+    return new BinlogPosition(this.binlogFileName, event.getHeader().getNextPosition());
+  }
+
+  private Route route(TableMapEvent tme) {
+    final String table = tme.getDatabaseName().toString() + "." + tme.getTableName().toString();
+    return new Route(tme, table.hashCode(), this.keyColumns.get(table));
+  }
+
+  private int partition(int hash) {
+    final int h = hash ^ (hash >>> 16);
+    return (h & Integer.MAX_VALUE) % this.workers.length;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private List<Object>[] newParts() {
+    return new List[this.workers.length];
+  }
+
+  /**
+	 * 
+	 */
+  private static int hash(Row row, int[] indexes) {
+    int r = 1;
+    final List<Column> columns = row.getColumns();
+    for (int index : indexes) {
+      final Object v = index < columns.size() ? columns.get(index).getValue() : null;
+      if (v instanceof byte[]) r = r * 31 + Arrays.hashCode((byte[]) v);
+      else r = r * 31 + (v == null ? 0 : v.hashCode());
+    }
+    return r;
+  }
+
+  /**
+   * @return the indexes in the rows of the given event of the given columns, or null if one of them
+   *         is missing
+   */
+  private static int[] indexOf(AbstractRowEvent event, int[] columns) {
+    //
+    final BitColumn used = getUsedColumns(event);
+    if (used == null) return null;
+
+    //
+    final int[] r = new int[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      if (columns[i] >= used.getLength() || !used.get(columns[i])) return null;
+      int index = 0;
+      for (int j = 0; j < columns[i]; j++) {
+        if (used.get(j)) index++;
+      }
+      r[i] = index;
+    }
+    return r;
+  }
+
+  private static List<?> getRows(AbstractRowEvent event) {
+    if (event instanceof WriteRowsEventV2) return ((WriteRowsEventV2) event).getRows();
+    else if (event instanceof UpdateRowsEventV2) return ((UpdateRowsEventV2) event).getRows();
+    else if (event instanceof DeleteRowsEventV2) return ((DeleteRowsEventV2) event).getRows();
+    else if (event instanceof WriteRowsEvent) return ((WriteRowsEvent) event).getRows();
+    else if (event instanceof UpdateRowsEvent) return ((UpdateRowsEvent) event).getRows();
+    else if (event instanceof DeleteRowsEvent) return ((DeleteRowsEvent) event).getRows();
+    return null;
+  }
+
+  private static BitColumn getUsedColumns(AbstractRowEvent event) {
+    if (event instanceof WriteRowsEventV2) return ((WriteRowsEventV2) event).getUsedColumns();
+    else if (event instanceof UpdateRowsEventV2) {
+      return ((UpdateRowsEventV2) event).getUsedColumnsBefore();
+    } else if (event instanceof DeleteRowsEventV2) {
+      return ((DeleteRowsEventV2) event).getUsedColumns();
+    } else if (event instanceof WriteRowsEvent) return ((WriteRowsEvent) event).getUsedColumns();
+    else if (event instanceof UpdateRowsEvent) {
+      return ((UpdateRowsEvent) event).getUsedColumnsBefore();
+    } else if (event instanceof DeleteRowsEvent) return ((DeleteRowsEvent) event).getUsedColumns();
+    return null;
+  }
+
+  /**
+   * @return a copy of the given event holding the given rows instead of its own
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static AbstractRowEvent copyOf(AbstractRowEvent event, List rows) {
+    //
+    final AbstractRowEvent r;
+    if (event instanceof WriteRowsEventV2) {
+      final WriteRowsEventV2 e = (WriteRowsEventV2) event;
+      final WriteRowsEventV2 c = new WriteRowsEventV2(e.getHeader());
+      c.setExtraInfoLength(e.getExtraInfoLength());
+      c.setExtraInfo(e.getExtraInfo());
+      c.setColumnCount(e.getColumnCount());
+      c.setUsedColumns(e.getUsedColumns());
+      c.setRows(rows);
+      r = c;
+    } else if (event instanceof UpdateRowsEventV2) {
+      final UpdateRowsEventV2 e = (UpdateRowsEventV2) event;
+      final UpdateRowsEventV2 c = new UpdateRowsEventV2(e.getHeader());
+      c.setExtraInfoLength(e.getExtraInfoLength());
+      c.setExtraInfo(e.getExtraInfo());
+      c.setColumnCount(e.getColumnCount());
+      c.setUsedColumnsBefore(e.getUsedColumnsBefore());
+      c.setUsedColumnsAfter(e.getUsedColumnsAfter());
+      c.setRows(rows);
+      r = c;
+    } else if (event instanceof DeleteRowsEventV2) {
+      final DeleteRowsEventV2 e = (DeleteRowsEventV2) event;
+      final DeleteRowsEventV2 c = new DeleteRowsEventV2(e.getHeader());
+      c.setExtraInfoLength(e.getExtraInfoLength());
+      c.setExtraInfo(e.getExtraInfo());
+      c.setColumnCount(e.getColumnCount());
+      c.setUsedColumns(e.getUsedColumns());
+      c.setRows(rows);
+      r = c;
+    } else if (event instanceof WriteRowsEvent) {
+      final WriteRowsEvent e = (WriteRowsEvent) event;
+      final WriteRowsEvent c = new WriteRowsEvent(e.getHeader());
+      c.setColumnCount(e.getColumnCount());
+      c.setUsedColumns(e.getUsedColumns());
+      c.setRows(rows);
+      r = c;
+    } else if (event instanceof UpdateRowsEvent) {
+      final UpdateRowsEvent e = (UpdateRowsEvent) event;
+      final UpdateRowsEvent c = new UpdateRowsEvent(e.getHeader());
+      c.setColumnCount(e.getColumnCount());
+      c.setUsedColumnsBefore(e.getUsedColumnsBefore());
+      c.setUsedColumnsAfter(e.getUsedColumnsAfter());
+      c.setRows(rows);
+      r = c;
+    } else {
+      final DeleteRowsEvent e = (DeleteRowsEvent) event;
+      final DeleteRowsEvent c = new DeleteRowsEvent(e.getHeader());
+      c.setColumnCount(e.getColumnCount());
+      c.setUsedColumns(e.getUsedColumns());
+      c.setRows(rows);
+      r = c;
+    }
+
+    //
+    r.setTableId(event.getTableId());
+    r.setReserved(event.getReserved());
+    r.setDatabaseName(event.getDatabaseName());
+    r.setTableName(event.getTableName());
+    return r;
+  }
+
+  /**
+   * The partitioning of the rows events of a table map.
+   */
+  private static final class Route {
+    //
+    private final TableMapEvent tme;
+    private final int hash;
+    private final int[] keyColumns;
+
+    /**
+		 * 
+		 */
+    public Route(TableMapEvent tme, int hash, int[] keyColumns) {
+      this.tme = tme;
+      this.hash = hash;
+      this.keyColumns = keyColumns;
+    }
+  }
+
+  private static final class Boundary {
+    //
+    private final long sequence;
+    private final BinlogPosition position;
+
+    /**
+		 * 
+		 */
+    public Boundary(long sequence, BinlogPosition position) {
+      this.sequence = sequence;
+      this.position = position;
+    }
+  }
+
+  /**
+   * An event queued in a partition, table map events sent ahead of rows do not count toward the
+   * progress of the partition.
+   */
+  private static final class Item {
+    //
+    private final long sequence;
+    private final BinlogEventV4 event;
+
+    /**
+		 * 
+		 */
+    public Item(long sequence, BinlogEventV4 event) {
+      this.sequence = sequence;
+      this.event = event;
+    }
+  }
+
+  /**
+   * A worker thread delivering the events of its queue in order.
+   */
+  private final class Partition implements Runnable {
+    //
+    private final BlockingQueue<Item> queue;
+    private final Map<Long, TableMapEvent> tableMapEvents = new HashMap<Long, TableMapEvent>();
+    private volatile long enqueued;
+    private volatile long completed;
+
+    /**
+		 * 
+		 */
+    public Partition() {
+      this.queue = new ArrayBlockingQueue<Item>(Math.max(1, queueCapacity));
+    }
+
+    /**
+		 * 
+		 */
+    public void run() {
+      try {
+        while (true) {
+          //
+          final Item item = this.queue.poll(100, TimeUnit.MILLISECONDS);
+          if (item == null) {
+            if (!isRunning()) return;
+            continue;
+          }
+
+          //
+          try {
+            eventListener.onEvents(item.event);
+          } catch (Exception e) {
+            LOGGER.error("failed to notify binlog event listener, event: " + item.event, e);
+          }
+          if (item.sequence > 0) this.completed = item.sequence;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * Blocks the parser while the queue is full.
+     */
+    private void put(Item item) {
+      if (item.sequence > 0) this.enqueued = item.sequence;
+      try {
+        while (!this.queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+          if (!isRunning()) return;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,407 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.BinlogEventParser;
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.BinlogParserContext;
+import com.google.code.or.binlog.BinlogRowListener;
+import com.google.code.or.binlog.BinlogRowViewListener;
+import com.google.code.or.binlog.BinlogTableMapStore;
+import com.google.code.or.binlog.ext.XChecksum;
+import com.google.code.or.binlog.impl.event.BinlogEventV4HeaderImpl;
+import com.google.code.or.binlog.impl.event.RotateEvent;
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+import com.google.code.or.binlog.impl.parser.AbstractRowEventParser;
+import com.google.code.or.common.util.MySQLConstants;
+import com.google.code.or.io.XInputStream;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
+import com.google.code.or.net.impl.packet.EOFPacket;
+import com.google.code.or.net.impl.packet.ErrorPacket;
+import com.google.code.or.net.impl.packet.OKPacket;
+
+/**
+ * A replication parser that splits the work over three stages: the worker thread reads whole event
+ * frames from the transport, rows events are decoded by a pool of decoder threads and a sequencer
+ * thread hands the decoded events to the listener in strict binlog order.
+ * <p>
+ * Table map, rotate and the other non rows events are decoded by the worker thread itself, so each
+ * rows event is decoded against the {@link TableMapEvent} that preceded it in the binlog. The
+ * checksum trailers are verified and stripped by the worker thread. The
+ * {@link com.google.code.or.common.glossary.RowView} decoding mode is not supported since its
+ * buffers can not be shared by the decoder threads, neither is streaming rows since the decoder
+ * threads would deliver them out of order.
+ * <p>
+ * The frames read ahead of the sequencer are bounded by {@link #getQueueSize()} bytes, a frame
+ * larger than the queue takes it whole.
+ */
+public class PipelinedBinlogParser extends ReplicationBasedBinlogParser {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(PipelinedBinlogParser.class);
+
+  //
+  protected int queueSize = 64 * 1024 * 1024;
+  protected int decoderThreads = Runtime.getRuntime().availableProcessors();
+
+  //
+  protected Thread sequencer;
+  protected ExecutorService decoders;
+  protected BlockingQueue<DecodeFuture> pending;
+  protected Semaphore space;
+  protected final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+  /**
+	 * 
+	 */
+  public PipelinedBinlogParser() {}
+
+  @Override
+  protected void doStart() throws Exception {
+    this.failure.set(null);
+    this.pending = new LinkedBlockingQueue<DecodeFuture>();
+    this.space = new Semaphore(Math.max(1, this.queueSize));
+    this.decoders = Executors.newFixedThreadPool(this.decoderThreads, this.threadFactory);
+    final Context context = new Context(this.binlogFileName, new TableMapCache()); // Lags behind
+    this.sequencer = this.threadFactory.newThread(new Sequencer(context));
+    this.sequencer.start();
+  }
+
+  @Override
+  protected void doStop(long timeout, TimeUnit unit) throws Exception {
+    if (this.decoders != null) this.decoders.shutdownNow();
+    if (this.sequencer != null) this.sequencer.interrupt();
+    if (this.pending != null) this.pending.clear();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    //
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    if (!super.awaitTermination(timeout, unit)) return false;
+
+    // Delivers the events
+    final Thread t = this.sequencer;
+    if (t == null || t == Thread.currentThread()) return true;
+    TimeUnit.NANOSECONDS.timedJoin(t, deadline - System.nanoTime());
+    return !t.isAlive();
+  }
+
+  /**
+	 * 
+	 */
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  /**
+   * @param queueSize in bytes of binlog, of the frames read ahead of the sequencer
+   */
+  public void setQueueSize(int queueSize) {
+    this.queueSize = queueSize;
+  }
+
+  public int getDecoderThreads() {
+    return decoderThreads;
+  }
+
+  public void setDecoderThreads(int decoderThreads) {
+    this.decoderThreads = decoderThreads;
+  }
+
+  @Override
+  public void setRowViewListener(BinlogRowViewListener listener) {
+    throw new UnsupportedOperationException("row views are not supported by pipelined parsing");
+  }
+
+  @Override
+  public void setRowListener(BinlogRowListener listener) {
+    throw new UnsupportedOperationException("row streaming is not supported by pipelined parsing");
+  }
+
+  /**
+	 * 
+	 */
+  @Override
+  protected void doParse() throws Exception {
+    //
+    final XInputStream is = this.transport.getInputStream();
+    final BinlogTableMapStore tableMapEvents =
+        this.tableMapStore != null ? this.tableMapStore : new TableMapCache();
+    String binlogFileName = this.binlogFileName;
+    try {
+      while (isRunning()) {
+        //
+        checkFailure();
+        final byte[] frame;
+        final int packetSequence;
+        try {
+          // Parse packet
+          final int packetLength = is.readInt(3);
+          packetSequence = is.readInt(1);
+          is.setReadLimit(packetLength); // Ensure the packet boundary
+
+          //
+          final int packetMarker = is.readInt(1);
+          if (packetMarker != OKPacket.PACKET_MARKER) { // 0x00
+            if ((byte) packetMarker == ErrorPacket.PACKET_MARKER) {
+              final ErrorPacket packet =
+                  ErrorPacket.valueOf(packetLength, packetSequence, packetMarker, is);
+              throw new RuntimeException(packet.toString());
+            } else if ((byte) packetMarker == EOFPacket.PACKET_MARKER) {
+              final EOFPacket packet =
+                  EOFPacket.valueOf(packetLength, packetSequence, packetMarker, is);
+              throw new RuntimeException(packet.toString());
+            } else {
+              throw new RuntimeException("assertion failed, invalid packet marker: "
+                  + packetMarker);
+            }
+          }
+
+          //
+          frame = new byte[packetLength - 1];
+          is.read(frame, 0, frame.length);
+        } finally {
+          is.setReadLimit(0);
+        }
+
+        // Verify and strip the checksum, a format description event picks the next ones
+        int length = frame.length;
+        if (readLong(frame, 4, 1) == MySQLConstants.FORMAT_DESCRIPTION_EVENT) {
+          length = onFormatDescription(frame, HEADER_LENGTH, length - HEADER_LENGTH);
+          length += HEADER_LENGTH;
+        } else if (getEventChecksum() != null) {
+          length -= CHECKSUM_LENGTH;
+        }
+        final XChecksum checksum = getEventChecksum();
+        if (checksum != null && length < frame.length) {
+          checksum.reset();
+          checksum.update(frame, 0, length);
+          checksum.validateAndReset((int) readLong(frame, length, CHECKSUM_LENGTH));
+        }
+
+        // Parse the event header
+        final BinlogEventV4HeaderImpl header = new BinlogEventV4HeaderImpl();
+        header.setTimestamp(readLong(frame, 0, 4) * 1000L);
+        header.setEventType((int) readLong(frame, 4, 1));
+        header.setServerId(readLong(frame, 5, 4));
+        header.setEventLength(readLong(frame, 9, 4));
+        header.setNextPosition(readLong(frame, 13, 4));
+        header.setFlags((int) readLong(frame, 17, 2));
+        header.setTimestampOfReceipt(System.currentTimeMillis());
+        if (isVerbose() && LOGGER.isInfoEnabled()) {
+          LOGGER.info("received an event, sequence: {}, header: {}", packetSequence, header);
+        }
+
+        //
+        final DecodeContext context = new DecodeContext(binlogFileName, tableMapEvents, null);
+        if (this.eventFilter != null && !this.eventFilter.accepts(header, context)) {
+          continue;
+        }
+        BinlogEventParser parser = getEventParser(header.getEventType());
+        if (parser == null) parser = this.defaultParser;
+
+        // Rows events are decoded by the decoder threads
+        if (parser instanceof AbstractRowEventParser) {
+          final long tableId = readLong(frame, HEADER_LENGTH, 6);
+          final TableMapEvent tme = tableMapEvents.get(tableId);
+          final DecodeContext dc = new DecodeContext(binlogFileName, null, tme);
+          final DecodeFuture task = newTask(new DecodeTask(parser, header, frame, length, dc));
+          if (enqueue(task)) this.decoders.execute(task);
+          continue;
+        }
+
+        // The others are decoded in place to keep track of the table maps
+        final DecodeFuture task = newTask(new DecodeTask(parser, header, frame, length, context));
+        task.run();
+        for (BinlogEventV4 event : get(task)) {
+          if (event instanceof TableMapEvent) {
+            final TableMapEvent tme = (TableMapEvent) event;
+            tableMapEvents.put(tme);
+          } else if (event instanceof RotateEvent) {
+            final RotateEvent re = (RotateEvent) event;
+            binlogFileName = re.getBinlogFileName().toString();
+            if (isClearTableMapEventsOnRotate()) tableMapEvents.clear();
+          }
+        }
+        enqueue(task);
+      }
+    } catch (Exception e) {
+      // The sequencer's failure is the root cause of stopping the parser
+      final Exception f = this.failure.get();
+      throw f != null ? f : e;
+    }
+  }
+
+  /**
+	 * 
+	 */
+  private void checkFailure() throws Exception {
+    final Exception f = this.failure.get();
+    if (f != null) throw f;
+  }
+
+  private DecodeFuture newTask(DecodeTask task) {
+    final int capacity = Math.max(1, this.queueSize);
+    return new DecodeFuture(task, (int) Math.max(1, Math.min(capacity, task.frame.length)));
+  }
+
+  /**
+   * @return false if the parser was stopped before there was room for the task
+   */
+  private boolean enqueue(DecodeFuture task) throws Exception {
+    while (!this.space.tryAcquire(task.size, 100, TimeUnit.MILLISECONDS)) {
+      if (!isRunning()) return false;
+      checkFailure();
+    }
+    this.pending.put(task);
+    return true;
+  }
+
+  private static List<BinlogEventV4> get(Future<List<BinlogEventV4>> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Exception) throw (Exception) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw e;
+    }
+  }
+
+  /**
+	 * 
+	 */
+  protected class Sequencer implements Runnable {
+    //
+    private final Context context;
+
+    public Sequencer(Context context) {
+      this.context = context;
+    }
+
+    public void run() {
+      try {
+        while (isRunning()) {
+          final DecodeFuture future = pending.take();
+          for (BinlogEventV4 event : get(future)) {
+            this.context.onEvents(event);
+          }
+          space.release(future.size);
+        }
+      } catch (InterruptedException e) {
+        // NOP
+      } catch (Exception e) {
+        LOGGER.error("failed to decode binlog event", e);
+        failure.compareAndSet(null, e);
+        try {
+          stop(0, TimeUnit.MILLISECONDS);
+        } catch (Exception ex) {
+          LOGGER.error("failed to stop binlog parser", ex);
+        }
+      }
+    }
+  }
+
+  protected static class DecodeFuture extends FutureTask<List<BinlogEventV4>> {
+    //
+    private final int size;
+
+    public DecodeFuture(DecodeTask task, int size) {
+      super(task);
+      this.size = size;
+    }
+  }
+
+  protected static class DecodeTask implements Callable<List<BinlogEventV4>> {
+    //
+    private final byte[] frame;
+    private final int length;
+    private final DecodeContext context;
+    private final BinlogEventParser parser;
+    private final BinlogEventV4HeaderImpl header;
+
+    public DecodeTask(BinlogEventParser parser, BinlogEventV4HeaderImpl header, byte[] frame,
+        int length, DecodeContext context) {
+      this.frame = frame;
+      this.length = length;
+      this.parser = parser;
+      this.header = header;
+      this.context = context;
+    }
+
+    public List<BinlogEventV4> call() throws Exception {
+      final int size = this.length - HEADER_LENGTH;
+      final XInputStream is = new ByteArrayXInputStream(this.frame, HEADER_LENGTH, size);
+      if (size > 0) is.setReadLimit(size);
+      this.parser.parse(is, this.header, this.context);
+      return this.context.events;
+    }
+  }
+
+  /**
+   * Collects the decoded events of one frame instead of delivering them. The rows events decoded
+   * off the reader thread only see the table map they refer to as of their frame.
+   */
+  protected static class DecodeContext implements BinlogParserContext, BinlogEventListener {
+    //
+    private final String binlogFileName;
+    private final BinlogTableMapStore tableMapEvents;
+    private final TableMapEvent tableMapEvent;
+    private final List<BinlogEventV4> events = new ArrayList<BinlogEventV4>(1);
+
+    public DecodeContext(String binlogFileName, BinlogTableMapStore tableMapEvents,
+        TableMapEvent tableMapEvent) {
+      this.binlogFileName = binlogFileName;
+      this.tableMapEvents = tableMapEvents;
+      this.tableMapEvent = tableMapEvent;
+    }
+
+    public String getBinlogFileName() {
+      return this.binlogFileName;
+    }
+
+    public BinlogEventListener getEventListener() {
+      return this;
+    }
+
+    public TableMapEvent getTableMapEvent(long tableId) {
+      if (this.tableMapEvents != null) return this.tableMapEvents.get(tableId);
+      final TableMapEvent r = this.tableMapEvent;
+      return r != null && r.getTableId() == tableId ? r : null;
+    }
+
+    public void onEvents(BinlogEventV4 event) {
+      if (event != null) this.events.add(event);
+    }
+  }
+}
@@ -19,7 +19,6 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.code.or.binlog.BinlogEventParser;
 import com.google.code.or.binlog.impl.event.BinlogEventV4HeaderImpl;
 import com.google.code.or.io.XInputStream;
 import com.google.code.or.net.Transport;
@@ -39,7 +38,6 @@ public class ReplicationBasedBinlogParser extends AbstractBinlogParser {
   protected Transport transport;
   protected String binlogFileName;
 
-
   /**
 	 * 
 	 */
@@ -106,33 +104,19 @@ public class ReplicationBasedBinlogParser extends AbstractBinlogParser {
         }
 
         // Parse the event header
-        final BinlogEventV4HeaderImpl header = new BinlogEventV4HeaderImpl();
-        header.setTimestamp(is.readLong(4) * 1000L);
-        header.setEventType(is.readInt(1));
-        header.setServerId(is.readLong(4));
-        header.setEventLength(is.readInt(4));
-        header.setNextPosition(is.readLong(4));
-        header.setFlags(is.readInt(2));
-        header.setTimestampOfReceipt(System.currentTimeMillis());
+        final BinlogEventV4HeaderImpl header = parseEventHeader(is);
         if (isVerbose() && LOGGER.isInfoEnabled()) {
           LOGGER.info("received an event, sequence: {}, header: {}", packetSequence, header);
         }
 
         // Parse the event body
-        if (this.eventFilter != null && !this.eventFilter.accepts(header, context)) {
-          this.defaultParser.parse(is, header, context);
-        } else {
-          BinlogEventParser parser = getEventParser(header.getEventType());
-          if (parser == null) parser = this.defaultParser;
-          parser.parse(is, header, context);
-        }
+        parseEventBody(is, header, context);
 
         // Ensure the packet boundary
-        System.err.println(Integer.toString(is.available(), 2));
-        /*
-         * if(is.available() != 0) { throw new RuntimeException("assertion failed, available: " +
-         * is.available() + ", event type: " + header.getEventType()); }
-         */
+        if (is.available() != 0) {
+          throw new RuntimeException("assertion failed, available: " + is.available()
+              + ", event type: " + header.getEventType());
+        }
       } finally {
         is.setReadLimit(0);
       }
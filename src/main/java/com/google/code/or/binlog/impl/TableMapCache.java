@@ -0,0 +1,290 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.code.or.binlog.BinlogTableMapStore;
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+
+/**
+ * An open addressing table of the table map events keyed by their primitive table ids, optionally
+ * bounded to a maximum size by evicting the least recently used table maps, approximated by a
+ * clock sweep over the table maps in the order they were first put.
+ * <p>
+ * Lookups take no lock, the slots are read through an {@link AtomicReferenceArray} and removed
+ * entries are left as tombstones, so a lookup never misses a table map that is in the table while
+ * it is being updated. Updates are serialized, and the table is rebuilt into a new array once the
+ * tombstones and entries fill it up. The hit count is not synchronized and is approximate when the
+ * cache is read by several threads.
+ */
+public class TableMapCache implements BinlogTableMapStore {
+  //
+  private static final int INITIAL_CAPACITY = 64;
+  private static final Entry TOMBSTONE = new Entry(-1L, null, -1);
+
+  //
+  private final int maxSize;
+  private volatile AtomicReferenceArray<Entry> table;
+  private Entry[] clock;
+  private int size;
+  private int tombstones;
+  private int hand;
+  private long hits;
+  private volatile long misses;
+  private volatile long evictions;
+
+  /**
+	 * 
+	 */
+  public TableMapCache() {
+    this(0);
+  }
+
+  /**
+   * @param maxSize the maximum number of table maps, or 0 for no limit
+   */
+  public TableMapCache(int maxSize) {
+    if (maxSize < 0) throw new IllegalArgumentException("invalid max size: " + maxSize);
+    this.maxSize = maxSize;
+    this.table = new AtomicReferenceArray<Entry>(INITIAL_CAPACITY);
+    if (maxSize > 0) this.clock = new Entry[Math.min(maxSize, INITIAL_CAPACITY)];
+  }
+
+  /**
+	 * 
+	 */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getHitCount() {
+    return hits;
+  }
+
+  public long getMissCount() {
+    return misses;
+  }
+
+  public long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+	 * 
+	 */
+  public TableMapEvent get(long tableId) {
+    //
+    final AtomicReferenceArray<Entry> t = this.table;
+    final int mask = t.length() - 1;
+    for (int i = hash(tableId) & mask;; i = (i + 1) & mask) {
+      final Entry e = t.get(i);
+      if (e == null) break;
+      if (e.tableId == tableId && e != TOMBSTONE) {
+        if (!e.referenced) e.referenced = true;
+        this.hits++;
+        return e.event;
+      }
+    }
+
+    //
+    synchronized (this) {
+      this.misses++;
+    }
+    return null;
+  }
+
+  public synchronized void put(TableMapEvent event) {
+    //
+    final long tableId = event.getTableId();
+    AtomicReferenceArray<Entry> t = this.table;
+    int mask = t.length() - 1;
+    int free = -1;
+    int i = hash(tableId) & mask;
+    for (Entry e; (e = t.get(i)) != null; i = (i + 1) & mask) {
+      if (e == TOMBSTONE) {
+        if (free < 0) free = i;
+      } else if (e.tableId == tableId) {
+        final Entry r = new Entry(tableId, event, e.index); // Replaces it in place
+        t.set(i, r);
+        if (this.clock != null) this.clock[r.index] = r;
+        return;
+      }
+    }
+
+    //
+    int index = -1;
+    if (this.clock != null) {
+      if (this.size >= this.maxSize) {
+        index = evict(t);
+      } else {
+        index = this.size;
+        if (index == this.clock.length) {
+          this.clock = Arrays.copyOf(this.clock, Math.min(this.maxSize, index * 2));
+        }
+      }
+    }
+    if (free < 0 && (this.size + this.tombstones + 1) * 4 > t.length() * 3) {
+      t = rebuild(this.size + 1);
+      mask = t.length() - 1;
+      for (i = hash(tableId) & mask; t.get(i) != null; i = (i + 1) & mask);
+    }
+
+    //
+    if (free < 0) {
+      free = i;
+    } else if (t.get(free) == TOMBSTONE) {
+      this.tombstones--;
+    }
+    final Entry r = new Entry(tableId, event, index);
+    t.set(free, r);
+    if (this.clock != null) this.clock[index] = r;
+    this.size++;
+  }
+
+  public synchronized TableMapEvent remove(long tableId) {
+    //
+    final AtomicReferenceArray<Entry> t = this.table;
+    final int mask = t.length() - 1;
+    int i = hash(tableId) & mask;
+    Entry e;
+    for (;; i = (i + 1) & mask) {
+      e = t.get(i);
+      if (e == null) return null;
+      if (e.tableId == tableId && e != TOMBSTONE) break;
+    }
+    t.set(i, TOMBSTONE);
+    this.size--;
+    this.tombstones++;
+
+    // Moves the last table map of the clock into the freed index, so that the clock stays full
+    if (this.clock != null) {
+      final Entry last = this.clock[this.size];
+      this.clock[this.size] = null;
+      if (last != e) {
+        final Entry r = new Entry(last.tableId, last.event, e.index);
+        r.referenced = last.referenced;
+        for (i = hash(last.tableId) & mask; t.get(i) != last; i = (i + 1) & mask);
+        t.set(i, r);
+        this.clock[r.index] = r;
+      }
+    }
+    return e.event;
+  }
+
+  public synchronized void clear() {
+    this.table = new AtomicReferenceArray<Entry>(INITIAL_CAPACITY);
+    if (this.clock != null) this.clock = new Entry[Math.min(this.maxSize, INITIAL_CAPACITY)];
+    this.size = 0;
+    this.tombstones = 0;
+    this.hand = 0;
+  }
+
+  public synchronized int size() {
+    return this.size;
+  }
+
+  public synchronized List<TableMapEvent> values() {
+    final AtomicReferenceArray<Entry> t = this.table;
+    final List<TableMapEvent> r = new ArrayList<TableMapEvent>(this.size);
+    for (int i = 0; i < t.length(); i++) {
+      final Entry e = t.get(i);
+      if (e != null && e != TOMBSTONE) r.add(e.event);
+    }
+    return r;
+  }
+
+  @Override
+  public String toString() {
+    return "TableMapCache[size=" + size() + ",maxSize=" + this.maxSize + ",hits=" + this.hits
+        + ",misses=" + this.misses + ",evictions=" + this.evictions + "]";
+  }
+
+  /**
+   * Sweeps the table maps from the clock hand, giving the recently used ones a second chance, and
+   * replaces the first other one by a tombstone.
+   *
+   * @return the clock index of the evicted table map
+   */
+  private int evict(AtomicReferenceArray<Entry> t) {
+    //
+    Entry e;
+    while (true) {
+      e = this.clock[this.hand];
+      this.hand = (this.hand + 1) % this.maxSize;
+      if (!e.referenced) break;
+      e.referenced = false;
+    }
+
+    //
+    final int mask = t.length() - 1;
+    for (int i = hash(e.tableId) & mask;; i = (i + 1) & mask) {
+      if (t.get(i) == e) {
+        t.set(i, TOMBSTONE);
+        break;
+      }
+    }
+    this.size--;
+    this.tombstones++;
+    this.evictions++;
+    return e.index;
+  }
+
+  private AtomicReferenceArray<Entry> rebuild(int size) {
+    //
+    int capacity = INITIAL_CAPACITY;
+    while (size * 2 > capacity) capacity <<= 1;
+    final AtomicReferenceArray<Entry> t = this.table;
+    final Entry[] entries = new Entry[capacity];
+    for (int i = 0; i < t.length(); i++) {
+      final Entry e = t.get(i);
+      if (e == null || e == TOMBSTONE) continue;
+      int j = hash(e.tableId) & (capacity - 1);
+      while (entries[j] != null) j = (j + 1) & (capacity - 1);
+      entries[j] = e;
+    }
+
+    //
+    final AtomicReferenceArray<Entry> r = new AtomicReferenceArray<Entry>(entries);
+    this.table = r;
+    this.tombstones = 0;
+    return r;
+  }
+
+  private static int hash(long tableId) {
+    final int h = (int) (tableId ^ (tableId >>> 32)) * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static final class Entry {
+    //
+    private final long tableId;
+    private final TableMapEvent event;
+    private final int index;
+    private boolean referenced;
+
+    /**
+		 * 
+		 */
+    public Entry(long tableId, TableMapEvent event, int index) {
+      this.tableId = tableId;
+      this.event = event;
+      this.index = index;
+    }
+  }
+}
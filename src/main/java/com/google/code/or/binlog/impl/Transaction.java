@@ -0,0 +1,266 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.common.util.ToStringBuilder;
+
+/**
+ * A committed transaction: the events between its BEGIN and its commit, without them, in binlog
+ * order, along with its GTID, position range and commit timestamp. A statement logged outside of
+ * BEGIN and commit, such as a DDL statement, is a transaction of its own holding its query event.
+ * <p>
+ * The events are kept in memory, or in a spill file once their size goes past the threshold of
+ * the {@link TransactionAssembler}, in which case they are read back from the file lazily by
+ * {@link #iterator()}.
+ */
+public class Transaction implements Iterable<BinlogEventV4> {
+  //
+  private String gtid;
+  private String binlogFileName;
+  private long startPosition;
+  private long endPosition;
+  private long commitTimestamp;
+  private long xid = -1;
+  private int eventCount;
+  private long size;
+  private boolean begun;
+
+  //
+  private List<BinlogEventV4> events = new ArrayList<BinlogEventV4>();
+  private File spillFile;
+  private ObjectOutputStream spill;
+  private final List<Closeable> readers = new ArrayList<Closeable>(1);
+
+  /**
+	 * 
+	 */
+  Transaction(String binlogFileName, long startPosition) {
+    this.binlogFileName = binlogFileName;
+    this.startPosition = startPosition;
+  }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this).append("gtid", gtid).append("binlogFileName", binlogFileName)
+        .append("startPosition", startPosition).append("endPosition", endPosition)
+        .append("commitTimestamp", commitTimestamp).append("xid", xid)
+        .append("eventCount", eventCount).append("size", size).append("spillFile", spillFile)
+        .toString();
+  }
+
+  /**
+   * @return the GTID of the transaction, or null if the server does not log them
+   */
+  public String getGtid() {
+    return gtid;
+  }
+
+  public String getBinlogFileName() {
+    return binlogFileName;
+  }
+
+  /**
+   * @return the position of the first event of the transaction, its GTID event if any
+   */
+  public long getStartPosition() {
+    return startPosition;
+  }
+
+  /**
+   * @return the position right after the commit of the transaction
+   */
+  public long getEndPosition() {
+    return endPosition;
+  }
+
+  public long getCommitTimestamp() {
+    return commitTimestamp;
+  }
+
+  /**
+   * @return the xid of the commit, or -1 if it was committed by a query such as COMMIT
+   */
+  public long getXid() {
+    return xid;
+  }
+
+  public int getEventCount() {
+    return eventCount;
+  }
+
+  /**
+   * @return the total length in the binlog of the events of the transaction
+   */
+  public long getSize() {
+    return size;
+  }
+
+  public boolean isSpilled() {
+    return spillFile != null;
+  }
+
+  public File getSpillFile() {
+    return spillFile;
+  }
+
+  /**
+   * @return the events of the transaction, read back from the spill file as the iteration goes if
+   *         it was spilled
+   */
+  public Iterator<BinlogEventV4> iterator() {
+    if (this.spillFile == null) return this.events.iterator();
+    try {
+      final SpillIterator r = new SpillIterator();
+      this.readers.add(r);
+      return r;
+    } catch (IOException e) {
+      throw new IllegalStateException("failed to read spill file: " + this.spillFile, e);
+    }
+  }
+
+  /**
+	 * 
+	 */
+  boolean isBegun() {
+    return begun;
+  }
+
+  void setBegun(boolean begun) {
+    this.begun = begun;
+  }
+
+  void setGtid(String gtid) {
+    this.gtid = gtid;
+  }
+
+  boolean isEmpty() {
+    return this.eventCount == 0;
+  }
+
+  /**
+   * Adds the given event, spilling the events to a new file of the given directory once their size
+   * goes past the given threshold, unless it is not positive.
+   */
+  void add(BinlogEventV4 event, long threshold, File directory) throws IOException {
+    //
+    this.eventCount++;
+    this.size += event.getHeader().getEventLength();
+    if (this.spill != null) {
+      write(event);
+      return;
+    }
+
+    //
+    this.events.add(event);
+    if (threshold > 0 && this.size > threshold) {
+      this.spillFile = File.createTempFile("transaction-", ".spill", directory);
+      this.spill = new ObjectOutputStream(
+          new BufferedOutputStream(new FileOutputStream(this.spillFile), 64 * 1024));
+      for (BinlogEventV4 e : this.events) write(e);
+      this.events = null;
+    }
+  }
+
+  void commit(BinlogEventV4 event, long xid) throws IOException {
+    this.xid = xid;
+    this.endPosition = event.getHeader().getNextPosition();
+    this.commitTimestamp = event.getHeader().getTimestamp();
+    if (this.spill != null) {
+      this.spill.close();
+      this.spill = null;
+    }
+  }
+
+  /**
+   * Closes the readers of the spill file and deletes it.
+   */
+  void delete() {
+    for (Closeable reader : this.readers) closeQuietly(reader);
+    this.readers.clear();
+    if (this.spill != null) {
+      closeQuietly(this.spill);
+      this.spill = null;
+    }
+    if (this.spillFile != null) this.spillFile.delete();
+  }
+
+  private void write(BinlogEventV4 event) throws IOException {
+    this.spill.writeObject(event);
+    this.spill.reset(); // The stream would otherwise keep every event written
+  }
+
+  private static void closeQuietly(Closeable c) {
+    try {
+      c.close();
+    } catch (Exception e) {
+      // NOP
+    }
+  }
+
+  /**
+   * Reads the spilled events back one at a time.
+   */
+  private final class SpillIterator implements Iterator<BinlogEventV4>, Closeable {
+    //
+    private final ObjectInputStream is;
+    private int index = 0;
+
+    /**
+		 * 
+		 */
+    public SpillIterator() throws IOException {
+      this.is = new ObjectInputStream(
+          new BufferedInputStream(new FileInputStream(spillFile), 64 * 1024));
+    }
+
+    public boolean hasNext() {
+      return this.index < eventCount;
+    }
+
+    public BinlogEventV4 next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      try {
+        final BinlogEventV4 r = (BinlogEventV4) this.is.readObject();
+        if (++this.index == eventCount) close();
+        return r;
+      } catch (Exception e) {
+        throw new IllegalStateException("failed to read spill file: " + spillFile, e);
+      }
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+      closeQuietly(this.is);
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.BinlogTransactionListener;
+import com.google.code.or.binlog.impl.event.GtidEvent;
+import com.google.code.or.binlog.impl.event.QueryEvent;
+import com.google.code.or.binlog.impl.event.RotateEvent;
+import com.google.code.or.binlog.impl.event.XidEvent;
+
+/**
+ * A {@link BinlogEventListener} stage which assembles the events of a parser into
+ * {@link Transaction}s: a transaction starts with its GTID event or BEGIN query and ends with its
+ * Xid event or COMMIT (or ROLLBACK) query, any other query outside of a transaction is a
+ * transaction of its own. The events outside of transactions, such as rotate and format
+ * description events, are passed on to the event listener if any.
+ * <p>
+ * A transaction is buffered in memory until the total length of its events goes past
+ * {@link #getSpillThreshold()} bytes, from then on its events are written to a temporary file,
+ * which is deleted once the transaction listener returns. A transaction left incomplete, when the
+ * next one starts before its commit, is discarded.
+ */
+public class TransactionAssembler implements BinlogEventListener {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransactionAssembler.class);
+
+  //
+  private long spillThreshold = 16 * 1024 * 1024;
+  private File spillDirectory;
+  private String binlogFileName;
+  private BinlogEventListener eventListener;
+  private BinlogTransactionListener transactionListener;
+  private Transaction current;
+
+  /**
+	 * 
+	 */
+  public TransactionAssembler() {}
+
+  public TransactionAssembler(BinlogTransactionListener transactionListener) {
+    this.transactionListener = transactionListener;
+  }
+
+  /**
+	 * 
+	 */
+  public long getSpillThreshold() {
+    return spillThreshold;
+  }
+
+  /**
+   * @param threshold in bytes of binlog events, transactions are never spilled if not positive
+   */
+  public void setSpillThreshold(long threshold) {
+    this.spillThreshold = threshold;
+  }
+
+  public File getSpillDirectory() {
+    return spillDirectory;
+  }
+
+  /**
+   * @param directory of the spill files, the default temporary directory if null
+   */
+  public void setSpillDirectory(File directory) {
+    this.spillDirectory = directory;
+  }
+
+  public String getBinlogFileName() {
+    return binlogFileName;
+  }
+
+  /**
+   * Sets the name of the binlog file the events come from until the next rotate event.
+   */
+  public void setBinlogFileName(String name) {
+    this.binlogFileName = name;
+  }
+
+  public BinlogEventListener getEventListener() {
+    return eventListener;
+  }
+
+  public void setEventListener(BinlogEventListener listener) {
+    this.eventListener = listener;
+  }
+
+  public BinlogTransactionListener getTransactionListener() {
+    return transactionListener;
+  }
+
+  public void setTransactionListener(BinlogTransactionListener listener) {
+    this.transactionListener = listener;
+  }
+
+  /**
+   * Discards the transaction being assembled if any, for example before reconnecting from the
+   * start of the transaction.
+   */
+  public void reset() {
+    if (this.current != null) {
+      this.current.delete();
+      this.current = null;
+    }
+  }
+
+  /**
+	 * 
+	 */
+  public void onEvents(BinlogEventV4 event) {
+    try {
+      doAssemble(event);
+    } catch (IOException e) {
+      LOGGER.error("failed to spill transaction, discarding it: " + this.current, e);
+      reset();
+    }
+  }
+
+  protected void doAssemble(BinlogEventV4 event) throws IOException {
+    //
+    if (event instanceof GtidEvent) {
+      begin(event).setGtid(((GtidEvent) event).getGtid());
+      return;
+    } else if (event instanceof XidEvent) {
+      if (this.current != null && this.current.isBegun()) {
+        commit(event, ((XidEvent) event).getXid());
+        return;
+      }
+    } else if (event instanceof QueryEvent) {
+      final QueryEvent qe = (QueryEvent) event;
+      final boolean begun = this.current != null && this.current.isBegun();
+      if (TransactionBoundary.isBegin(qe)) {
+        if (this.current == null || this.current.isBegun() || !this.current.isEmpty()) {
+          begin(event);
+        }
+        this.current.setBegun(true);
+      } else if (begun && TransactionBoundary.isCommit(qe)) {
+        commit(event, -1);
+      } else if (begun) {
+        add(event);
+      } else { // A statement of its own, such as DDL
+        if (this.current == null) begin(event);
+        add(event);
+        commit(event, -1);
+      }
+      return;
+    }
+
+    //
+    if (this.current != null && this.current.isBegun()) {
+      add(event);
+      return;
+    }
+    if (event instanceof RotateEvent) {
+      this.binlogFileName = ((RotateEvent) event).getBinlogFileName().toString();
+    }
+    if (this.eventListener != null) {
+      this.eventListener.onEvents(event);
+    }
+  }
+
+  /**
+	 * 
+	 */
+  private Transaction begin(BinlogEventV4 event) {
+    if (this.current != null) {
+      LOGGER.warn("discarding incomplete transaction: {}", this.current);
+      reset();
+    }
+    this.current = new Transaction(this.binlogFileName, event.getHeader().getPosition());
+    return this.current;
+  }
+
+  private void add(BinlogEventV4 event) throws IOException {
+    this.current.add(event, this.spillThreshold, this.spillDirectory);
+  }
+
+  private void commit(BinlogEventV4 event, long xid) throws IOException {
+    final Transaction t = this.current;
+    try {
+      t.commit(event, xid);
+      this.current = null;
+      if (this.transactionListener != null) this.transactionListener.onTransaction(t);
+    } finally {
+      t.delete();
+    }
+  }
+}
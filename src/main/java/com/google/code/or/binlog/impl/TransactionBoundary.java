@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl;
+
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.impl.event.FormatDescriptionEvent;
+import com.google.code.or.binlog.impl.event.GtidEvent;
+import com.google.code.or.binlog.impl.event.QueryEvent;
+import com.google.code.or.binlog.impl.event.RotateEvent;
+import com.google.code.or.binlog.impl.event.XidEvent;
+
+/**
+ * Follows the transaction boundaries of a stream of binlog events, with the same rules as
+ * {@link TransactionAssembler}: a transaction starts with its GTID event or BEGIN query and ends
+ * with its Xid event or COMMIT (or ROLLBACK) query, any other query outside of a transaction is a
+ * transaction of its own. The keywords are compared case-insensitively.
+ * <p>
+ * Only the position right after a committed transaction, or after a rotate or format description
+ * event outside of a transaction, is a boundary: a parser started from there never sees the rows
+ * events of a transaction without their table map events. Table map and rows events are never
+ * boundaries, even without a BEGIN query.
+ */
+public class TransactionBoundary {
+  //
+  private static final byte[] BEGIN = {'B', 'E', 'G', 'I', 'N'};
+  private static final byte[] COMMIT = {'C', 'O', 'M', 'M', 'I', 'T'};
+  private static final byte[] ROLLBACK = {'R', 'O', 'L', 'L', 'B', 'A', 'C', 'K'};
+
+  //
+  private boolean begun;
+  private boolean pending;
+
+  /**
+   * @return true if a transaction was started by a GTID event or BEGIN query and not yet committed
+   */
+  public boolean isInTransaction() {
+    return begun || pending;
+  }
+
+  /**
+   * Forgets the transaction in progress if any, for example after reconnecting.
+   */
+  public void reset() {
+    this.begun = false;
+    this.pending = false;
+  }
+
+  /**
+   * Follows the given event.
+   *
+   * @return true if the position right after the event is a transaction boundary
+   */
+  public boolean update(BinlogEventV4 event) {
+    //
+    if (event instanceof GtidEvent) {
+      this.begun = false;
+      this.pending = true;
+      return false;
+    } else if (event instanceof XidEvent) {
+      reset();
+      return true;
+    } else if (event instanceof QueryEvent) {
+      final QueryEvent qe = (QueryEvent) event;
+      if (isBegin(qe)) {
+        this.begun = true;
+        this.pending = false;
+        return false;
+      } else if (this.begun && !isCommit(qe)) {
+        return false;
+      }
+      reset(); // A commit, or a statement of its own such as DDL
+      return true;
+    }
+
+    //
+    if (event instanceof RotateEvent || event instanceof FormatDescriptionEvent) {
+      return !isInTransaction();
+    }
+    return false;
+  }
+
+  /**
+	 * 
+	 */
+  public static boolean isBegin(QueryEvent event) {
+    return isBegin(event.getSql().getValue());
+  }
+
+  public static boolean isBegin(byte[] sql) {
+    return equals(sql, BEGIN);
+  }
+
+  /**
+   * @return true if the query is a COMMIT or ROLLBACK
+   */
+  public static boolean isCommit(QueryEvent event) {
+    return isCommit(event.getSql().getValue());
+  }
+
+  public static boolean isCommit(byte[] sql) {
+    return equals(sql, COMMIT) || equals(sql, ROLLBACK);
+  }
+
+  private static boolean equals(byte[] sql, byte[] keyword) {
+    if (sql.length != keyword.length) return false;
+    for (int i = 0; i < keyword.length; i++) {
+      if (Character.toUpperCase((char) sql[i]) != keyword[i]) return false;
+    }
+    return true;
+  }
+}
@@ -17,4 +17,17 @@ public class GtidEvent extends AbstractBinlogEventV4 {
 	public long getTransactionId() {
 		return transactionId;
 	}
+
+	/**
+	 * @return the GTID in the server's notation, for example 3e11fa47-71ca-11e1-9e33-c80aa9429562:23
+	 */
+	public String getGtid() {
+		final StringBuilder r = new StringBuilder(48);
+		for (int i = 0; i < sourceId.length; i++) {
+			if (i == 4 || i == 6 || i == 8 || i == 10) r.append('-');
+			r.append(Character.forDigit((sourceId[i] >> 4) & 0x0F, 16));
+			r.append(Character.forDigit(sourceId[i] & 0x0F, 16));
+		}
+		return r.append(':').append(transactionId).toString();
+	}
 }
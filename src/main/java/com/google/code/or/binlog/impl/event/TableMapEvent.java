@@ -18,6 +18,7 @@ import java.util.Arrays;
 
 import com.google.code.or.binlog.BinlogEventV4Header;
 import com.google.code.or.common.glossary.Metadata;
+import com.google.code.or.common.glossary.RowDecodePlan;
 import com.google.code.or.common.glossary.UnsignedLong;
 import com.google.code.or.common.glossary.column.BitColumn;
 import com.google.code.or.common.glossary.column.StringColumn;
@@ -52,6 +53,8 @@ public final class TableMapEvent extends AbstractBinlogEventV4 {
 	private UnsignedLong columnMetadataCount;
 	private Metadata columnMetadata;
 	private BitColumn columnNullabilities;
+	private transient volatile RowDecodePlan rowDecodePlan;
+	private transient volatile Object[] attachments; // Owner and value pairs
 
 	/**
 	 * 
@@ -94,6 +97,8 @@ public final class TableMapEvent extends AbstractBinlogEventV4 {
 		r.setColumnMetadataCount(this.columnMetadataCount);
 		r.setColumnMetadata(this.columnMetadata);
 		r.setColumnNullabilities(this.columnNullabilities);
+		r.setRowDecodePlan(this.rowDecodePlan);
+		r.attachments = this.attachments;
 		return r;
 	}
 
@@ -162,6 +167,7 @@ public final class TableMapEvent extends AbstractBinlogEventV4 {
 
 	public void setColumnTypes(byte[] columnTypes) {
 		this.columnTypes = columnTypes;
+		this.rowDecodePlan = null;
 	}
 
 	public UnsignedLong getColumnMetadataCount() {
@@ -178,6 +184,7 @@ public final class TableMapEvent extends AbstractBinlogEventV4 {
 
 	public void setColumnMetadata(Metadata columnMetadata) {
 		this.columnMetadata = columnMetadata;
+		this.rowDecodePlan = null;
 	}
 
 	public BitColumn getColumnNullabilities() {
@@ -187,4 +194,57 @@ public final class TableMapEvent extends AbstractBinlogEventV4 {
 	public void setColumnNullabilities(BitColumn columnNullabilities) {
 		this.columnNullabilities = columnNullabilities;
 	}
+
+	/**
+	 * @return the decode plan of the rows of this table, compiled on first use if not set
+	 */
+	public RowDecodePlan getRowDecodePlan() {
+		RowDecodePlan r = this.rowDecodePlan;
+		if (r == null) {
+			r = new RowDecodePlan(this.columnTypes, this.columnMetadata);
+			this.rowDecodePlan = r;
+		}
+		return r;
+	}
+
+	public void setRowDecodePlan(RowDecodePlan rowDecodePlan) {
+		this.rowDecodePlan = rowDecodePlan;
+	}
+
+	/**
+	 * @return the value attached by the given owner, or null if there is none
+	 */
+	public Object getAttachment(Object owner) {
+		final Object[] a = this.attachments;
+		if (a != null) {
+			for (int i = 0; i < a.length; i += 2) {
+				if (a[i] == owner) return a[i + 1];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Attaches a value derived from this table map on behalf of the given owner, for instance a
+	 * row event filter. The copies of this event keep it, so it lives as long as the table map.
+	 */
+	public void setAttachment(Object owner, Object value) {
+		//
+		final Object[] a = this.attachments;
+		if (a != null) {
+			for (int i = 0; i < a.length; i += 2) {
+				if (a[i] != owner) continue;
+				final Object[] r = a.clone();
+				r[i + 1] = value;
+				this.attachments = r;
+				return;
+			}
+		}
+
+		//
+		final Object[] r = a == null ? new Object[2] : Arrays.copyOf(a, a.length + 2);
+		r[r.length - 2] = owner;
+		r[r.length - 1] = value;
+		this.attachments = r;
+	}
 }
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl.filter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+
+/**
+ * The columns to decode per table, given by their ordinals. The rows parsers skip the values of the
+ * other columns without decoding them and leave them out of the rows, the same way as the columns
+ * missing from the used columns of a rows event. Tables without a projection are fully decoded.
+ * The columns resolved for a table map are attached to it, see
+ * {@link TableMapEvent#setAttachment(Object, Object)}.
+ */
+public class ColumnProjection {
+  //
+  private final ConcurrentMap<String, int[]> tables = new ConcurrentHashMap<String, int[]>();
+  private volatile int generation; // Of the tables
+
+  /**
+	 * 
+	 */
+  public void addTable(String database, String table, int... columns) {
+    for (int column : columns) {
+      if (column < 0) throw new IllegalArgumentException("invalid column: " + column);
+    }
+    this.tables.put(database + "." + table, columns.clone());
+    this.generation++;
+  }
+
+  public void removeTable(String database, String table) {
+    this.tables.remove(database + "." + table);
+    this.generation++;
+  }
+
+  /**
+   * @return the columns of the given table map to decode, or null if all of them are
+   */
+  public boolean[] getColumns(TableMapEvent tme) {
+    //
+    final int generation = this.generation;
+    final Object o = tme.getAttachment(this);
+    if (o instanceof Entry && ((Entry) o).generation == generation) return ((Entry) o).columns;
+
+    //
+    final String database = new String(tme.getDatabaseName().getValue());
+    final String table = new String(tme.getTableName().getValue());
+    final boolean[] r = resolve(database + "." + table, tme.getColumnTypes().length);
+    tme.setAttachment(this, new Entry(generation, r));
+    return r;
+  }
+
+  /**
+	 * 
+	 */
+  private boolean[] resolve(String name, int columnCount) {
+    //
+    final int[] columns = this.tables.get(name);
+    if (columns == null) return null;
+
+    //
+    final boolean[] r = new boolean[columnCount];
+    for (int column : columns) {
+      if (column < columnCount) r[column] = true;
+    }
+    return r;
+  }
+
+  private static final class Entry {
+    //
+    private final int generation;
+    private final boolean[] columns;
+
+    /**
+		 * 
+		 */
+    public Entry(int generation, boolean[] columns) {
+      this.generation = generation;
+      this.columns = columns;
+    }
+  }
+}
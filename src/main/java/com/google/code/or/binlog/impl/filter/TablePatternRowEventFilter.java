@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl.filter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import com.google.code.or.binlog.BinlogEventV4Header;
+import com.google.code.or.binlog.BinlogParserContext;
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+
+/**
+ * Accepts the rows events of the tables matching one of the given database and table name
+ * patterns, in which {@code *} matches any characters and {@code ?} a single one. The decision is
+ * attached to the table map, so the names of a table are matched once as long as its table map is
+ * the same, see {@link TableMapEvent#setAttachment(Object, Object)}.
+ */
+public class TablePatternRowEventFilter extends BinlogRowEventFilterImpl {
+  //
+  private final List<Pattern[]> patterns = new CopyOnWriteArrayList<Pattern[]>();
+  private volatile int generation; // Of the patterns
+
+  /**
+	 * 
+	 */
+  public TablePatternRowEventFilter() {}
+
+  public TablePatternRowEventFilter(List<String> tables) {
+    setTables(tables);
+  }
+
+  /**
+	 * 
+	 */
+  public void addTable(String database, String table) {
+    this.patterns.add(new Pattern[] {compile(database), compile(table)});
+    this.generation++;
+  }
+
+  /**
+   * Replaces the patterns by the given ones, each of them in the form of {@code database.table}.
+   */
+  public void setTables(List<String> tables) {
+    this.patterns.clear();
+    this.generation++;
+    if (tables == null) return;
+    for (String table : tables) {
+      final int index = table.indexOf('.');
+      if (index < 0) {
+        throw new IllegalArgumentException("invalid table pattern: " + table);
+      }
+      addTable(table.substring(0, index), table.substring(index + 1));
+    }
+  }
+
+  /**
+	 * 
+	 */
+  @Override
+  public boolean accepts(BinlogEventV4Header header, BinlogParserContext context,
+      TableMapEvent event) {
+    //
+    if (!super.accepts(header, context, event)) {
+      return false;
+    }
+
+    //
+    final int generation = this.generation;
+    final Object o = event.getAttachment(this);
+    if (o instanceof Decision && ((Decision) o).generation == generation) {
+      return ((Decision) o).accepted;
+    }
+
+    //
+    final String database = new String(event.getDatabaseName().getValue());
+    final boolean r = matches(database, new String(event.getTableName().getValue()));
+    event.setAttachment(this, new Decision(generation, r));
+    return r;
+  }
+
+  /**
+	 * 
+	 */
+  private boolean matches(String database, String table) {
+    for (Pattern[] pattern : this.patterns) {
+      if (pattern[0].matcher(database).matches() && pattern[1].matcher(table).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Pattern compile(String glob) {
+    final StringBuilder r = new StringBuilder();
+    for (int i = 0; i < glob.length(); i++) {
+      final char c = glob.charAt(i);
+      if (c == '*') {
+        r.append(".*");
+      } else if (c == '?') {
+        r.append('.');
+      } else {
+        r.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return Pattern.compile(r.toString());
+  }
+
+  private static final class Decision {
+    //
+    private final int generation;
+    private final boolean accepted;
+
+    /**
+		 * 
+		 */
+    public Decision(int generation, boolean accepted) {
+      this.generation = generation;
+      this.accepted = accepted;
+    }
+  }
+}
@@ -0,0 +1,456 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.code.or.common.util.IOUtils;
+
+/**
+ * The position index of one binlog file, see {@link BinlogIndexer}. It maps timestamp buckets,
+ * GTIDs and Xids to the byte offsets of transaction boundaries, where a parser can safely start.
+ * <p>
+ * The index is kept as sorted primitive arrays and stored delta and varint encoded, a few bytes per
+ * transaction.
+ */
+public class BinlogIndex {
+  //
+  private static final int MAGIC = 0x4F524958; // ORIX
+  private static final int VERSION = 2;
+
+  //
+  private final String binlogFileName;
+  private final int bucketSeconds;
+  private long length;
+  private boolean boundary = true;
+
+  // Timestamp buckets, by bucket
+  private int timeCount;
+  private long[] timeBuckets = new long[16];
+  private long[] timeOffsets = new long[16];
+
+  // GTIDs, by source id and transaction id
+  private final List<byte[]> sourceIds = new ArrayList<byte[]>();
+  private int gtidCount;
+  private int[] gtidSources = new int[16];
+  private long[] gtidTransactions = new long[16];
+  private long[] gtidOffsets = new long[16];
+
+  // Xids, by xid, mapped to the offset right after the commit
+  private int xidCount;
+  private long[] xids = new long[16];
+  private long[] xidOffsets = new long[16];
+
+  /**
+	 * 
+	 */
+  public BinlogIndex(String binlogFileName, int bucketSeconds) {
+    if (bucketSeconds <= 0) {
+      throw new IllegalArgumentException("invalid bucket seconds: " + bucketSeconds);
+    }
+    this.binlogFileName = binlogFileName;
+    this.bucketSeconds = bucketSeconds;
+  }
+
+  @Override
+  public String toString() {
+    return "BinlogIndex[binlogFileName=" + binlogFileName + ",length=" + length + ",buckets="
+        + timeCount + ",gtids=" + gtidCount + ",xids=" + xidCount + "]";
+  }
+
+  /**
+	 * 
+	 */
+  public String getBinlogFileName() {
+    return binlogFileName;
+  }
+
+  public int getBucketSeconds() {
+    return bucketSeconds;
+  }
+
+  /**
+   * @return the length of the indexed part of the binlog file
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * @return the timestamp in milliseconds of the first indexed bucket, or -1 if there is none
+   */
+  public long getFirstTimestamp() {
+    return this.timeCount == 0 ? -1 : this.timeBuckets[0] * this.bucketSeconds * 1000L;
+  }
+
+  /**
+   * @return the timestamp in milliseconds of the last indexed bucket, or -1 if there is none
+   */
+  public long getLastTimestamp() {
+    return this.timeCount == 0 ? -1 : this.timeBuckets[this.timeCount - 1] * this.bucketSeconds
+        * 1000L;
+  }
+
+  /**
+   * @param timestamp in milliseconds, as {@link com.google.code.or.binlog.BinlogEventV4Header}
+   * @return the offset of the first transaction in the bucket of the given timestamp, or in the
+   *         next later bucket, or the indexed length if the whole file is earlier
+   */
+  public long findTimestamp(long timestamp) {
+    final long bucket = timestamp / 1000L / this.bucketSeconds;
+    int low = 0, high = this.timeCount;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (this.timeBuckets[mid] < bucket) low = mid + 1;
+      else high = mid;
+    }
+    return low < this.timeCount ? this.timeOffsets[low] : this.length;
+  }
+
+  /**
+   * @return the offset of the GTID event of the given transaction, or -1 if it is not indexed
+   */
+  public long findGtid(byte[] sourceId, long transactionId) {
+    //
+    int source = -1;
+    for (int i = 0; i < this.sourceIds.size(); i++) {
+      if (Arrays.equals(this.sourceIds.get(i), sourceId)) {
+        source = i;
+        break;
+      }
+    }
+    if (source < 0) return -1;
+
+    //
+    int low = 0, high = this.gtidCount - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int c = compare(this.gtidSources[mid], this.gtidTransactions[mid], source,
+          transactionId);
+      if (c < 0) low = mid + 1;
+      else if (c > 0) high = mid - 1;
+      else return this.gtidOffsets[mid];
+    }
+    return -1;
+  }
+
+  /**
+   * @param gtid in the server's notation, for example 3E11FA47-71CA-11E1-9E33-C80AA9429562:23
+   */
+  public long findGtid(String gtid) {
+    final int index = gtid.lastIndexOf(':');
+    if (index < 0) throw new IllegalArgumentException("invalid gtid: " + gtid);
+    final String uuid = gtid.substring(0, index).replace("-", "");
+    if (uuid.length() != 32) throw new IllegalArgumentException("invalid gtid: " + gtid);
+    final byte[] sourceId = new byte[16];
+    for (int i = 0; i < sourceId.length; i++) {
+      sourceId[i] = (byte) Integer.parseInt(uuid.substring(i << 1, (i << 1) + 2), 16);
+    }
+    return findGtid(sourceId, Long.parseLong(gtid.substring(index + 1)));
+  }
+
+  /**
+   * @return the offset right after the commit of the given transaction, or -1 if it is not indexed
+   */
+  public long findXid(long xid) {
+    final int index = Arrays.binarySearch(this.xids, 0, this.xidCount, xid);
+    return index < 0 ? -1 : this.xidOffsets[index];
+  }
+
+  /**
+   * Package private, see {@link BinlogIndexer}
+   */
+  void setLength(long length) {
+    this.length = length;
+  }
+
+  /**
+   * @return whether the indexed length is a transaction boundary
+   */
+  boolean isBoundary() {
+    return boundary;
+  }
+
+  void setBoundary(boolean boundary) {
+    this.boundary = boundary;
+  }
+
+  void addTimestamp(long timestamp, long offset) {
+    final long bucket = timestamp / 1000L / this.bucketSeconds;
+    if (this.timeCount > 0 && bucket <= this.timeBuckets[this.timeCount - 1]) return;
+    if (this.timeCount == this.timeBuckets.length) {
+      this.timeBuckets = Arrays.copyOf(this.timeBuckets, this.timeCount << 1);
+      this.timeOffsets = Arrays.copyOf(this.timeOffsets, this.timeCount << 1);
+    }
+    this.timeBuckets[this.timeCount] = bucket;
+    this.timeOffsets[this.timeCount++] = offset;
+  }
+
+  void addGtid(byte[] sourceId, long transactionId, long offset) {
+    //
+    int source = -1;
+    for (int i = this.sourceIds.size() - 1; i >= 0; i--) {
+      if (Arrays.equals(this.sourceIds.get(i), sourceId)) {
+        source = i;
+        break;
+      }
+    }
+    if (source < 0) {
+      source = this.sourceIds.size();
+      this.sourceIds.add(sourceId);
+    }
+
+    //
+    if (this.gtidCount == this.gtidOffsets.length) {
+      this.gtidSources = Arrays.copyOf(this.gtidSources, this.gtidCount << 1);
+      this.gtidTransactions = Arrays.copyOf(this.gtidTransactions, this.gtidCount << 1);
+      this.gtidOffsets = Arrays.copyOf(this.gtidOffsets, this.gtidCount << 1);
+    }
+    this.gtidSources[this.gtidCount] = source;
+    this.gtidTransactions[this.gtidCount] = transactionId;
+    this.gtidOffsets[this.gtidCount++] = offset;
+  }
+
+  void addXid(long xid, long offset) {
+    if (this.xidCount == this.xids.length) {
+      this.xids = Arrays.copyOf(this.xids, this.xidCount << 1);
+      this.xidOffsets = Arrays.copyOf(this.xidOffsets, this.xidCount << 1);
+    }
+    this.xids[this.xidCount] = xid;
+    this.xidOffsets[this.xidCount++] = offset;
+  }
+
+  /**
+   * Sorts the GTIDs and Xids for lookups, they are appended in binlog order.
+   */
+  void seal() {
+    //
+    if (!isSorted()) {
+      final Integer[] order = new Integer[this.gtidCount];
+      for (int i = 0; i < order.length; i++) order[i] = i;
+      Arrays.sort(order, new Comparator<Integer>() {
+        public int compare(Integer a, Integer b) {
+          return BinlogIndex.compare(gtidSources[a], gtidTransactions[a], gtidSources[b],
+              gtidTransactions[b]);
+        }
+      });
+      final int[] sources = new int[this.gtidCount];
+      final long[] transactions = new long[this.gtidCount];
+      final long[] offsets = new long[this.gtidCount];
+      for (int i = 0; i < order.length; i++) {
+        sources[i] = this.gtidSources[order[i]];
+        transactions[i] = this.gtidTransactions[order[i]];
+        offsets[i] = this.gtidOffsets[order[i]];
+      }
+      this.gtidSources = sources;
+      this.gtidTransactions = transactions;
+      this.gtidOffsets = offsets;
+    }
+
+    //
+    for (int i = 1; i < this.xidCount; i++) {
+      if (this.xids[i - 1] < this.xids[i]) continue;
+      final Integer[] order = new Integer[this.xidCount];
+      for (int j = 0; j < order.length; j++) order[j] = j;
+      Arrays.sort(order, new Comparator<Integer>() {
+        public int compare(Integer a, Integer b) {
+          return xids[a] < xids[b] ? -1 : (xids[a] == xids[b] ? 0 : 1);
+        }
+      });
+      final long[] xids = new long[this.xidCount];
+      final long[] offsets = new long[this.xidCount];
+      for (int j = 0; j < order.length; j++) {
+        xids[j] = this.xids[order[j]];
+        offsets[j] = this.xidOffsets[order[j]];
+      }
+      this.xids = xids;
+      this.xidOffsets = offsets;
+      break;
+    }
+  }
+
+  private boolean isSorted() {
+    for (int i = 1; i < this.gtidCount; i++) {
+      if (compare(this.gtidSources[i - 1], this.gtidTransactions[i - 1], this.gtidSources[i],
+          this.gtidTransactions[i]) > 0) return false;
+    }
+    return true;
+  }
+
+  private static int compare(int source1, long transaction1, int source2, long transaction2) {
+    if (source1 != source2) return source1 < source2 ? -1 : 1;
+    return transaction1 < transaction2 ? -1 : (transaction1 == transaction2 ? 0 : 1);
+  }
+
+  /**
+	 * 
+	 */
+  public void write(File file) throws IOException {
+    //
+    final File tmp = new File(file.getPath() + ".tmp");
+    final FileOutputStream fos = new FileOutputStream(tmp);
+    final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(fos));
+    try {
+      //
+      os.writeInt(MAGIC);
+      os.writeByte(VERSION);
+      os.writeUTF(this.binlogFileName);
+      os.writeLong(this.length);
+      os.writeBoolean(this.boundary);
+      os.writeInt(this.bucketSeconds);
+
+      //
+      os.writeInt(this.timeCount);
+      for (int i = 0; i < this.timeCount; i++) {
+        final int j = i == 0 ? 0 : i - 1;
+        writeVarLong(os, this.timeBuckets[i] - (i == 0 ? 0 : this.timeBuckets[j]));
+        writeVarLong(os, this.timeOffsets[i] - (i == 0 ? 0 : this.timeOffsets[j]));
+      }
+
+      //
+      os.writeInt(this.sourceIds.size());
+      for (byte[] sourceId : this.sourceIds) os.write(sourceId);
+      os.writeInt(this.gtidCount);
+      for (int i = 0; i < this.gtidCount; i++) {
+        final boolean same = i > 0 && this.gtidSources[i] == this.gtidSources[i - 1];
+        writeVarLong(os, this.gtidSources[i]);
+        writeVarLong(os, zigzag(same ? this.gtidTransactions[i] - this.gtidTransactions[i - 1]
+            : this.gtidTransactions[i]));
+        writeVarLong(os, zigzag(i == 0 ? this.gtidOffsets[i] : this.gtidOffsets[i]
+            - this.gtidOffsets[i - 1]));
+      }
+
+      //
+      os.writeInt(this.xidCount);
+      for (int i = 0; i < this.xidCount; i++) {
+        writeVarLong(os, zigzag(i == 0 ? this.xids[i] : this.xids[i] - this.xids[i - 1]));
+        writeVarLong(os, zigzag(i == 0 ? this.xidOffsets[i] : this.xidOffsets[i]
+            - this.xidOffsets[i - 1]));
+      }
+      os.flush();
+      fos.getFD().sync();
+    } finally {
+      os.close();
+    }
+
+    //
+    IOUtils.replace(tmp, file);
+  }
+
+  public static BinlogIndex read(File file) throws IOException {
+    final DataInputStream is =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      //
+      if (is.readInt() != MAGIC) {
+        throw new IOException("invalid binlog index magic, file: " + file);
+      }
+      final int version = is.readByte();
+      if (version != VERSION) {
+        throw new IOException("unsupported binlog index version: " + version + ", file: " + file);
+      }
+      final String binlogFileName = is.readUTF();
+      final long length = is.readLong();
+      final boolean boundary = is.readBoolean();
+      final BinlogIndex r = new BinlogIndex(binlogFileName, is.readInt());
+      r.length = length;
+      r.boundary = boundary;
+      r.read(is);
+      return r;
+    } finally {
+      is.close();
+    }
+  }
+
+  private void read(DataInputStream is) throws IOException {
+    //
+    //
+    this.timeCount = is.readInt();
+    this.timeBuckets = new long[Math.max(this.timeCount, 16)];
+    this.timeOffsets = new long[Math.max(this.timeCount, 16)];
+    for (int i = 0; i < this.timeCount; i++) {
+      this.timeBuckets[i] = readVarLong(is) + (i == 0 ? 0 : this.timeBuckets[i - 1]);
+      this.timeOffsets[i] = readVarLong(is) + (i == 0 ? 0 : this.timeOffsets[i - 1]);
+    }
+
+    //
+    final int sources = is.readInt();
+    for (int i = 0; i < sources; i++) {
+      final byte[] sourceId = new byte[16];
+      is.readFully(sourceId);
+      this.sourceIds.add(sourceId);
+    }
+    this.gtidCount = is.readInt();
+    this.gtidSources = new int[Math.max(this.gtidCount, 16)];
+    this.gtidTransactions = new long[Math.max(this.gtidCount, 16)];
+    this.gtidOffsets = new long[Math.max(this.gtidCount, 16)];
+    for (int i = 0; i < this.gtidCount; i++) {
+      this.gtidSources[i] = (int) readVarLong(is);
+      final boolean same = i > 0 && this.gtidSources[i] == this.gtidSources[i - 1];
+      final long previous = same ? this.gtidTransactions[i - 1] : 0;
+      this.gtidTransactions[i] = unzigzag(readVarLong(is)) + previous;
+      this.gtidOffsets[i] = unzigzag(readVarLong(is)) + (i == 0 ? 0 : this.gtidOffsets[i - 1]);
+    }
+
+    //
+    this.xidCount = is.readInt();
+    this.xids = new long[Math.max(this.xidCount, 16)];
+    this.xidOffsets = new long[Math.max(this.xidCount, 16)];
+    for (int i = 0; i < this.xidCount; i++) {
+      this.xids[i] = unzigzag(readVarLong(is)) + (i == 0 ? 0 : this.xids[i - 1]);
+      this.xidOffsets[i] = unzigzag(readVarLong(is)) + (i == 0 ? 0 : this.xidOffsets[i - 1]);
+    }
+  }
+
+  /**
+	 * 
+	 */
+  private static long zigzag(long v) {
+    return (v << 1) ^ (v >> 63);
+  }
+
+  private static long unzigzag(long v) {
+    return (v >>> 1) ^ -(v & 1);
+  }
+
+  private static void writeVarLong(DataOutputStream os, long v) throws IOException {
+    while ((v & ~0x7FL) != 0) {
+      os.writeByte((int) ((v & 0x7F) | 0x80));
+      v >>>= 7;
+    }
+    os.writeByte((int) v);
+  }
+
+  private static long readVarLong(DataInputStream is) throws IOException {
+    long r = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final int b = is.readUnsignedByte();
+      r |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return r;
+    }
+    throw new IOException("malformed varint");
+  }
+}
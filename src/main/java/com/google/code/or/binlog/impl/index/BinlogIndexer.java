@@ -0,0 +1,228 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl.index;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.impl.AbstractBinlogParser;
+import com.google.code.or.binlog.impl.TransactionBoundary;
+import com.google.code.or.common.util.CodecUtils;
+import com.google.code.or.common.util.IOUtils;
+import com.google.code.or.common.util.MySQLConstants;
+import com.google.code.or.io.impl.MappedFileXInputStream;
+
+/**
+ * Builds the {@link BinlogIndex} of a binlog file from one pass over its event headers, only the
+ * bodies of GTID, Xid and query events are looked into. The index is kept in a sidecar file next to
+ * the binlog file, named after it with an {@code .idx} extension.
+ * <p>
+ * A transaction boundary is the start of the binlog, the event after a format description, rotate
+ * or previous GTIDs event, the event after an Xid event, after a COMMIT or ROLLBACK query or after
+ * any other query outside of a BEGIN, and a GTID event. The keywords are matched as in
+ * {@link TransactionBoundary}. An index extended from inside a transaction assumes the transaction
+ * was started by a BEGIN, which at worst misses the boundary after a statement of its own.
+ */
+public final class BinlogIndexer {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(BinlogIndexer.class);
+
+  //
+  public static final int DEFAULT_BUCKET_SECONDS = 1;
+  private static final int HEADER_LENGTH = 19;
+  private static final int CHECKSUM_LENGTH = 4;
+  private static final int MAX_KEYWORD_LENGTH = 8;
+
+  /**
+	 * 
+	 */
+  private BinlogIndexer() {}
+
+  public static File getIndexFile(File binlog) {
+    return new File(binlog.getPath() + ".idx");
+  }
+
+  /**
+   * Loads the index of the given binlog file, or builds and stores it if the sidecar file is
+   * missing or unreadable. An index behind the binlog file, which is still being written, is
+   * extended from where it stopped. The index is only kept in memory if it can not be stored.
+   */
+  public static BinlogIndex open(File binlog) throws IOException {
+    //
+    final File file = getIndexFile(binlog);
+    BinlogIndex r = null;
+    if (file.exists()) {
+      try {
+        r = BinlogIndex.read(file);
+        if (r.getLength() == binlog.length()) return r;
+        if (r.getLength() > binlog.length() || !r.getBinlogFileName().equals(binlog.getName())) {
+          r = null; // Replaced
+        }
+      } catch (IOException e) {
+        LOGGER.warn("failed to read binlog index: " + file + ", rebuilding it", e);
+      }
+    }
+
+    //
+    if (r == null) r = new BinlogIndex(binlog.getName(), DEFAULT_BUCKET_SECONDS);
+    final long length = r.getLength();
+    index(binlog, r);
+    if (r.getLength() == length) return r;
+    try {
+      r.write(file);
+    } catch (IOException e) {
+      LOGGER.warn("failed to write binlog index: " + file + ", keeping it in memory", e);
+    }
+    return r;
+  }
+
+  /**
+   * Indexes the given binlog file up to its last complete event.
+   */
+  public static BinlogIndex build(File binlog, int bucketSeconds) throws IOException {
+    final BinlogIndex r = new BinlogIndex(binlog.getName(), bucketSeconds);
+    index(binlog, r);
+    return r;
+  }
+
+  /**
+   * Extends the given index from its length up to the last complete event of the binlog file.
+   */
+  private static void index(File binlog, BinlogIndex r) throws IOException {
+    final MappedFileXInputStream is = new MappedFileXInputStream(binlog);
+    try {
+      //
+      long position = r.getLength();
+      boolean boundary = r.isBoundary();
+      boolean begun = !boundary;
+      int checksumLength = 0;
+      if (position == 0) {
+        // Check binlog magic
+        final byte[] magic = is.readBytes(MySQLConstants.BINLOG_MAGIC.length);
+        if (!CodecUtils.equals(magic, MySQLConstants.BINLOG_MAGIC)) {
+          throw new IOException("invalid binlog magic, file: " + binlog);
+        }
+        position = is.position();
+        boundary = true;
+      } else {
+        is.seek(MySQLConstants.BINLOG_MAGIC.length); // The format description event
+        is.skip(4); // Timestamp
+        final int eventType = is.readInt(1);
+        is.skip(4); // Server id
+        final long eventLength = is.readLong(4);
+        is.skip(6); // Next position and flags
+        if (eventType == MySQLConstants.FORMAT_DESCRIPTION_EVENT) {
+          checksumLength = getChecksumLength(is, eventLength);
+        }
+        is.seek(position);
+      }
+
+      //
+      while (position + HEADER_LENGTH <= is.length()) {
+        //
+        final long timestamp = is.readLong(4) * 1000L;
+        final int eventType = is.readInt(1);
+        is.skip(4); // Server id
+        final long eventLength = is.readLong(4);
+        is.skip(6); // Next position and flags
+        if (eventLength < HEADER_LENGTH) {
+          throw new IOException("invalid event length: " + eventLength + ", position: "
+              + position + ", file: " + binlog);
+        }
+        final long next = position + eventLength;
+        if (next > is.length()) break; // Being written
+
+        //
+        if (boundary && timestamp > 0) r.addTimestamp(timestamp, position);
+        boundary = false;
+        switch (eventType) {
+          case MySQLConstants.GTID_LOG_EVENT:
+            is.skip(1); // Commit flag
+            final byte[] sourceId = is.readBytes(16);
+            r.addGtid(sourceId, is.readLong(8), position);
+            if (timestamp > 0) r.addTimestamp(timestamp, position);
+            break;
+          case MySQLConstants.XID_EVENT:
+            r.addXid(is.readLong(8), next);
+            boundary = true;
+            begun = false;
+            break;
+          case MySQLConstants.QUERY_EVENT:
+            final byte[] sql = readKeyword(is, next - checksumLength);
+            if (sql != null && TransactionBoundary.isBegin(sql)) {
+              begun = true;
+            } else if (!begun || (sql != null && TransactionBoundary.isCommit(sql))) {
+              boundary = true;
+              begun = false;
+            }
+            break;
+          case MySQLConstants.FORMAT_DESCRIPTION_EVENT:
+            checksumLength = getChecksumLength(is, eventLength);
+            boundary = true;
+            break;
+          case MySQLConstants.ROTATE_EVENT:
+          case MySQLConstants.PREVIOUS_GTIDS_LOG_EVENT:
+            boundary = true;
+            break;
+        }
+
+        //
+        is.seek(next);
+        position = next;
+      }
+      r.setLength(position);
+      r.setBoundary(boundary);
+      r.seal();
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  /**
+   * Reads the statement of a query event ending at the given position, short of its checksum.
+   *
+   * @return the statement, or null if it is too long to be a BEGIN, COMMIT or ROLLBACK
+   */
+  private static byte[] readKeyword(MappedFileXInputStream is, long end) throws IOException {
+    is.skip(8); // Thread id and execution time
+    final int databaseLength = is.readInt(1);
+    is.skip(2); // Error code
+    final int statusVariablesLength = is.readInt(2);
+    is.skip(statusVariablesLength + databaseLength + 1);
+    final long length = end - is.position();
+    if (length < 0 || length > MAX_KEYWORD_LENGTH) return null;
+    return is.readBytes((int) length);
+  }
+
+  /**
+   * Reads the body of a format description event, see
+   * {@link AbstractBinlogParser#onFormatDescription(byte[], int, int)}.
+   *
+   * @return the checksum length of the events to come
+   */
+  private static int getChecksumLength(MappedFileXInputStream is, long eventLength)
+      throws IOException {
+    // Binlog version, server version, create timestamp and header length take 57 bytes
+    final int length = (int) eventLength - HEADER_LENGTH;
+    if (length < 57 + 1 + CHECKSUM_LENGTH) return 0;
+    final byte[] body = is.readBytes(length);
+    if (!AbstractBinlogParser.isChecksumAware(body, 2)) return 0;
+    final int algorithm = body[length - CHECKSUM_LENGTH - 1] & 0xFF;
+    return algorithm == MySQLConstants.BINLOG_CHECKSUM_ALG_OFF ? 0 : CHECKSUM_LENGTH;
+  }
+}
@@ -15,6 +15,7 @@
 package com.google.code.or.binlog.impl.parser;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,11 +23,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.code.or.binlog.BinlogRowEventFilter;
+import com.google.code.or.binlog.BinlogRowListener;
+import com.google.code.or.binlog.BinlogRowViewListener;
+import com.google.code.or.binlog.impl.event.AbstractRowEvent;
 import com.google.code.or.binlog.impl.event.TableMapEvent;
+import com.google.code.or.binlog.impl.filter.ColumnProjection;
 import com.google.code.or.binlog.impl.filter.BinlogRowEventFilterImpl;
 import com.google.code.or.common.glossary.Column;
-import com.google.code.or.common.glossary.Metadata;
 import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.RowDecodePlan;
+import com.google.code.or.common.glossary.RowView;
 import com.google.code.or.common.glossary.column.BitColumn;
 import com.google.code.or.common.glossary.column.BlobColumn;
 import com.google.code.or.common.glossary.column.DateColumn;
@@ -48,7 +54,6 @@ import com.google.code.or.common.glossary.column.Timestamp2Column;
 import com.google.code.or.common.glossary.column.TimestampColumn;
 import com.google.code.or.common.glossary.column.TinyColumn;
 import com.google.code.or.common.glossary.column.YearColumn;
-import com.google.code.or.common.util.CodecUtils;
 import com.google.code.or.common.util.MySQLConstants;
 import com.google.code.or.common.util.MySQLUtils;
 import com.google.code.or.io.XInputStream;
@@ -61,6 +66,12 @@ public abstract class AbstractRowEventParser extends AbstractBinlogEventParser {
 	private static final Logger logger = LoggerFactory.getLogger(AbstractRowEventParser.class);
   //
   protected BinlogRowEventFilter rowEventFilter;
+  protected BinlogRowViewListener rowViewListener;
+  protected BinlogRowListener rowListener;
+  protected ColumnProjection columnProjection;
+  private byte[] rowsData = new byte[0];
+  private final RowView rowViewBefore = new RowView();
+  private final RowView rowViewAfter = new RowView();
 
   /**
 	 * 
@@ -81,48 +92,124 @@ public abstract class AbstractRowEventParser extends AbstractBinlogEventParser {
     this.rowEventFilter = filter;
   }
 
+  public ColumnProjection getColumnProjection() {
+    return columnProjection;
+  }
+
+  public void setColumnProjection(ColumnProjection projection) {
+    this.columnProjection = projection;
+  }
+
+  public BinlogRowViewListener getRowViewListener() {
+    return rowViewListener;
+  }
+
   /**
-	 * 
-	 */
+   * Once set, rows are delivered to the listener as {@link RowView}s and the rows events passed to
+   * the {@link com.google.code.or.binlog.BinlogEventListener} carry an empty list of rows.
+   */
+  public void setRowViewListener(BinlogRowViewListener listener) {
+    this.rowViewListener = listener;
+  }
+
+  public BinlogRowListener getRowListener() {
+    return rowListener;
+  }
+
+  /**
+   * Once set, rows are streamed to the listener as they are decoded and the rows events passed to
+   * the {@link com.google.code.or.binlog.BinlogEventListener} carry an empty list of rows. A row
+   * view listener takes precedence.
+   */
+  public void setRowListener(BinlogRowListener listener) {
+    this.rowListener = listener;
+  }
+
+  /**
+   * Decodes the remaining rows of the event one at a time to the row listener, the before or
+   * after image is skipped if its used columns are null.
+   */
+  protected void streamRows(XInputStream is, TableMapEvent tme, AbstractRowEvent event,
+      BitColumn usedColumnsBefore, BitColumn usedColumnsAfter) throws IOException {
+    final int countBefore = getUsedColumnCount(tme, usedColumnsBefore);
+    final int countAfter = getUsedColumnCount(tme, usedColumnsAfter);
+    this.rowListener.onRowsBegin(event, tme);
+    while (is.available() > 0) {
+      final Row before =
+          usedColumnsBefore == null ? null : parseRow(is, tme, usedColumnsBefore, countBefore);
+      final Row after =
+          usedColumnsAfter == null ? null : parseRow(is, tme, usedColumnsAfter, countAfter);
+      this.rowListener.onRow(event, tme, before, after);
+    }
+    this.rowListener.onRowsEnd(event, tme);
+  }
+
+  /**
+   * Reads the remaining rows of the event into a reusable buffer and visits them as
+   * {@link RowView}s, the before or after image is skipped if its used columns are null.
+   */
+  protected void parseRowViews(XInputStream is, TableMapEvent tme, AbstractRowEvent event,
+      BitColumn usedColumnsBefore, BitColumn usedColumnsAfter) throws IOException {
+    //
+    final int length = is.available();
+    if (this.rowsData.length < length) {
+      this.rowsData = new byte[Math.max(length, this.rowsData.length << 1)];
+    }
+    is.read(this.rowsData, 0, length);
+
+    //
+    final RowDecodePlan plan = tme.getRowDecodePlan();
+    final RowView before = usedColumnsBefore == null ? null : rowViewBefore.reset(plan,
+        usedColumnsBefore, plan.getUsedColumnCount(usedColumnsBefore));
+    final RowView after = usedColumnsAfter == null ? null : rowViewAfter.reset(plan,
+        usedColumnsAfter, plan.getUsedColumnCount(usedColumnsAfter));
+    for (int offset = 0; offset < length;) {
+      if (before != null) offset = before.wrap(this.rowsData, offset);
+      if (after != null) offset = after.wrap(this.rowsData, offset);
+      this.rowViewListener.onRowView(event, tme, before, after);
+    }
+  }
+
+  /**
+   * @return the number of used columns, computed once per rows event for its row images, or 0 if
+   *         the used columns are null
+   */
+  protected int getUsedColumnCount(TableMapEvent tme, BitColumn usedColumns) {
+    return usedColumns == null ? 0 : tme.getRowDecodePlan().getUsedColumnCount(usedColumns);
+  }
+
   protected Row parseRow(XInputStream is, TableMapEvent tme, BitColumn usedColumns)
       throws IOException {
+    return parseRow(is, tme, usedColumns, getUsedColumnCount(tme, usedColumns));
+  }
+
+  /**
+   * Decodes a row image by the decode plan of the table, the null bitmap only covers the used
+   * columns.
+   */
+  protected Row parseRow(XInputStream is, TableMapEvent tme, BitColumn usedColumns,
+      int usedColumnCount) throws IOException {
     //
     int unusedColumnCount = 0;
-    final byte[] types = tme.getColumnTypes();
-    final Metadata metadata = tme.getColumnMetadata();
-    final BitColumn nullColumns = is.readBit(types.length);
-    final List<Column> columns = new ArrayList<Column>(types.length);
-    for (int i = 0; i < types.length; ++i) {
-      //
-      int length = 0;
-      final int meta = metadata.getMetadata(i);
-      int type = CodecUtils.toUnsigned(types[i]);
-      if (type == MySQLConstants.TYPE_STRING && meta > 256) {
-        final int meta0 = meta >> 8;
-        final int meta1 = meta & 0xFF;
-        if ((meta0 & 0x30) != 0x30) { // a long CHAR() field: see #37426
-          type = meta0 | 0x30;
-          length = meta1 | (((meta0 & 0x30) ^ 0x30) << 4);
-        } else {
-          switch (meta0) {
-            case MySQLConstants.TYPE_SET:
-            case MySQLConstants.TYPE_ENUM:
-            case MySQLConstants.TYPE_STRING:
-              type = meta0;
-              length = meta1;
-              break;
-            default:
-              throw new RuntimeException("assertion failed, unknown column type: " + type);
-          }
-        }
-      }
-
+    final RowDecodePlan plan = tme.getRowDecodePlan();
+    final int columnCount = plan.getColumnCount();
+    final BitColumn nullColumns = is.readBit(usedColumnCount);
+    final List<Column> columns = new ArrayList<Column>(columnCount);
+    final boolean[] projected =
+        this.columnProjection == null ? null : this.columnProjection.getColumns(tme);
+    for (int i = 0; i < columnCount; ++i) {
       //
+      final int type = plan.getType(i);
+      final int meta = plan.getMetadata(i);
+      final int width = plan.getWidth(i);
       if (!usedColumns.get(i)) {
         unusedColumnCount++;
         continue;
       } else if (nullColumns.get(i - unusedColumnCount)) {
-        columns.add(NullColumn.valueOf(type));
+        if (projected == null || projected[i]) columns.add(NullColumn.valueOf(type));
+        continue;
+      } else if (projected != null && !projected[i]) {
+        is.skip(width >= 0 ? width : is.readInt(-width));
         continue;
       }
 
@@ -153,47 +240,50 @@ public abstract class AbstractRowEventParser extends AbstractBinlogEventParser {
           columns.add(YearColumn.valueOf(MySQLUtils.toYear(is.readInt(1))));
           break;
         case MySQLConstants.TYPE_DATE:
-          columns.add(DateColumn.valueOf(MySQLUtils.toDate(is.readInt(3))));
+          columns.add(DateColumn.valueOf(MySQLUtils.toPackedDate(is.readInt(3))));
           break;
         case MySQLConstants.TYPE_TIME:
-          columns.add(TimeColumn.valueOf(MySQLUtils.toTime(is.readInt(3))));
+          columns.add(TimeColumn.valueOf(MySQLUtils.toPackedTime(is.readInt(3))));
           break;
         case MySQLConstants.TYPE_DATETIME:
-          columns.add(DatetimeColumn.valueOf(MySQLUtils.toDatetime(is.readLong(8))));
+          columns.add(DatetimeColumn.valueOf(MySQLUtils.toPackedDatetime(is.readLong(8))));
           break;
         case MySQLConstants.TYPE_TIMESTAMP:
           columns.add(TimestampColumn.valueOf(MySQLUtils.toTimestamp(is.readLong(4))));
           break;
         case MySQLConstants.TYPE_ENUM:
-          columns.add(EnumColumn.valueOf(is.readInt(length)));
+          columns.add(EnumColumn.valueOf(is.readInt(width)));
           break;
         case MySQLConstants.TYPE_SET:
-          columns.add(SetColumn.valueOf(is.readLong(length)));
+          columns.add(SetColumn.valueOf(is.readLong(width)));
           break;
         case MySQLConstants.TYPE_BIT:
           final int bitLength = (meta >> 8) * 8 + (meta & 0xFF);
           columns.add(is.readBit(bitLength, false));
           break;
         case MySQLConstants.TYPE_BLOB:
-          final int blobLength = is.readInt(meta);
+          final int blobLength = is.readInt(-width);
           columns.add(BlobColumn.valueOf(is.readBytes(blobLength)));
           break;
         case MySQLConstants.TYPE_NEWDECIMAL:
           final int precision = meta & 0xFF;
           final int scale = meta >> 8;
-          final int decimalLength = MySQLUtils.getDecimalBinarySize(precision, scale);
-          columns
-              .add(DecimalColumn.valueOf(
-                  MySQLUtils.toDecimal(precision, scale, is.readBytes(decimalLength)), precision,
-                  scale));
+          final byte[] decimal = is.readBytes(width);
+          if (precision <= MySQLUtils.MAX_UNSCALED_LONG_PRECISION) {
+            final long unscaled = MySQLUtils.toUnscaledLong(precision, scale, decimal, 0);
+            columns.add(DecimalColumn.valueOf(unscaled, precision, scale));
+          } else {
+            final BigDecimal value = MySQLUtils.toDecimal(precision, scale, decimal, 0);
+            columns.add(DecimalColumn.valueOf(value, precision, scale));
+          }
           break;
         case MySQLConstants.TYPE_STRING:
-          final int stringLength = length < 256 ? is.readInt(1) : is.readInt(2);
+          final int stringLength = is.readInt(-width);
           columns.add(is.readFixedLengthString(stringLength));
           break;
         case MySQLConstants.TYPE_VARCHAR:
         case MySQLConstants.TYPE_VAR_STRING:
-          final int varcharLength = meta < 256 ? is.readInt(1) : is.readInt(2);
+          final int varcharLength = is.readInt(-width);
           
           int available = is.available();
           if (available < varcharLength) {
@@ -203,17 +293,17 @@ public abstract class AbstractRowEventParser extends AbstractBinlogEventParser {
           break;
         case MySQLConstants.TYPE_TIME2:
           final int value1 = is.readInt(3, false);
-          final int nanos1 = is.readInt((meta + 1) / 2, false);
-          columns.add(Time2Column.valueOf(MySQLUtils.toTime2(value1, nanos1)));
+          final int micros1 = MySQLUtils.toMicros(is.readInt(width - 3, false), meta);
+          columns.add(Time2Column.valueOf(MySQLUtils.toPackedTime2(value1, micros1)));
           break;
         case MySQLConstants.TYPE_DATETIME2:
           final long value2 = is.readLong(5, false);
-          final int nanos2 = is.readInt((meta + 1) / 2, false);
-          columns.add(Datetime2Column.valueOf(MySQLUtils.toDatetime2(value2, nanos2)));
+          final int micros2 = MySQLUtils.toMicros(is.readInt(width - 5, false), meta);
+          columns.add(Datetime2Column.valueOf(MySQLUtils.toPackedDatetime2(value2, micros2)));
           break;
         case MySQLConstants.TYPE_TIMESTAMP2:
           final long value3 = is.readLong(4, false);
-          final int nanos3 = is.readInt((meta + 1) / 2, false);
+          final int nanos3 = MySQLUtils.toMicros(is.readInt(width - 4, false), meta) * 1000;
           columns.add(Timestamp2Column.valueOf(MySQLUtils.toTimestamp2(value3, nanos3)));
           break;
         default:
@@ -15,7 +15,8 @@
 package com.google.code.or.binlog.impl.parser;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.google.code.or.binlog.BinlogEventV4Header;
@@ -64,7 +65,15 @@ public class DeleteRowsEventV2Parser extends AbstractRowEventParser {
       event.setExtraInfo(is.readBytes(event.getExtraInfoLength() - 2));
     event.setColumnCount(is.readUnsignedLong());
     event.setUsedColumns(is.readBit(event.getColumnCount().intValue()));
-    event.setRows(parseRows(is, tme, event));
+    if (this.rowViewListener != null) {
+      event.setRows(Collections.<Row>emptyList());
+      parseRowViews(is, tme, event, event.getUsedColumns(), null);
+    } else if (this.rowListener != null) {
+      event.setRows(Collections.<Row>emptyList());
+      streamRows(is, tme, event, event.getUsedColumns(), null);
+    } else {
+      event.setRows(parseRows(is, tme, event));
+    }
     context.getEventListener().onEvents(event);
   }
 
@@ -73,9 +82,10 @@ public class DeleteRowsEventV2Parser extends AbstractRowEventParser {
 	 */
   protected List<Row> parseRows(XInputStream is, TableMapEvent tme, DeleteRowsEventV2 dre)
       throws IOException {
-    final List<Row> r = new LinkedList<Row>();
+    final List<Row> r = new ArrayList<Row>();
+    final int count = getUsedColumnCount(tme, dre.getUsedColumns());
     while (is.available() > 0) {
-      r.add(parseRow(is, tme, dre.getUsedColumns()));
+      r.add(parseRow(is, tme, dre.getUsedColumns(), count));
     }
     return r;
   }
@@ -12,27 +12,25 @@
  * or implied. See the License for the specific language governing permissions and limitations under
  * the License.
  */
-package com.google.code.or.binlog.impl.parser.ext;
+package com.google.code.or.binlog.impl.parser;
 
 import java.io.IOException;
 
 import com.google.code.or.binlog.BinlogEventV4Header;
 import com.google.code.or.binlog.BinlogParserContext;
-import com.google.code.or.binlog.ext.XChecksum;
-import com.google.code.or.binlog.impl.event.StopEvent;
+import com.google.code.or.binlog.impl.event.HeartbeatEvent;
 import com.google.code.or.io.XInputStream;
 
 /**
  * 
- * @author Arbore
  */
-public class StopEventParserExt extends AbstractBinlogEventParserExt {
+public class HeartbeatEventParser extends AbstractBinlogEventParser {
 
   /**
 	 * 
 	 */
-  public StopEventParserExt(XChecksum checksum) {
-    super(StopEvent.EVENT_TYPE, checksum);
+  public HeartbeatEventParser() {
+    super(HeartbeatEvent.EVENT_TYPE);
   }
 
   /**
@@ -40,8 +38,8 @@ public class StopEventParserExt extends AbstractBinlogEventParserExt {
 	 */
   public void parse(XInputStream is, BinlogEventV4Header header, BinlogParserContext context)
       throws IOException {
-    final StopEvent event = new StopEvent(header);
-    checksum.validateAndReset(is.readInt(4));// CRC32
+    final HeartbeatEvent event = new HeartbeatEvent(header);
+    event.setBinlogFileName(is.readFixedLengthString(is.available()));
     context.getEventListener().onEvents(event);
   }
 }
@@ -40,7 +40,7 @@ import com.google.code.or.binlog.impl.variable.status.QTableMapForUpdateCode;
 import com.google.code.or.binlog.impl.variable.status.QTimeZoneCode;
 import com.google.code.or.binlog.impl.variable.status.QUpdatedDBNames;
 import com.google.code.or.io.XInputStream;
-import com.google.code.or.io.util.XDeserializer;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 
 /**
  * 
@@ -79,7 +79,7 @@ public class QueryEventParser extends AbstractBinlogEventParser {
 	 */
   protected List<StatusVariable> parseStatusVariables(byte[] data) throws IOException {
     final List<StatusVariable> r = new ArrayList<StatusVariable>();
-    final XDeserializer d = new XDeserializer(data);
+    final ByteArrayXInputStream d = new ByteArrayXInputStream(data);
     boolean abort = false;
     while (!abort && d.available() > 0) {
       final int type = d.readInt(1);
@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.binlog.impl.parser;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+import com.google.code.or.common.glossary.Metadata;
+import com.google.code.or.common.glossary.RowDecodePlan;
+
+/**
+ * The row decode plans of the table definitions seen so far, keyed by their fingerprint, so a
+ * table map of a known definition (the same table in a later transaction, or after its table id
+ * changed) reuses the plan compiled for it. The cache is emptied once it holds
+ * {@link #getMaxSize()} plans.
+ */
+public class RowDecodePlanCache {
+  //
+  private int maxSize = 1024;
+  private final ConcurrentMap<Key, RowDecodePlan> plans =
+      new ConcurrentHashMap<Key, RowDecodePlan>();
+
+  /**
+	 * 
+	 */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public int size() {
+    return this.plans.size();
+  }
+
+  public void clear() {
+    this.plans.clear();
+  }
+
+  /**
+	 * 
+	 */
+  public RowDecodePlan get(TableMapEvent tme) {
+    return get(tme.getColumnTypes(), tme.getColumnMetadata());
+  }
+
+  public RowDecodePlan get(byte[] columnTypes, Metadata metadata) {
+    //
+    final Key key = new Key(RowDecodePlan.getFingerprint(columnTypes, metadata));
+    final RowDecodePlan r = this.plans.get(key);
+    if (r != null) return r;
+
+    //
+    if (this.plans.size() >= this.maxSize) this.plans.clear();
+    final RowDecodePlan plan = new RowDecodePlan(columnTypes, metadata);
+    final RowDecodePlan existing = this.plans.putIfAbsent(key, plan);
+    return existing != null ? existing : plan;
+  }
+
+  private static final class Key {
+    //
+    private final int[] fingerprint;
+    private final int hashCode;
+
+    /**
+		 * 
+		 */
+    public Key(int[] fingerprint) {
+      this.fingerprint = fingerprint;
+      this.hashCode = Arrays.hashCode(fingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) return false;
+      final Key rhs = (Key) obj;
+      return this.hashCode == rhs.hashCode && Arrays.equals(this.fingerprint, rhs.fingerprint);
+    }
+  }
+}
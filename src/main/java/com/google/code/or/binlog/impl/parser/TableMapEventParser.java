@@ -29,6 +29,7 @@ import com.google.code.or.io.XInputStream;
 public class TableMapEventParser extends AbstractBinlogEventParser {
   //
   private boolean reusePreviousEvent = true;
+  private RowDecodePlanCache rowDecodePlanCache = new RowDecodePlanCache();
 
   /**
 	 * 
@@ -48,6 +49,18 @@ public class TableMapEventParser extends AbstractBinlogEventParser {
     this.reusePreviousEvent = reusePreviousEvent;
   }
 
+  public RowDecodePlanCache getRowDecodePlanCache() {
+    return rowDecodePlanCache;
+  }
+
+  /**
+   * The table maps parsed are given their row decode plans from the given cache, or compile them
+   * on first use if it is null.
+   */
+  public void setRowDecodePlanCache(RowDecodePlanCache cache) {
+    this.rowDecodePlanCache = cache;
+  }
+
   /**
 	 * 
 	 */
@@ -77,6 +90,9 @@ public class TableMapEventParser extends AbstractBinlogEventParser {
     event.setColumnMetadata(Metadata.valueOf(event.getColumnTypes(),
         is.readBytes(event.getColumnMetadataCount().intValue())));
     event.setColumnNullabilities(is.readBit(event.getColumnCount().intValue()));
+    if (this.rowDecodePlanCache != null) {
+      event.setRowDecodePlan(this.rowDecodePlanCache.get(event));
+    }
     context.getEventListener().onEvents(event);
   }
 }
@@ -15,7 +15,8 @@
 package com.google.code.or.binlog.impl.parser;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.google.code.or.binlog.BinlogEventV4Header;
@@ -63,7 +64,15 @@ public class UpdateRowsEventParser extends AbstractRowEventParser {
     event.setColumnCount(is.readUnsignedLong());
     event.setUsedColumnsBefore(is.readBit(event.getColumnCount().intValue()));
     event.setUsedColumnsAfter(is.readBit(event.getColumnCount().intValue()));
-    event.setRows(parseRows(is, tme, event));
+    if (this.rowViewListener != null) {
+      event.setRows(Collections.<Pair<Row>>emptyList());
+      parseRowViews(is, tme, event, event.getUsedColumnsBefore(), event.getUsedColumnsAfter());
+    } else if (this.rowListener != null) {
+      event.setRows(Collections.<Pair<Row>>emptyList());
+      streamRows(is, tme, event, event.getUsedColumnsBefore(), event.getUsedColumnsAfter());
+    } else {
+      event.setRows(parseRows(is, tme, event));
+    }
     context.getEventListener().onEvents(event);
   }
 
@@ -72,10 +81,12 @@ public class UpdateRowsEventParser extends AbstractRowEventParser {
 	 */
   protected List<Pair<Row>> parseRows(XInputStream is, TableMapEvent tme, UpdateRowsEvent ure)
       throws IOException {
-    final List<Pair<Row>> r = new LinkedList<Pair<Row>>();
+    final List<Pair<Row>> r = new ArrayList<Pair<Row>>();
+    final int countBefore = getUsedColumnCount(tme, ure.getUsedColumnsBefore());
+    final int countAfter = getUsedColumnCount(tme, ure.getUsedColumnsAfter());
     while (is.available() > 0) {
-      final Row before = parseRow(is, tme, ure.getUsedColumnsBefore());
-      final Row after = parseRow(is, tme, ure.getUsedColumnsAfter());
+      final Row before = parseRow(is, tme, ure.getUsedColumnsBefore(), countBefore);
+      final Row after = parseRow(is, tme, ure.getUsedColumnsAfter(), countAfter);
       r.add(new Pair<Row>(before, after));
     }
     return r;
@@ -15,7 +15,8 @@
 package com.google.code.or.binlog.impl.parser;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.google.code.or.binlog.BinlogEventV4Header;
@@ -64,7 +65,15 @@ public class WriteRowsEventV2Parser extends AbstractRowEventParser {
       event.setExtraInfo(is.readBytes(event.getExtraInfoLength() - 2));
     event.setColumnCount(is.readUnsignedLong());
     event.setUsedColumns(is.readBit(event.getColumnCount().intValue()));
-    event.setRows(parseRows(is, tme, event));
+    if (this.rowViewListener != null) {
+      event.setRows(Collections.<Row>emptyList());
+      parseRowViews(is, tme, event, null, event.getUsedColumns());
+    } else if (this.rowListener != null) {
+      event.setRows(Collections.<Row>emptyList());
+      streamRows(is, tme, event, null, event.getUsedColumns());
+    } else {
+      event.setRows(parseRows(is, tme, event));
+    }
     context.getEventListener().onEvents(event);
   }
 
@@ -73,9 +82,10 @@ public class WriteRowsEventV2Parser extends AbstractRowEventParser {
 	 */
   protected List<Row> parseRows(XInputStream is, TableMapEvent tme, WriteRowsEventV2 wre)
       throws IOException {
-    final List<Row> r = new LinkedList<Row>();
+    final List<Row> r = new ArrayList<Row>();
+    final int count = getUsedColumnCount(tme, wre.getUsedColumns());
     while (is.available() > 0) {
-      r.add(parseRow(is, tme, wre.getUsedColumns()));
+      r.add(parseRow(is, tme, wre.getUsedColumns(), count));
     }
     return r;
   }
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.common.glossary;
+
+import java.io.Serializable;
+
+import com.google.code.or.common.util.ToStringBuilder;
+
+/**
+ * A position in the binlog of a server: the name of a binlog file and an offset in it, typically
+ * the next position of the last event processed, that is where to resume from.
+ */
+public final class BinlogPosition implements Serializable, Comparable<BinlogPosition> {
+  private static final long serialVersionUID = -3178455207633312907L;
+
+  //
+  private final String binlogFileName;
+  private final long position;
+
+  /**
+	 * 
+	 */
+  public BinlogPosition(String binlogFileName, long position) {
+    if (binlogFileName == null) throw new IllegalArgumentException("binlog file name is null");
+    this.binlogFileName = binlogFileName;
+    this.position = position;
+  }
+
+  /**
+	 * 
+	 */
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this).append("binlogFileName", binlogFileName)
+        .append("position", position).toString();
+  }
+
+  @Override
+  public int hashCode() {
+    return this.binlogFileName.hashCode() * 31 + (int) (this.position ^ (this.position >>> 32));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (!(obj instanceof BinlogPosition)) return false;
+    final BinlogPosition rhs = (BinlogPosition) obj;
+    return this.position == rhs.position && this.binlogFileName.equals(rhs.binlogFileName);
+  }
+
+  /**
+   * Orders by file name then position, see {@link #compareBinlogFileNames(String, String)}.
+   */
+  public int compareTo(BinlogPosition rhs) {
+    final int r = compareBinlogFileNames(this.binlogFileName, rhs.binlogFileName);
+    if (r != 0) return r;
+    return this.position < rhs.position ? -1 : (this.position == rhs.position ? 0 : 1);
+  }
+
+  /**
+   * Orders binlog file names in binlog order: by base name, then by numeric extension as a number,
+   * so that {@code mysql-bin.1000000} comes after {@code mysql-bin.999999}.
+   */
+  public static int compareBinlogFileNames(String a, String b) {
+    //
+    final int i = a.lastIndexOf('.'), j = b.lastIndexOf('.');
+    if (i < 0 || j < 0 || !isDigits(a, i + 1) || !isDigits(b, j + 1)) return a.compareTo(b);
+    final int r = a.substring(0, i).compareTo(b.substring(0, j));
+    if (r != 0) return r;
+
+    // Longer numbers, without their leading zeros, are larger
+    int x = i + 1, y = j + 1;
+    while (x < a.length() - 1 && a.charAt(x) == '0') x++;
+    while (y < b.length() - 1 && b.charAt(y) == '0') y++;
+    final int n = (a.length() - x) - (b.length() - y);
+    if (n != 0) return n < 0 ? -1 : 1;
+    final int d = a.substring(x).compareTo(b.substring(y));
+    return d != 0 ? d : a.compareTo(b); // Consistent with equals
+  }
+
+  private static boolean isDigits(String s, int from) {
+    if (from >= s.length()) return false;
+    for (int i = from; i < s.length(); i++) {
+      if (s.charAt(i) < '0' || s.charAt(i) > '9') return false;
+    }
+    return true;
+  }
+
+  /**
+	 * 
+	 */
+  public String getBinlogFileName() {
+    return binlogFileName;
+  }
+
+  public long getPosition() {
+    return position;
+  }
+}
@@ -21,7 +21,7 @@ import java.util.Arrays;
 import com.google.code.or.common.util.CodecUtils;
 import com.google.code.or.common.util.MySQLConstants;
 import com.google.code.or.common.util.ToStringBuilder;
-import com.google.code.or.io.util.XDeserializer;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 
 /**
  * 
@@ -67,7 +67,7 @@ public final class Metadata implements Serializable {
 	 */
   public static final Metadata valueOf(byte[] type, byte[] data) throws IOException {
     final int[] metadata = new int[type.length];
-    final XDeserializer d = new XDeserializer(data);
+    final ByteArrayXInputStream d = new ByteArrayXInputStream(data);
     for (int i = 0; i < type.length; i++) {
       final int t = CodecUtils.toUnsigned(type[i]);
       switch (t) {
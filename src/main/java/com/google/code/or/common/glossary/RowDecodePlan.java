@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.common.glossary;
+
+import java.util.Arrays;
+
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.util.CodecUtils;
+import com.google.code.or.common.util.MySQLConstants;
+import com.google.code.or.common.util.MySQLUtils;
+import com.google.code.or.common.util.ToStringBuilder;
+
+/**
+ * The decoding of the rows of a table definition, compiled once from the column types and
+ * metadata of its table map: the real type of every column after resolving STRING packed
+ * ENUM/SET/CHAR columns, and its fixed width in bytes or the size of its length prefix. Plans are
+ * immutable, so they are shared by every rows event and thread using the same definition, and two
+ * definitions with the same {@link #getFingerprint() fingerprint} decode the same way.
+ */
+public final class RowDecodePlan {
+  //
+  final int columnCount;
+  final int[] types;
+  final int[] metas;
+  final int[] widths; // Fixed width, or the length prefix size if negative
+  private final int[] fingerprint;
+  private final int hashCode;
+
+  /**
+	 * 
+	 */
+  public RowDecodePlan(byte[] columnTypes, Metadata metadata) {
+    //
+    this.columnCount = columnTypes.length;
+    this.types = new int[this.columnCount];
+    this.metas = new int[this.columnCount];
+    this.widths = new int[this.columnCount];
+    this.fingerprint = getFingerprint(columnTypes, metadata);
+    this.hashCode = Arrays.hashCode(this.fingerprint);
+
+    //
+    for (int i = 0; i < this.columnCount; i++) {
+      resolve(i, CodecUtils.toUnsigned(columnTypes[i]), metadata.getMetadata(i));
+    }
+  }
+
+  /**
+	 * 
+	 */
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this).append("types", Arrays.toString(types))
+        .append("metas", Arrays.toString(metas)).append("widths", Arrays.toString(widths))
+        .toString();
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (!(obj instanceof RowDecodePlan)) return false;
+    final RowDecodePlan rhs = (RowDecodePlan) obj;
+    return this.hashCode == rhs.hashCode && Arrays.equals(this.fingerprint, rhs.fingerprint);
+  }
+
+  /**
+	 * 
+	 */
+  public int getColumnCount() {
+    return this.columnCount;
+  }
+
+  /**
+   * @return the column type after resolving the real type of STRING packed ENUM/SET/CHAR columns
+   */
+  public int getType(int column) {
+    return this.types[column];
+  }
+
+  public int getMetadata(int column) {
+    return this.metas[column];
+  }
+
+  /**
+   * @return the fixed width of the column, or the size of its length prefix if negative
+   */
+  public int getWidth(int column) {
+    return this.widths[column];
+  }
+
+  /**
+   * @return the size of the null bitmap of a row image with the given used columns
+   */
+  public int getNullBitmapSize(BitColumn usedColumns) {
+    return (getUsedColumnCount(usedColumns) + 7) >> 3;
+  }
+
+  public int getUsedColumnCount(BitColumn usedColumns) {
+    int r = 0;
+    for (int i = 0; i < this.columnCount; i++) {
+      if (usedColumns.get(i)) r++;
+    }
+    return r;
+  }
+
+  /**
+   * @return the column types and metadata the plan is compiled from, in this order
+   */
+  public int[] getFingerprint() {
+    return this.fingerprint.clone();
+  }
+
+  public static int[] getFingerprint(byte[] columnTypes, Metadata metadata) {
+    final int[] r = new int[columnTypes.length << 1];
+    for (int i = 0; i < columnTypes.length; i++) {
+      r[i] = CodecUtils.toUnsigned(columnTypes[i]);
+      r[columnTypes.length + i] = metadata.getMetadata(i);
+    }
+    return r;
+  }
+
+  /**
+	 * 
+	 */
+  private void resolve(int column, int type, int meta) {
+    //
+    int length = 0;
+    if (type == MySQLConstants.TYPE_STRING && meta > 256) {
+      final int meta0 = meta >> 8;
+      final int meta1 = meta & 0xFF;
+      if ((meta0 & 0x30) != 0x30) { // a long CHAR() field: see #37426
+        type = meta0 | 0x30;
+        length = meta1 | (((meta0 & 0x30) ^ 0x30) << 4);
+      } else {
+        switch (meta0) {
+          case MySQLConstants.TYPE_SET:
+          case MySQLConstants.TYPE_ENUM:
+          case MySQLConstants.TYPE_STRING:
+            type = meta0;
+            length = meta1;
+            break;
+          default:
+            throw new RuntimeException("assertion failed, unknown column type: " + type);
+        }
+      }
+    }
+
+    //
+    this.types[column] = type;
+    this.metas[column] = meta;
+    this.widths[column] = MySQLUtils.getColumnWidth(type, meta, length);
+  }
+}
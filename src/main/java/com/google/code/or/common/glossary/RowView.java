@@ -0,0 +1,285 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.common.glossary;
+
+import java.math.BigDecimal;
+
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.util.CodecUtils;
+import com.google.code.or.common.util.MySQLConstants;
+import com.google.code.or.common.util.MySQLUtils;
+
+/**
+ * A reusable, flyweight view of one row image inside a rows event body. Column offsets are computed
+ * once per row by {@link #wrap(byte[], int)}, values are decoded on demand by the typed accessors,
+ * so a row can be consumed without allocating anything.
+ * <p>
+ * A view is only valid until the next call to {@link #wrap(byte[], int)} or
+ * {@link #reset(RowDecodePlan, BitColumn)}, consumers must copy whatever they want to keep.
+ */
+public final class RowView {
+  //
+  private static final int UNUSED = -2;
+  private static final int NULL = -1;
+
+  //
+  private byte[] data;
+  private int columnCount;
+  private int usedColumnCount;
+  private byte[] columnTypes;
+  private RowDecodePlan plan;
+  private int[] types;
+  private int[] metas;
+  private int[] widths;
+  private int[] offsets = new int[0];
+  private int[] lengths = new int[0];
+  private boolean[] used = new boolean[0];
+
+  /**
+	 * 
+	 */
+  public RowView reset(byte[] columnTypes, Metadata metadata, BitColumn usedColumns) {
+    if (this.columnTypes != columnTypes) {
+      this.columnTypes = columnTypes;
+      this.plan = new RowDecodePlan(columnTypes, metadata);
+    }
+    return reset(this.plan, usedColumns);
+  }
+
+  public RowView reset(RowDecodePlan plan, BitColumn usedColumns) {
+    return reset(plan, usedColumns, plan.getUsedColumnCount(usedColumns));
+  }
+
+  /**
+   * @param usedColumnCount the number of used columns, see
+   *        {@link RowDecodePlan#getUsedColumnCount(BitColumn)}
+   */
+  public RowView reset(RowDecodePlan plan, BitColumn usedColumns, int usedColumnCount) {
+    //
+    if (this.plan != plan) {
+      this.plan = plan;
+      this.columnTypes = null;
+    }
+    this.columnCount = plan.columnCount;
+    this.types = plan.types;
+    this.metas = plan.metas;
+    this.widths = plan.widths;
+    if (this.offsets.length < this.columnCount) {
+      this.offsets = new int[this.columnCount];
+      this.lengths = new int[this.columnCount];
+      this.used = new boolean[this.columnCount];
+    }
+
+    //
+    this.usedColumnCount = usedColumnCount;
+    for (int i = 0; i < this.columnCount; i++) {
+      this.used[i] = usedColumns.get(i);
+    }
+    return this;
+  }
+
+  /**
+   * Computes the column offsets of the row image starting at the given offset.
+   *
+   * @return the offset of the next row image
+   */
+  public int wrap(byte[] data, int offset) {
+    //
+    this.data = data;
+    final int nullOffset = offset;
+    offset += (this.usedColumnCount + 7) >> 3;
+
+    //
+    int unusedColumnCount = 0;
+    for (int i = 0; i < this.columnCount; ++i) {
+      //
+      if (!this.used[i]) {
+        unusedColumnCount++;
+        this.offsets[i] = UNUSED;
+        continue;
+      }
+      final int index = i - unusedColumnCount;
+      if ((data[nullOffset + (index >> 3)] & (1 << (index & 0x07))) != 0) {
+        this.offsets[i] = NULL;
+        continue;
+      }
+
+      //
+      final int width = this.widths[i];
+      if (width >= 0) {
+        this.offsets[i] = offset;
+        this.lengths[i] = width;
+        offset += width;
+      } else {
+        final int prefix = -width;
+        final int length = (int) toLittleEndianLong(data, offset, prefix);
+        this.offsets[i] = offset + prefix;
+        this.lengths[i] = length;
+        offset += prefix + length;
+      }
+    }
+    return offset;
+  }
+
+  /**
+	 * 
+	 */
+  public int getColumnCount() {
+    return this.columnCount;
+  }
+
+  public boolean isUsed(int column) {
+    return this.offsets[column] != UNUSED;
+  }
+
+  public boolean isNull(int column) {
+    return this.offsets[column] == NULL;
+  }
+
+  /**
+   * @return the column type after resolving the real type of STRING packed ENUM/SET/CHAR columns
+   */
+  public int getType(int column) {
+    return this.types[column];
+  }
+
+  public int getMetadata(int column) {
+    return this.metas[column];
+  }
+
+  /**
+   * @return the buffer the view currently points to, see {@link #getOffset(int)}
+   */
+  public byte[] getData() {
+    return this.data;
+  }
+
+  public int getOffset(int column) {
+    final int r = this.offsets[column];
+    if (r < 0) {
+      final String state = r == NULL ? "null" : "unused";
+      throw new IllegalStateException("column " + column + " is " + state);
+    }
+    return r;
+  }
+
+  public int getLength(int column) {
+    getOffset(column);
+    return this.lengths[column];
+  }
+
+  /**
+   * Integer, ENUM, SET, YEAR and BIT columns are returned as their values. TIMESTAMP is returned
+   * as the seconds since the epoch, the other temporal columns as their packed MySQL
+   * representation (without the fractional part of TIME2, DATETIME2 and TIMESTAMP2 columns).
+   * DECIMAL columns of up to {@link MySQLUtils#MAX_UNSCALED_LONG_PRECISION} digits are returned as
+   * their unscaled value.
+   */
+  public long getLong(int column) {
+    final int offset = getOffset(column);
+    switch (this.types[column]) {
+      case MySQLConstants.TYPE_TINY:
+        return this.data[offset];
+      case MySQLConstants.TYPE_SHORT:
+      case MySQLConstants.TYPE_INT24:
+      case MySQLConstants.TYPE_LONG:
+      case MySQLConstants.TYPE_LONGLONG:
+        return toSignedLong(this.data, offset, this.lengths[column]);
+      case MySQLConstants.TYPE_YEAR:
+        return MySQLUtils.toYear(this.data[offset] & 0xFF);
+      case MySQLConstants.TYPE_BIT:
+        return toBigEndianLong(this.data, offset, this.lengths[column]);
+      case MySQLConstants.TYPE_TIME2:
+        return toBigEndianLong(this.data, offset, 3);
+      case MySQLConstants.TYPE_DATETIME2:
+        return toBigEndianLong(this.data, offset, 5);
+      case MySQLConstants.TYPE_TIMESTAMP2:
+        return toBigEndianLong(this.data, offset, 4);
+      case MySQLConstants.TYPE_NEWDECIMAL:
+        final int meta = this.metas[column];
+        return MySQLUtils.toUnscaledLong(meta & 0xFF, meta >> 8, this.data, offset);
+      default:
+        return toLittleEndianLong(this.data, offset, Math.min(this.lengths[column], 8));
+    }
+  }
+
+  public int getInt(int column) {
+    return (int) getLong(column);
+  }
+
+  /**
+   * @return the raw fractional seconds of TIME2, DATETIME2 and TIMESTAMP2 columns
+   */
+  public int getFraction(int column) {
+    final int offset = getOffset(column);
+    switch (this.types[column]) {
+      case MySQLConstants.TYPE_TIME2:
+        return (int) toBigEndianLong(this.data, offset + 3, this.lengths[column] - 3);
+      case MySQLConstants.TYPE_DATETIME2:
+        return (int) toBigEndianLong(this.data, offset + 5, this.lengths[column] - 5);
+      case MySQLConstants.TYPE_TIMESTAMP2:
+        return (int) toBigEndianLong(this.data, offset + 4, this.lengths[column] - 4);
+      default:
+        return 0;
+    }
+  }
+
+  public BigDecimal getDecimal(int column) {
+    final int meta = this.metas[column];
+    return MySQLUtils.toDecimal(meta & 0xFF, meta >> 8, this.data, getOffset(column));
+  }
+
+  public float getFloat(int column) {
+    return Float.intBitsToFloat((int) toLittleEndianLong(this.data, getOffset(column), 4));
+  }
+
+  public double getDouble(int column) {
+    return Double.longBitsToDouble(toLittleEndianLong(this.data, getOffset(column), 8));
+  }
+
+  /**
+   * Copies the column value (without its length prefix) into the given buffer.
+   *
+   * @return the number of bytes copied
+   */
+  public int getBytes(int column, byte[] dst) {
+    return getBytes(column, dst, 0);
+  }
+
+  public int getBytes(int column, byte[] dst, int off) {
+    final int offset = getOffset(column);
+    final int length = this.lengths[column];
+    System.arraycopy(this.data, offset, dst, off, length);
+    return length;
+  }
+
+  private static long toSignedLong(byte[] data, int offset, int length) {
+    final long r = toLittleEndianLong(data, offset, length);
+    final int shift = 64 - (length << 3);
+    return (r << shift) >> shift;
+  }
+
+  private static long toLittleEndianLong(byte[] data, int offset, int length) {
+    long r = 0;
+    for (int i = length - 1; i >= 0; i--) {
+      r = (r << 8) | (data[offset + i] & 0xFF);
+    }
+    return r;
+  }
+
+  private static long toBigEndianLong(byte[] data, int offset, int length) {
+    return CodecUtils.toLong(data, offset, length);
+  }
+}
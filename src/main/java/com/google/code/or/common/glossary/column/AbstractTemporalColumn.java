@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.common.glossary.column;
+
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.util.DatetimeConverter;
+import com.google.code.or.common.util.MySQLUtils;
+
+/**
+ * A temporal value kept as its packed fields, see
+ * {@link MySQLUtils#packDatetime(int, int, int, int, int, int, int)}. The fields are read without
+ * any time zone, the value of a column is converted to a date in the default time zone on first
+ * use, and to other time zones by {@link #toMillis(DatetimeConverter)}.
+ */
+public abstract class AbstractTemporalColumn implements Column {
+  //
+  private static final long serialVersionUID = -5419137364591520384L;
+
+  //
+  protected final long packed;
+
+  /**
+	 * 
+	 */
+  protected AbstractTemporalColumn(long packed) {
+    this.packed = packed;
+  }
+
+  /**
+	 * 
+	 */
+  public long getPacked() {
+    return packed;
+  }
+
+  public int getYear() {
+    return MySQLUtils.getPackedYear(this.packed);
+  }
+
+  public int getMonth() {
+    return MySQLUtils.getPackedMonth(this.packed);
+  }
+
+  public int getDay() {
+    return MySQLUtils.getPackedDay(this.packed);
+  }
+
+  public int getHour() {
+    return MySQLUtils.getPackedHour(this.packed);
+  }
+
+  public int getMinute() {
+    return MySQLUtils.getPackedMinute(this.packed);
+  }
+
+  public int getSecond() {
+    return MySQLUtils.getPackedSecond(this.packed);
+  }
+
+  public int getMicros() {
+    return MySQLUtils.getPackedMicros(this.packed);
+  }
+
+  /**
+   * @return the milliseconds since the epoch of the value in the time zone of the given converter
+   */
+  public long toMillis(DatetimeConverter converter) {
+    return converter.toMillis(this.packed);
+  }
+}
@@ -14,23 +14,25 @@
  */
 package com.google.code.or.common.glossary.column;
 
-import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.util.DatetimeConverter;
+import com.google.code.or.common.util.MySQLUtils;
 
 /**
  * 
  * @author Jingqi Xu
  */
-public final class DateColumn implements Column {
+public final class DateColumn extends AbstractTemporalColumn {
   //
   private static final long serialVersionUID = 959710929844516680L;
 
   //
-  private final java.sql.Date value;
+  private volatile java.sql.Date value;
 
   /**
 	 * 
 	 */
-  private DateColumn(java.sql.Date value) {
+  private DateColumn(long packed, java.sql.Date value) {
+    super(packed);
     this.value = value;
   }
 
@@ -39,20 +41,29 @@ public final class DateColumn implements Column {
 	 */
   @Override
   public String toString() {
-    return String.valueOf(this.value);
+    return String.valueOf(getValue());
   }
 
   /**
 	 * 
 	 */
   public java.sql.Date getValue() {
-    return this.value;
+    java.sql.Date r = this.value;
+    if (r == null) {
+      r = new java.sql.Date(DatetimeConverter.getDefault().toMillis(this.packed));
+      this.value = r;
+    }
+    return r;
   }
 
   /**
 	 * 
 	 */
   public static final DateColumn valueOf(java.sql.Date value) {
-    return new DateColumn(value);
+    return new DateColumn(MySQLUtils.packDatetime(value), value);
+  }
+
+  public static final DateColumn valueOf(long packed) {
+    return new DateColumn(packed, null);
   }
 }
@@ -14,23 +14,25 @@
  */
 package com.google.code.or.common.glossary.column;
 
-import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.util.DatetimeConverter;
+import com.google.code.or.common.util.MySQLUtils;
 
 /**
  * 
  * @author Jingqi Xu
  */
-public final class Datetime2Column implements Column {
+public final class Datetime2Column extends AbstractTemporalColumn {
   //
   private static final long serialVersionUID = 6444968242222031354L;
 
   //
-  private final java.util.Date value;
+  private volatile java.util.Date value;
 
   /**
 	 * 
 	 */
-  private Datetime2Column(java.util.Date value) {
+  private Datetime2Column(long packed, java.util.Date value) {
+    super(packed);
     this.value = value;
   }
 
@@ -39,20 +41,29 @@ public final class Datetime2Column implements Column {
 	 */
   @Override
   public String toString() {
-    return String.valueOf(this.value);
+    return String.valueOf(getValue());
   }
 
   /**
 	 * 
 	 */
   public java.util.Date getValue() {
-    return this.value;
+    java.util.Date r = this.value;
+    if (r == null) {
+      r = new java.util.Date(DatetimeConverter.getDefault().toMillis(this.packed));
+      this.value = r;
+    }
+    return r;
   }
 
   /**
 	 * 
 	 */
   public static final Datetime2Column valueOf(java.util.Date value) {
-    return new Datetime2Column(value);
+    return new Datetime2Column(MySQLUtils.packDatetime(value), value);
+  }
+
+  public static final Datetime2Column valueOf(long packed) {
+    return new Datetime2Column(packed, null);
   }
 }
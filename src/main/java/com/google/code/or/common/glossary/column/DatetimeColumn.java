@@ -14,23 +14,25 @@
  */
 package com.google.code.or.common.glossary.column;
 
-import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.util.DatetimeConverter;
+import com.google.code.or.common.util.MySQLUtils;
 
 /**
  * 
  * @author Jingqi Xu
  */
-public final class DatetimeColumn implements Column {
+public final class DatetimeColumn extends AbstractTemporalColumn {
   //
   private static final long serialVersionUID = 6444968242222031354L;
 
   //
-  private final java.util.Date value;
+  private volatile java.util.Date value;
 
   /**
 	 * 
 	 */
-  private DatetimeColumn(java.util.Date value) {
+  private DatetimeColumn(long packed, java.util.Date value) {
+    super(packed);
     this.value = value;
   }
 
@@ -39,20 +41,29 @@ public final class DatetimeColumn implements Column {
 	 */
   @Override
   public String toString() {
-    return String.valueOf(this.value);
+    return String.valueOf(getValue());
   }
 
   /**
 	 * 
 	 */
   public java.util.Date getValue() {
-    return this.value;
+    java.util.Date r = this.value;
+    if (r == null) {
+      r = new java.util.Date(DatetimeConverter.getDefault().toMillis(this.packed));
+      this.value = r;
+    }
+    return r;
   }
 
   /**
 	 * 
 	 */
   public static final DatetimeColumn valueOf(java.util.Date value) {
-    return new DatetimeColumn(value);
+    return new DatetimeColumn(MySQLUtils.packDatetime(value), value);
+  }
+
+  public static final DatetimeColumn valueOf(long packed) {
+    return new DatetimeColumn(packed, null);
   }
 }
@@ -17,8 +17,12 @@ package com.google.code.or.common.glossary.column;
 import java.math.BigDecimal;
 
 import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.util.MySQLUtils;
 
 /**
+ * A DECIMAL value. Values of up to {@link MySQLUtils#MAX_UNSCALED_LONG_PRECISION} digits are kept
+ * as their unscaled long, which {@link #getUnscaledLong()} returns as is, and only turned into a
+ * {@link BigDecimal} by {@link #getValue()}.
  * 
  * @author Jingqi Xu
  */
@@ -27,15 +31,17 @@ public final class DecimalColumn implements Column {
   private static final long serialVersionUID = -3798378473095594835L;
 
   //
-  private final BigDecimal value;
+  private volatile BigDecimal value;
+  private final long unscaled;
   private final int precision;
   private final int scale;
 
   /**
 	 * 
 	 */
-  private DecimalColumn(BigDecimal value, int precision, int scale) {
+  private DecimalColumn(BigDecimal value, long unscaled, int precision, int scale) {
     this.value = value;
+    this.unscaled = unscaled;
     this.scale = scale;
     this.precision = precision;
   }
@@ -45,14 +51,35 @@ public final class DecimalColumn implements Column {
 	 */
   @Override
   public String toString() {
-    return String.valueOf(this.value);
+    return String.valueOf(getValue());
   }
 
   /**
 	 * 
 	 */
   public BigDecimal getValue() {
-    return this.value;
+    BigDecimal r = this.value;
+    if (r == null) {
+      r = BigDecimal.valueOf(this.unscaled, this.scale);
+      this.value = r;
+    }
+    return r;
+  }
+
+  /**
+   * @return the value multiplied by 10 to the power of the scale
+   * @throws ArithmeticException if the precision is more than
+   *         {@link MySQLUtils#MAX_UNSCALED_LONG_PRECISION}, as {@link BigDecimal#longValueExact()}
+   */
+  public long getUnscaledLong() {
+    if (!isUnscaledLong()) {
+      throw new ArithmeticException("unscaled value exceeds a long, precision: " + this.precision);
+    }
+    return this.unscaled;
+  }
+
+  public boolean isUnscaledLong() {
+    return this.precision <= MySQLUtils.MAX_UNSCALED_LONG_PRECISION;
   }
 
   public int getPrecision() {
@@ -64,11 +91,33 @@ public final class DecimalColumn implements Column {
   }
 
   /**
-	 * 
-	 */
+   * @throws IllegalArgumentException if the value does not fit the given precision and scale
+   */
   public static final DecimalColumn valueOf(BigDecimal value, int precision, int scale) {
+    //
     if (precision < scale)
       throw new IllegalArgumentException("invalid precision: " + precision + ", scale: " + scale);
-    return new DecimalColumn(value, precision, scale);
+    final BigDecimal v;
+    try {
+      v = value.setScale(scale); // Without rounding
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("invalid value: " + value + ", scale: " + scale);
+    }
+    if (v.precision() > precision) {
+      throw new IllegalArgumentException("invalid value: " + value + ", precision: " + precision);
+    }
+
+    //
+    long unscaled = 0;
+    if (precision <= MySQLUtils.MAX_UNSCALED_LONG_PRECISION) {
+      unscaled = v.unscaledValue().longValue();
+    }
+    return new DecimalColumn(value, unscaled, precision, scale);
+  }
+
+  public static final DecimalColumn valueOf(long unscaled, int precision, int scale) {
+    if (precision < scale || precision > MySQLUtils.MAX_UNSCALED_LONG_PRECISION)
+      throw new IllegalArgumentException("invalid precision: " + precision + ", scale: " + scale);
+    return new DecimalColumn(null, unscaled, precision, scale);
   }
 }
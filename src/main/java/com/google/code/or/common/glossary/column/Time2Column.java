@@ -14,23 +14,25 @@
  */
 package com.google.code.or.common.glossary.column;
 
-import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.util.DatetimeConverter;
+import com.google.code.or.common.util.MySQLUtils;
 
 /**
  * 
  * @author Jingqi Xu
  */
-public final class Time2Column implements Column {
+public final class Time2Column extends AbstractTemporalColumn {
   //
   private static final long serialVersionUID = 2408833111678694298L;
 
   //
-  private final java.sql.Time value;
+  private volatile java.sql.Time value;
 
   /**
 	 * 
 	 */
-  private Time2Column(java.sql.Time value) {
+  private Time2Column(long packed, java.sql.Time value) {
+    super(packed);
     this.value = value;
   }
 
@@ -39,20 +41,34 @@ public final class Time2Column implements Column {
 	 */
   @Override
   public String toString() {
-    return String.valueOf(this.value);
+    return String.valueOf(getValue());
   }
 
   /**
 	 * 
 	 */
   public java.sql.Time getValue() {
-    return this.value;
+    java.sql.Time r = this.value;
+    if (r == null) {
+      r = new java.sql.Time(DatetimeConverter.getDefault().toTimeMillis(this.packed));
+      this.value = r;
+    }
+    return r;
+  }
+
+  @Override
+  public long toMillis(DatetimeConverter converter) {
+    return converter.toTimeMillis(this.packed);
   }
 
   /**
 	 * 
 	 */
   public static final Time2Column valueOf(java.sql.Time value) {
-    return new Time2Column(value);
+    return new Time2Column(MySQLUtils.packDatetime(value), value);
+  }
+
+  public static final Time2Column valueOf(long packed) {
+    return new Time2Column(packed, null);
   }
 }
@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.common.util;
+
+import java.util.TimeZone;
+
+/**
+ * Converts packed temporal values (see {@link MySQLUtils#packDatetime(int, int, int, int, int, int,
+ * int)}) to milliseconds since the epoch in a time zone, without going through a
+ * {@link java.util.Calendar}. Dates are in the proleptic Gregorian calendar as they are in MySQL,
+ * and out of range fields roll over the way a lenient calendar does, so zero dates are still
+ * converted.
+ */
+public final class DatetimeConverter {
+  //
+  private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+  private static volatile DatetimeConverter defaultConverter;
+
+  //
+  private final TimeZone zone;
+  private final boolean fixed;
+
+  /**
+	 * 
+	 */
+  public DatetimeConverter(TimeZone zone) {
+    this.zone = (TimeZone) zone.clone();
+    this.fixed = "UTC".equals(zone.getID()) || "GMT".equals(zone.getID());
+  }
+
+  /**
+   * @return the converter of the default time zone as of the first call
+   */
+  public static DatetimeConverter getDefault() {
+    DatetimeConverter r = defaultConverter;
+    if (r == null) {
+      r = new DatetimeConverter(TimeZone.getDefault());
+      defaultConverter = r;
+    }
+    return r;
+  }
+
+  public static void setDefault(DatetimeConverter converter) {
+    defaultConverter = converter;
+  }
+
+  public TimeZone getZone() {
+    return (TimeZone) zone.clone();
+  }
+
+  /**
+	 * 
+	 */
+  public long toMillis(long packed) {
+    return toMillis(MySQLUtils.getPackedYear(packed), MySQLUtils.getPackedMonth(packed),
+        MySQLUtils.getPackedDay(packed), MySQLUtils.getPackedHour(packed),
+        MySQLUtils.getPackedMinute(packed), MySQLUtils.getPackedSecond(packed),
+        MySQLUtils.getPackedMicros(packed));
+  }
+
+  /**
+   * @return the milliseconds of the time of the given packed value on 1970-01-01
+   */
+  public long toTimeMillis(long packed) {
+    return toMillis(1970, 1, 1, MySQLUtils.getPackedHour(packed),
+        MySQLUtils.getPackedMinute(packed), MySQLUtils.getPackedSecond(packed),
+        MySQLUtils.getPackedMicros(packed));
+  }
+
+  public long toMillis(int year, int month, int day, int hour, int minute, int second,
+      int micros) {
+    //
+    final long local = toEpochDay(year, month, day) * MILLIS_PER_DAY
+        + ((hour * 60L + minute) * 60L + second) * 1000L + micros / 1000;
+    final int raw = this.zone.getRawOffset();
+    if (this.fixed) return local - raw;
+
+    //
+    final int before = this.zone.getOffset(local - raw - MILLIS_PER_DAY);
+    final int after = this.zone.getOffset(local - raw + MILLIS_PER_DAY);
+    if (before == after) return local - this.zone.getOffset(local - before);
+
+    // Around a transition, the later instant is taken as a lenient calendar does
+    final boolean b = this.zone.getOffset(local - before) == before;
+    final boolean a = this.zone.getOffset(local - after) == after;
+    if (a != b) return local - (a ? after : before);
+    return local - Math.min(before, after);
+  }
+
+  /**
+   * @return the days since 1970-01-01 of the given date, month and day may be out of range
+   */
+  public static long toEpochDay(int year, int month, int day) {
+    //
+    long y = year + floorDiv(month - 1, 12);
+    final int m = (int) ((month - 1) - floorDiv(month - 1, 12) * 12) + 1;
+
+    // Counted in eras of 400 years starting on March 1st
+    if (m <= 2) y--;
+    final long era = (y >= 0 ? y : y - 399) / 400;
+    final long yoe = y - era * 400;
+    final long doy = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5;
+    final long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+    return era * 146097 + doe - 719468 + (day - 1);
+  }
+
+  private static long floorDiv(long x, long y) {
+    final long r = x / y;
+    return (x % y != 0 && ((x ^ y) < 0)) ? r - 1 : r;
+  }
+}
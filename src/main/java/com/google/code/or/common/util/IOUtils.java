@@ -14,6 +14,8 @@
  */
 package com.google.code.or.common.util;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.Socket;
 
 import com.google.code.or.io.XInputStream;
@@ -51,4 +53,32 @@ public final class IOUtils {
       // NOP
     }
   }
+
+  /**
+   * Replaces the given file by the given temporary file, at once where the file system can rename
+   * over an existing file. Otherwise the file is deleted before the rename, and until the rename
+   * {@link #getReplacedFile(File, File)} falls back to the temporary file, which must have been
+   * synced beforehand.
+   * <p>
+   * The parent directory is not synced, there is no way to in Java 6, so on some file systems a
+   * power failure right after the rename may still bring the previous file back.
+   */
+  public static void replace(File tmp, File file) throws IOException {
+    if (tmp.renameTo(file)) return;
+    if (file.exists() && !file.delete()) {
+      throw new IOException("failed to replace file: " + file);
+    }
+    if (!tmp.renameTo(file)) {
+      throw new IOException("failed to rename file: " + tmp + " to " + file);
+    }
+  }
+
+  /**
+   * @return the given file if it exists, otherwise the temporary file it is being replaced by with
+   *         {@link #replace(File, File)} if it exists, otherwise null
+   */
+  public static File getReplacedFile(File file, File tmp) {
+    if (file.exists()) return file;
+    return tmp.exists() ? tmp : null;
+  }
 }
@@ -23,6 +23,10 @@ public final class MySQLConstants {
   public static final byte[] BINLOG_MAGIC = new byte[] {(byte) 0xfe, (byte) 0x62, (byte) 0x69,
       (byte) 0x6e};
 
+  // Binlog checksum algorithms
+  public static final int BINLOG_CHECKSUM_ALG_OFF = 0;
+  public static final int BINLOG_CHECKSUM_ALG_CRC32 = 1;
+
   //
   public static final int MAX_TIME_WIDTH = 10;
   public static final int MAX_DATETIME_WIDTH = 19;
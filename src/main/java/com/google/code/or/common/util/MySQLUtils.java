@@ -15,6 +15,7 @@
 package com.google.code.or.common.util;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Timestamp;
 import java.util.Calendar;
 
@@ -24,11 +25,16 @@ import java.util.Calendar;
  * @see tungsten replicator
  */
 public final class MySQLUtils {
+  //
+  public static final int MAX_UNSCALED_LONG_PRECISION = 18;
+
   //
   private static final int DIGITS_PER_4BYTES = 9;
-  private static final BigDecimal POSITIVE_ONE = BigDecimal.ONE;
-  private static final BigDecimal NEGATIVE_ONE = new BigDecimal("-1");
   private static final int DECIMAL_BINARY_SIZE[] = {0, 1, 1, 2, 2, 3, 3, 4, 4, 4};
+  private static final long POWERS_OF_TEN[] = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L,
+      10000000L, 100000000L, 1000000000L, 10000000000L, 100000000000L, 1000000000000L,
+      10000000000000L, 100000000000000L, 1000000000000000L, 10000000000000000L,
+      100000000000000000L, 1000000000000000000L};
 
   /**
 	 * 
@@ -47,39 +53,114 @@ public final class MySQLUtils {
   }
 
   public static java.sql.Date toDate(int value) {
+    final long packed = toPackedDate(value);
+    return new java.sql.Date(DatetimeConverter.getDefault().toMillis(packed));
+  }
+
+  public static java.sql.Time toTime(int value) {
+    final long packed = toPackedTime(value);
+    return new java.sql.Time(DatetimeConverter.getDefault().toTimeMillis(packed));
+  }
+
+  public static java.sql.Time toTime2(int value, int nanos) {
+    final long packed = toPackedTime2(value, 0);
+    return new java.sql.Time(DatetimeConverter.getDefault().toTimeMillis(packed) + nanos / 1000000);
+  }
+
+  public static java.util.Date toDatetime(long value) {
+    final long packed = toPackedDatetime(value);
+    return new java.util.Date(DatetimeConverter.getDefault().toMillis(packed));
+  }
+
+  public static java.util.Date toDatetime2(long value, int nanos) {
+    final long packed = toPackedDatetime2(value, 0);
+    return new java.util.Date(DatetimeConverter.getDefault().toMillis(packed) + nanos / 1000000);
+  }
+
+  public static java.sql.Timestamp toTimestamp(long seconds) {
+    return new java.sql.Timestamp(seconds * 1000L);
+  }
+
+  public static Timestamp toTimestamp2(long seconds, int nanos) {
+    final java.sql.Timestamp r = new java.sql.Timestamp(seconds * 1000L);
+    r.setNanos(nanos);
+    return r;
+  }
+
+  /**
+   * Packs the fields of a temporal value into a long, from the most significant bits: year * 13 +
+   * month (17 bits), day (5 bits), hour (10 bits), minute (6 bits), second (6 bits) and
+   * microseconds (20 bits). Packed values of the same type compare the way their values do.
+   */
+  public static long packDatetime(int year, int month, int day, int hour, int minute, int second,
+      int micros) {
+    return (year * 13L + month) << 47 | (long) day << 42 | (long) hour << 32 | (long) minute << 26
+        | (long) second << 20 | micros;
+  }
+
+  public static long packDatetime(java.util.Date value) {
+    final Calendar c = Calendar.getInstance();
+    c.setTime(value);
+    return packDatetime(c.get(Calendar.YEAR), c.get(Calendar.MONTH) + 1,
+        c.get(Calendar.DAY_OF_MONTH), c.get(Calendar.HOUR_OF_DAY), c.get(Calendar.MINUTE),
+        c.get(Calendar.SECOND), c.get(Calendar.MILLISECOND) * 1000);
+  }
+
+  public static int getPackedYear(long packed) {
+    return (int) ((packed >>> 47) / 13);
+  }
+
+  public static int getPackedMonth(long packed) {
+    return (int) ((packed >>> 47) % 13);
+  }
+
+  public static int getPackedDay(long packed) {
+    return (int) (packed >>> 42) & 0x1F;
+  }
+
+  public static int getPackedHour(long packed) {
+    return (int) (packed >>> 32) & 0x3FF;
+  }
+
+  public static int getPackedMinute(long packed) {
+    return (int) (packed >>> 26) & 0x3F;
+  }
+
+  public static int getPackedSecond(long packed) {
+    return (int) (packed >>> 20) & 0x3F;
+  }
+
+  public static int getPackedMicros(long packed) {
+    return (int) packed & 0xFFFFF;
+  }
+
+  /**
+   * Decodes the row image value of a temporal column into a packed value.
+   */
+  public static long toPackedDate(int value) {
     final int d = value % 32;
     value >>>= 5;
     final int m = value % 16;
     final int y = value >> 4;
-    final Calendar cal = Calendar.getInstance();
-    cal.clear();
-    cal.set(y, m - 1, d);
-    return new java.sql.Date(cal.getTimeInMillis());
+    return packDatetime(y, m, d, 0, 0, 0, 0);
   }
 
-  public static java.sql.Time toTime(int value) {
-    final int s = (int) (value % 100);
+  public static long toPackedTime(int value) {
+    final int s = value % 100;
     value /= 100;
-    final int m = (int) (value % 100);
-    final int h = (int) (value / 100);
-    final Calendar c = Calendar.getInstance();
-    c.set(1970, 0, 1, h, m, s);
-    c.set(Calendar.MILLISECOND, 0);
-    return new java.sql.Time(c.getTimeInMillis());
+    final int m = value % 100;
+    final int h = value / 100;
+    return packDatetime(0, 0, 0, h, m, s, 0);
   }
 
-  public static java.sql.Time toTime2(int value, int nanos) {
+  public static long toPackedTime2(int value, int micros) {
     final int h = (value >> 12) & 0x3FF;
     final int m = (value >> 6) & 0x3F;
     final int s = (value >> 0) & 0x3F;
-    final Calendar c = Calendar.getInstance();
-    c.set(1970, 0, 1, h, m, s);
-    c.set(Calendar.MILLISECOND, 0);
-    final long millis = c.getTimeInMillis();
-    return new java.sql.Time(millis + (nanos / 1000000));
+    return packDatetime(0, 0, 0, h, m, s, micros);
   }
 
-  public static java.util.Date toDatetime(long value) {
+  public static long toPackedDatetime(long value) {
     final int second = (int) (value % 100);
     value /= 100;
     final int minute = (int) (value % 100);
@@ -90,74 +171,123 @@ public final class MySQLUtils {
     value /= 100;
     final int month = (int) (value % 100);
     final int year = (int) (value / 100);
-    final Calendar c = Calendar.getInstance();
-    c.set(year, month - 1, day, hour, minute, second);
-    c.set(Calendar.MILLISECOND, 0);
-    return c.getTime();
+    return packDatetime(year, month, day, hour, minute, second, 0);
   }
 
-  public static java.util.Date toDatetime2(long value, int nanos) {
-    final long x = (value >> 22) & 0x1FFFFL;
-    final int year = (int) (x / 13);
-    final int month = (int) (x % 13);
+  public static long toPackedDatetime2(long value, int micros) {
+    final long x = (value >> 22) & 0x1FFFFL; // year * 13 + month
     final int day = ((int) (value >> 17)) & 0x1F;
     final int hour = ((int) (value >> 12)) & 0x1F;
     final int minute = ((int) (value >> 6)) & 0x3F;
     final int second = ((int) (value >> 0)) & 0x3F;
-    final Calendar c = Calendar.getInstance();
-    c.set(year, month - 1, day, hour, minute, second);
-    c.set(Calendar.MILLISECOND, 0);
-    final long millis = c.getTimeInMillis();
-    return new java.util.Date(millis + (nanos / 1000000));
+    return (x << 47) | packDatetime(0, 0, day, hour, minute, second, micros);
   }
 
-  public static java.sql.Timestamp toTimestamp(long seconds) {
-    return new java.sql.Timestamp(seconds * 1000L);
+  /**
+   * @return the microseconds of the fractional part of a TIME2, DATETIME2 or TIMESTAMP2 value,
+   *         which is stored in (meta + 1) / 2 bytes given its metadata
+   */
+  public static int toMicros(int fraction, int meta) {
+    switch ((meta + 1) / 2) {
+      case 1:
+        return fraction * 10000;
+      case 2:
+        return fraction * 100;
+      default:
+        return fraction;
+    }
   }
 
-  public static Timestamp toTimestamp2(long seconds, int nanos) {
-    final java.sql.Timestamp r = new java.sql.Timestamp(seconds * 1000L);
-    r.setNanos(nanos);
-    return r;
-  }
+  /**
+   * Decodes a DECIMAL value of up to {@link #MAX_UNSCALED_LONG_PRECISION} digits into its unscaled
+   * value, the given bytes are left untouched.
+   */
+  public static long toUnscaledLong(int precision, int scale, byte[] value, int offset) {
+    //
+    if (precision > MAX_UNSCALED_LONG_PRECISION) {
+      throw new IllegalArgumentException("invalid precision: " + precision);
+    }
 
-  public static BigDecimal toDecimal(int precision, int scale, byte[] value) {
     //
-    final boolean positive = (value[0] & 0x80) == 0x80;
-    value[0] ^= 0x80;
-    if (!positive) {
-      for (int i = 0; i < value.length; i++) {
-        value[i] ^= 0xFF;
-      }
+    final boolean positive = (value[offset] & 0x80) == 0x80;
+    final int mask = positive ? 0 : 0xFF;
+    final int ipDigits = (precision - scale) / DIGITS_PER_4BYTES;
+    final int fpDigits = scale / DIGITS_PER_4BYTES;
+    final int groups = ipDigits + fpDigits + 2;
+    long r = 0;
+    for (int g = 0, p = offset; g < groups; g++) {
+      final int digits = getGroupDigits(precision, scale, g, groups);
+      if (digits == 0) continue;
+      final int size = DECIMAL_BINARY_SIZE[digits];
+      r = r * POWERS_OF_TEN[digits] + toDecimalGroup(value, offset, p, size, mask);
+      p += size;
     }
+    return positive ? r : -r;
+  }
+
+  public static BigDecimal toDecimal(int precision, int scale, byte[] value) {
+    return toDecimal(precision, scale, value, 0);
+  }
 
+  /**
+   * Decodes a DECIMAL value, the digits are gathered into a long up to 18 at a time so only the
+   * values of more than 18 digits go through {@link BigInteger} arithmetic.
+   */
+  public static BigDecimal toDecimal(int precision, int scale, byte[] value, int offset) {
     //
-    final int x = precision - scale;
-    final int ipDigits = x / DIGITS_PER_4BYTES;
-    final int ipDigitsX = x - ipDigits * DIGITS_PER_4BYTES;
-    final int ipSize = (ipDigits << 2) + DECIMAL_BINARY_SIZE[ipDigitsX];
-    int offset = DECIMAL_BINARY_SIZE[ipDigitsX];
-    BigDecimal ip =
-        offset > 0 ? BigDecimal.valueOf(CodecUtils.toInt(value, 0, offset)) : BigDecimal.ZERO;
-    for (; offset < ipSize; offset += 4) {
-      final int i = CodecUtils.toInt(value, offset, 4);
-      ip = ip.movePointRight(DIGITS_PER_4BYTES).add(BigDecimal.valueOf(i));
+    if (precision <= MAX_UNSCALED_LONG_PRECISION) {
+      return BigDecimal.valueOf(toUnscaledLong(precision, scale, value, offset), scale);
     }
 
     //
-    int shift = 0;
-    BigDecimal fp = BigDecimal.ZERO;
-    for (; shift + DIGITS_PER_4BYTES <= scale; shift += DIGITS_PER_4BYTES, offset += 4) {
-      final int i = CodecUtils.toInt(value, offset, 4);
-      fp = fp.add(BigDecimal.valueOf(i).movePointLeft(shift + DIGITS_PER_4BYTES));
+    final boolean positive = (value[offset] & 0x80) == 0x80;
+    final int mask = positive ? 0 : 0xFF;
+    final int ipDigits = (precision - scale) / DIGITS_PER_4BYTES;
+    final int fpDigits = scale / DIGITS_PER_4BYTES;
+    final int groups = ipDigits + fpDigits + 2;
+    BigInteger r = null;
+    long x = 0;
+    int n = 0;
+    for (int g = 0, p = offset; g < groups; g++) {
+      final int digits = getGroupDigits(precision, scale, g, groups);
+      if (digits == 0) continue;
+      if (n + digits > MAX_UNSCALED_LONG_PRECISION) {
+        r = shift(r, x, n);
+        x = 0;
+        n = 0;
+      }
+      final int size = DECIMAL_BINARY_SIZE[digits];
+      x = x * POWERS_OF_TEN[digits] + toDecimalGroup(value, offset, p, size, mask);
+      n += digits;
+      p += size;
     }
-    if (shift < scale) {
-      final int i = CodecUtils.toInt(value, offset, DECIMAL_BINARY_SIZE[scale - shift]);
-      fp = fp.add(BigDecimal.valueOf(i).movePointLeft(scale));
+    r = shift(r, x, n);
+    return new BigDecimal(positive ? r : r.negate(), scale);
+  }
+
+  /**
+   * The digits of a DECIMAL value are stored in groups of 9, the integral ones aligned on the
+   * decimal point so that the first group may be shorter, and the fractional ones as well so that
+   * the last group may be shorter.
+   */
+  private static int getGroupDigits(int precision, int scale, int group, int groups) {
+    if (group == 0) return (precision - scale) % DIGITS_PER_4BYTES;
+    else if (group == groups - 1) return scale % DIGITS_PER_4BYTES;
+    else return DIGITS_PER_4BYTES;
+  }
+
+  private static int toDecimalGroup(byte[] value, int start, int offset, int length, int mask) {
+    int r = 0;
+    for (int i = offset; i < offset + length; i++) {
+      final int b = (value[i] ^ mask) & 0xFF;
+      r = (r << 8) | (i == start ? b ^ 0x80 : b); // The sign bit of the first byte
     }
+    return r;
+  }
 
-    //
-    return positive ? POSITIVE_ONE.multiply(ip.add(fp)) : NEGATIVE_ONE.multiply(ip.add(fp));
+  private static BigInteger shift(BigInteger r, long x, int digits) {
+    if (r == null) return BigInteger.valueOf(x);
+    return r.multiply(BigInteger.valueOf(POWERS_OF_TEN[digits])).add(BigInteger.valueOf(x));
   }
 
   /**
@@ -172,4 +302,54 @@ public final class MySQLUtils {
     return (ipDigits << 2) + DECIMAL_BINARY_SIZE[ipDigitsX] + (fpDigits << 2)
         + DECIMAL_BINARY_SIZE[fpDigitsX];
   }
+
+  /**
+   * Returns the width of a column value in a rows event, or the negated size of its length prefix
+   * if the value is length prefixed. The type is the real type of the column, that is the one a
+   * {@code TYPE_STRING} column of the table map stands for, and length is the length of a
+   * {@code TYPE_STRING}, {@code TYPE_ENUM} or {@code TYPE_SET} column.
+   */
+  public static int getColumnWidth(int type, int meta, int length) {
+    switch (type) {
+      case MySQLConstants.TYPE_TINY:
+      case MySQLConstants.TYPE_YEAR:
+        return 1;
+      case MySQLConstants.TYPE_SHORT:
+        return 2;
+      case MySQLConstants.TYPE_INT24:
+      case MySQLConstants.TYPE_DATE:
+      case MySQLConstants.TYPE_TIME:
+        return 3;
+      case MySQLConstants.TYPE_LONG:
+      case MySQLConstants.TYPE_FLOAT:
+      case MySQLConstants.TYPE_TIMESTAMP:
+        return 4;
+      case MySQLConstants.TYPE_LONGLONG:
+      case MySQLConstants.TYPE_DOUBLE:
+      case MySQLConstants.TYPE_DATETIME:
+        return 8;
+      case MySQLConstants.TYPE_ENUM:
+      case MySQLConstants.TYPE_SET:
+        return length;
+      case MySQLConstants.TYPE_BIT:
+        return ((meta >> 8) * 8 + (meta & 0xFF) + 7) >> 3;
+      case MySQLConstants.TYPE_BLOB:
+        return -meta;
+      case MySQLConstants.TYPE_NEWDECIMAL:
+        return getDecimalBinarySize(meta & 0xFF, meta >> 8);
+      case MySQLConstants.TYPE_STRING:
+        return length < 256 ? -1 : -2;
+      case MySQLConstants.TYPE_VARCHAR:
+      case MySQLConstants.TYPE_VAR_STRING:
+        return meta < 256 ? -1 : -2;
+      case MySQLConstants.TYPE_TIME2:
+        return 3 + (meta + 1) / 2;
+      case MySQLConstants.TYPE_DATETIME2:
+        return 5 + (meta + 1) / 2;
+      case MySQLConstants.TYPE_TIMESTAMP2:
+        return 4 + (meta + 1) / 2;
+      default:
+        throw new RuntimeException("assertion failed, unknown column type: " + type);
+    }
+  }
 }
@@ -151,6 +151,8 @@ public interface XInputStream {
    */
   int read(XChecksum checksum) throws IOException;
 
+  int read(final byte b[], final int off, final int len) throws IOException;
+
   /**
    * @add
    */
@@ -0,0 +1,420 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.io.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import com.google.code.or.binlog.ext.XChecksum;
+import com.google.code.or.common.glossary.UnsignedLong;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.glossary.column.StringColumn;
+import com.google.code.or.common.util.CodecUtils;
+import com.google.code.or.io.ExceedLimitException;
+import com.google.code.or.io.XInputStream;
+
+/**
+ * An {@link XInputStream} over a range of a byte array, for event bodies and packets already in
+ * memory. Values are decoded in place, without the intermediate buffer and copy of an
+ * {@link XInputStreamImpl} over a {@link java.io.ByteArrayInputStream}, and {@link #slice(int)}
+ * hands out a sub-range as a stream of its own without copying it either.
+ * <p>
+ * The array is not copied, it must not be modified while the stream is in use.
+ */
+public class ByteArrayXInputStream extends InputStream implements XInputStream {
+  //
+  private final byte[] data;
+  private final ByteBuffer view; // Little-endian view of the array
+  private final int offset;
+  private final int limit;
+  private int position;
+  private int readCount = 0;
+  private int readLimit = 0;
+
+  /**
+	 * 
+	 */
+  public ByteArrayXInputStream(byte[] data) {
+    this(data, 0, data.length);
+  }
+
+  public ByteArrayXInputStream(byte[] data, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > data.length) {
+      throw new IllegalArgumentException("invalid range, offset: " + offset + ", length: "
+          + length + ", array length: " + data.length);
+    }
+    this.data = data;
+    this.view = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    this.offset = offset;
+    this.limit = offset + length;
+    this.position = offset;
+  }
+
+  /**
+   * @return a stream over the remaining bytes of the given buffer, in place if it is backed by an
+   *         accessible array, the position of the buffer is left unchanged
+   */
+  public static ByteArrayXInputStream valueOf(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return new ByteArrayXInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(),
+          buffer.remaining());
+    }
+    final byte[] r = new byte[buffer.remaining()];
+    buffer.duplicate().get(r);
+    return new ByteArrayXInputStream(r);
+  }
+
+  @Override
+  public void resetStream() {
+    this.readCount = 0;
+    this.readLimit = 0;
+  }
+
+  /**
+	 * 
+	 */
+  public int length() {
+    return this.limit - this.offset;
+  }
+
+  public int position() {
+    return this.position - this.offset;
+  }
+
+  public void seek(int position) throws IOException {
+    if (position < 0 || position > length()) {
+      throw new EOFException("invalid position: " + position + ", length: " + length());
+    }
+    this.position = this.offset + position;
+  }
+
+  /**
+   * Consumes the next length bytes and returns a stream over them, backed by the same array.
+   */
+  public ByteArrayXInputStream slice(int length) throws IOException {
+    ensure(length);
+    final ByteArrayXInputStream r = new ByteArrayXInputStream(this.data, this.position, length);
+    this.position += length;
+    this.readCount += length;
+    return r;
+  }
+
+  /**
+	 * 
+	 */
+  public int readInt(int length) throws IOException {
+    return readInt(length, true);
+  }
+
+  public int readInt(int length, XChecksum checksum) throws IOException {
+    return readInt(length, true, checksum);
+  }
+
+  public long readLong(int length) throws IOException {
+    return readLong(length, true);
+  }
+
+  public long readLong(int length, XChecksum checksum) throws IOException {
+    return readLong(length, true, checksum);
+  }
+
+  public byte[] readBytes(int length) throws IOException {
+    ensure(length);
+    final byte[] r = Arrays.copyOfRange(this.data, this.position, this.position + length);
+    this.position += length;
+    this.readCount += length;
+    return r;
+  }
+
+  public byte[] readBytes(int length, XChecksum checksum) throws IOException {
+    ensure(length);
+    checksum.update(this.data, this.position, length);
+    return readBytes(length);
+  }
+
+  public BitColumn readBit(int length) throws IOException {
+    return readBit(length, true);
+  }
+
+  public BitColumn readBit(int length, XChecksum checksum) throws IOException {
+    return readBit(length, true, checksum);
+  }
+
+  public UnsignedLong readUnsignedLong() throws IOException {
+    final int v = this.read();
+    if (v < 251)
+      return UnsignedLong.valueOf(v);
+    else if (v == 251)
+      return null;
+    else if (v == 252)
+      return UnsignedLong.valueOf(readInt(2));
+    else if (v == 253)
+      return UnsignedLong.valueOf(readInt(3));
+    else if (v == 254)
+      return UnsignedLong.valueOf(readLong(8));
+    else
+      throw new RuntimeException("assertion failed, should NOT reach here");
+  }
+
+  public UnsignedLong readUnsignedLong(XChecksum checksum) throws IOException {
+    final int v = this.read(checksum);
+    if (v < 251)
+      return UnsignedLong.valueOf(v);
+    else if (v == 251)
+      return null;
+    else if (v == 252)
+      return UnsignedLong.valueOf(readInt(2, checksum));
+    else if (v == 253)
+      return UnsignedLong.valueOf(readInt(3, checksum));
+    else if (v == 254)
+      return UnsignedLong.valueOf(readLong(8, checksum));
+    else
+      throw new RuntimeException("assertion failed, should NOT reach here");
+  }
+
+  public StringColumn readLengthCodedString() throws IOException {
+    final UnsignedLong length = readUnsignedLong();
+    return length == null ? null : readFixedLengthString(length.intValue());
+  }
+
+  public StringColumn readLengthCodedString(XChecksum checksum) throws IOException {
+    final UnsignedLong length = readUnsignedLong(checksum);
+    return length == null ? null : readFixedLengthString(length.intValue(), checksum);
+  }
+
+  public StringColumn readNullTerminatedString() throws IOException {
+    final int length = indexOfNull();
+    final StringColumn r = readFixedLengthString(length);
+    skip(1);
+    return r;
+  }
+
+  public StringColumn readNullTerminatedString(XChecksum checksum) throws IOException {
+    final int length = indexOfNull();
+    final StringColumn r = readFixedLengthString(length, checksum);
+    skip(1, checksum);
+    return r;
+  }
+
+  public StringColumn readFixedLengthString(final int length) throws IOException {
+    return StringColumn.valueOf(readBytes(length));
+  }
+
+  public StringColumn readFixedLengthString(final int length, XChecksum checksum)
+      throws IOException {
+    return StringColumn.valueOf(readBytes(length, checksum));
+  }
+
+  /**
+	 * 
+	 */
+  public int readSignedInt(int length) throws IOException {
+    final int shift = 32 - (length << 3);
+    return readInt(length, true) << shift >> shift;
+  }
+
+  public int readSignedInt(int length, XChecksum checksum) throws IOException {
+    final int shift = 32 - (length << 3);
+    return readInt(length, true, checksum) << shift >> shift;
+  }
+
+  public long readSignedLong(int length) throws IOException {
+    final int shift = 64 - (length << 3);
+    return readLong(length, true) << shift >> shift;
+  }
+
+  public long readSignedLong(int length, XChecksum checksum) throws IOException {
+    final int shift = 64 - (length << 3);
+    return readLong(length, true, checksum) << shift >> shift;
+  }
+
+  public int readInt(int length, boolean littleEndian) throws IOException {
+    return (int) readLong(length, littleEndian);
+  }
+
+  public int readInt(int length, boolean littleEndian, XChecksum checksum) throws IOException {
+    return (int) readLong(length, littleEndian, checksum);
+  }
+
+  public long readLong(int length, boolean littleEndian) throws IOException {
+    //
+    if (length <= 0) return 0;
+    if (length > 8) throw new IllegalArgumentException("invalid length: " + length);
+    ensure(length);
+
+    //
+    final int p = this.position;
+    this.position += length;
+    this.readCount += length;
+    if (!littleEndian) return CodecUtils.toLong(this.data, p, length);
+    switch (length) {
+      case 1:
+        return this.data[p] & 0xFF;
+      case 2:
+        return this.view.getShort(p) & 0xFFFF;
+      case 3:
+        return (this.view.getShort(p) & 0xFFFF) | ((this.data[p + 2] & 0xFF) << 16);
+      case 4:
+        return this.view.getInt(p) & 0xFFFFFFFFL;
+      case 8:
+        return this.view.getLong(p);
+      default:
+        long r = 0;
+        for (int i = length - 1; i >= 0; --i) {
+          r = (r << 8) | (this.data[p + i] & 0xFF);
+        }
+        return r;
+    }
+  }
+
+  public long readLong(int length, boolean littleEndian, XChecksum checksum) throws IOException {
+    if (length <= 0) return 0;
+    if (length > 8) throw new IllegalArgumentException("invalid length: " + length);
+    ensure(length);
+    checksum.update(this.data, this.position, length);
+    return readLong(length, littleEndian);
+  }
+
+  public BitColumn readBit(int length, boolean littleEndian) throws IOException {
+    byte[] bytes = readBytes((length + 7) >> 3);
+    if (!littleEndian) bytes = CodecUtils.toBigEndian(bytes);
+    return BitColumn.valueOf(length, bytes);
+  }
+
+  public BitColumn readBit(int length, boolean littleEndian, XChecksum checksum)
+      throws IOException {
+    byte[] bytes = readBytes((length + 7) >> 3, checksum);
+    if (!littleEndian) bytes = CodecUtils.toBigEndian(bytes);
+    return BitColumn.valueOf(length, bytes);
+  }
+
+  /**
+	 * 
+	 */
+  @Override
+  public void close() throws IOException {
+    // NOP
+  }
+
+  public void setReadLimit(final int limit) throws IOException {
+    this.readCount = 0;
+    this.readLimit = limit;
+  }
+
+  @Override
+  public int available() throws IOException {
+    if (this.readLimit > 0) {
+      return this.readLimit - this.readCount;
+    } else {
+      return this.limit - this.position;
+    }
+  }
+
+  public boolean hasMore() throws IOException {
+    return this.available() > 0;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+    return skip(n, null);
+  }
+
+  @Override
+  public long skip(final long n, XChecksum checksum) throws IOException {
+    if (this.readLimit > 0 && (this.readCount + n) > this.readLimit) {
+      final int m = this.readLimit - this.readCount;
+      if (m > this.limit - this.position) throw new EOFException();
+      consume(m, checksum);
+      throw new ExceedLimitException();
+    } else if (n > this.limit - this.position) {
+      throw new EOFException();
+    } else {
+      consume((int) n, checksum);
+      return n; // always skip the number of bytes specified by parameter "n"
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    return (int) readLong(1, true);
+  }
+
+  @Override
+  public int read(XChecksum checksum) throws IOException {
+    return (int) readLong(1, true, checksum);
+  }
+
+  @Override
+  public int read(final byte b[], final int off, final int len) throws IOException {
+    return read(b, off, len, null);
+  }
+
+  @Override
+  public int read(final byte b[], final int off, final int len, XChecksum checksum)
+      throws IOException {
+    if (this.readLimit > 0 && (this.readCount + len) > this.readLimit) {
+      final int n = this.readLimit - this.readCount;
+      if (n > this.limit - this.position) throw new EOFException();
+      System.arraycopy(this.data, this.position, b, off, n);
+      consume(n, checksum);
+      throw new ExceedLimitException();
+    } else if (len > this.limit - this.position) {
+      throw new EOFException();
+    } else {
+      System.arraycopy(this.data, this.position, b, off, len);
+      consume(len, checksum);
+      return len; // always read the number of bytes specified by parameter "len"
+    }
+  }
+
+  /**
+   * Ensures the read limit allows, and the array holds, the next length bytes, whichever of the
+   * two ends first is reported.
+   */
+  private void ensure(final int length) throws IOException {
+    final int remaining = this.limit - this.position;
+    if (this.readLimit > 0 && (this.readCount + length) > this.readLimit
+        && this.readLimit - this.readCount <= remaining) {
+      throw new ExceedLimitException();
+    }
+    if (length > remaining) {
+      throw new EOFException();
+    }
+  }
+
+  private void consume(final int length, final XChecksum checksum) {
+    if (checksum != null) checksum.update(this.data, this.position, length);
+    this.position += length;
+    this.readCount += length;
+  }
+
+  /**
+   * @return the number of bytes before the next null byte
+   */
+  private int indexOfNull() throws IOException {
+    final boolean limited =
+        this.readLimit > 0 && this.readLimit - this.readCount <= this.limit - this.position;
+    final int end = limited ? this.position + this.readLimit - this.readCount : this.limit;
+    for (int i = this.position; i < end; i++) {
+      if (this.data[i] == 0) return i - this.position;
+    }
+    if (limited) throw new ExceedLimitException();
+    throw new EOFException();
+  }
+}
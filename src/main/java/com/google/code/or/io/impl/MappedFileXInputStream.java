@@ -0,0 +1,525 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.io.impl;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.binlog.ext.XChecksum;
+import com.google.code.or.common.glossary.UnsignedLong;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.glossary.column.StringColumn;
+import com.google.code.or.common.util.CodecUtils;
+import com.google.code.or.io.ExceedLimitException;
+import com.google.code.or.io.XInputStream;
+import com.google.code.or.io.util.XSerializer;
+
+/**
+ * An {@link XInputStream} over a read only file, mapped window by window with
+ * {@link FileChannel#map}. Primitives are decoded straight from the mapped pages, without a read
+ * syscall or an intermediate copy per refill, and {@link #seek(long)} is O(1).
+ * <p>
+ * A window is remapped at the current position whenever a read does not fit in what is left of
+ * it, so a single value never straddles two windows. The previous window is unmapped eagerly where
+ * the JVM allows it, the last one is left to the garbage collector.
+ */
+public class MappedFileXInputStream extends InputStream implements XInputStream {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileXInputStream.class);
+
+  //
+  public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  //
+  private final long length;
+  private final int windowSize;
+  private final FileChannel channel;
+  private final byte[] scratch = new byte[4096]; // Checksum updates of mapped bytes
+  private long base; // File position of the window
+  private MappedByteBuffer window;
+  private int readCount = 0;
+  private int readLimit = 0;
+
+  /**
+	 * 
+	 */
+  public MappedFileXInputStream(File file) throws IOException {
+    this(file, DEFAULT_WINDOW_SIZE);
+  }
+
+  public MappedFileXInputStream(File file, int windowSize) throws IOException {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("invalid window size: " + windowSize);
+    }
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      this.channel = raf.getChannel();
+      this.length = this.channel.size();
+      this.windowSize = windowSize;
+      map(0, 0);
+    } catch (IOException e) {
+      raf.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void resetStream() {
+    this.readCount = 0;
+    this.readLimit = 0;
+  }
+
+  /**
+	 * 
+	 */
+  public long length() {
+    return this.length;
+  }
+
+  public long position() {
+    return this.base + this.window.position();
+  }
+
+  public void seek(long position) throws IOException {
+    if (position < 0 || position > this.length) {
+      throw new EOFException("invalid position: " + position + ", length: " + this.length);
+    }
+    final long offset = position - this.base;
+    if (offset >= 0 && offset <= this.window.limit()) {
+      this.window.position((int) offset);
+    } else {
+      map(position, 0);
+    }
+  }
+
+  /**
+	 * 
+	 */
+  public int readInt(int length) throws IOException {
+    return readInt(length, true);
+  }
+
+  public int readInt(int length, XChecksum checksum) throws IOException {
+    return readInt(length, true, checksum);
+  }
+
+  public long readLong(int length) throws IOException {
+    return readLong(length, true);
+  }
+
+  public long readLong(int length, XChecksum checksum) throws IOException {
+    return readLong(length, true, checksum);
+  }
+
+  public byte[] readBytes(int length) throws IOException {
+    final byte[] r = new byte[length];
+    this.read(r, 0, length);
+    return r;
+  }
+
+  public byte[] readBytes(int length, XChecksum checksum) throws IOException {
+    final byte[] r = new byte[length];
+    this.read(r, 0, length, checksum);
+    return r;
+  }
+
+  public BitColumn readBit(int length) throws IOException {
+    return readBit(length, true);
+  }
+
+  public BitColumn readBit(int length, XChecksum checksum) throws IOException {
+    return readBit(length, true, checksum);
+  }
+
+  public UnsignedLong readUnsignedLong() throws IOException {
+    final int v = this.read();
+    if (v < 251)
+      return UnsignedLong.valueOf(v);
+    else if (v == 251)
+      return null;
+    else if (v == 252)
+      return UnsignedLong.valueOf(readInt(2));
+    else if (v == 253)
+      return UnsignedLong.valueOf(readInt(3));
+    else if (v == 254)
+      return UnsignedLong.valueOf(readLong(8));
+    else
+      throw new RuntimeException("assertion failed, should NOT reach here");
+  }
+
+  public UnsignedLong readUnsignedLong(XChecksum checksum) throws IOException {
+    final int v = this.read(checksum);
+    if (v < 251)
+      return UnsignedLong.valueOf(v);
+    else if (v == 251)
+      return null;
+    else if (v == 252)
+      return UnsignedLong.valueOf(readInt(2, checksum));
+    else if (v == 253)
+      return UnsignedLong.valueOf(readInt(3, checksum));
+    else if (v == 254)
+      return UnsignedLong.valueOf(readLong(8, checksum));
+    else
+      throw new RuntimeException("assertion failed, should NOT reach here");
+  }
+
+  public StringColumn readLengthCodedString() throws IOException {
+    final UnsignedLong length = readUnsignedLong();
+    return length == null ? null : readFixedLengthString(length.intValue());
+  }
+
+  public StringColumn readLengthCodedString(XChecksum checksum) throws IOException {
+    final UnsignedLong length = readUnsignedLong(checksum);
+    return length == null ? null : readFixedLengthString(length.intValue(), checksum);
+  }
+
+  public StringColumn readNullTerminatedString() throws IOException {
+    final XSerializer s = new XSerializer(128); // 128 should be OK for most schema names
+    while (true) {
+      final int v = this.read();
+      if (v == 0) break;
+      s.writeInt(v, 1);
+    }
+    return StringColumn.valueOf(s.toByteArray());
+  }
+
+  public StringColumn readNullTerminatedString(XChecksum checksum) throws IOException {
+    final XSerializer s = new XSerializer(128); // 128 should be OK for most schema names
+    while (true) {
+      final int v = this.read(checksum);
+      if (v == 0) break;
+      s.writeInt(v, 1);
+    }
+    return StringColumn.valueOf(s.toByteArray());
+  }
+
+  public StringColumn readFixedLengthString(final int length) throws IOException {
+    return StringColumn.valueOf(readBytes(length));
+  }
+
+  public StringColumn readFixedLengthString(final int length, XChecksum checksum)
+      throws IOException {
+    return StringColumn.valueOf(readBytes(length, checksum));
+  }
+
+  /**
+	 * 
+	 */
+  public int readSignedInt(int length) throws IOException {
+    final int shift = 32 - (length << 3);
+    return readInt(length, true) << shift >> shift;
+  }
+
+  public int readSignedInt(int length, XChecksum checksum) throws IOException {
+    final int shift = 32 - (length << 3);
+    return readInt(length, true, checksum) << shift >> shift;
+  }
+
+  public long readSignedLong(int length) throws IOException {
+    final int shift = 64 - (length << 3);
+    return readLong(length, true) << shift >> shift;
+  }
+
+  public long readSignedLong(int length, XChecksum checksum) throws IOException {
+    final int shift = 64 - (length << 3);
+    return readLong(length, true, checksum) << shift >> shift;
+  }
+
+  public int readInt(int length, boolean littleEndian) throws IOException {
+    return (int) readLong(length, littleEndian);
+  }
+
+  public int readInt(int length, boolean littleEndian, XChecksum checksum) throws IOException {
+    return (int) readLong(length, littleEndian, checksum);
+  }
+
+  public long readLong(int length, boolean littleEndian) throws IOException {
+    if (length <= 0) return 0;
+    if (length > 8) throw new IllegalArgumentException("invalid length: " + length);
+    ensure(length);
+    return get(length, littleEndian);
+  }
+
+  public long readLong(int length, boolean littleEndian, XChecksum checksum) throws IOException {
+    if (length <= 0) return 0;
+    if (length > 8) throw new IllegalArgumentException("invalid length: " + length);
+    ensure(length);
+    this.window.get(this.scratch, 0, length);
+    checksum.update(this.scratch, 0, length);
+    this.readCount += length;
+
+    //
+    long r = 0;
+    for (int i = 0; i < length; ++i) {
+      final long v = this.scratch[i] & 0xFF;
+      if (littleEndian) {
+        r |= (v << (i << 3));
+      } else {
+        r = (r << 8) | v;
+      }
+    }
+    return r;
+  }
+
+  public BitColumn readBit(int length, boolean littleEndian) throws IOException {
+    byte[] bytes = readBytes((length + 7) >> 3);
+    if (!littleEndian) bytes = CodecUtils.toBigEndian(bytes);
+    return BitColumn.valueOf(length, bytes);
+  }
+
+  public BitColumn readBit(int length, boolean littleEndian, XChecksum checksum) throws IOException {
+    byte[] bytes = readBytes((length + 7) >> 3, checksum);
+    if (!littleEndian) bytes = CodecUtils.toBigEndian(bytes);
+    return BitColumn.valueOf(length, bytes);
+  }
+
+  /**
+	 * 
+	 */
+  @Override
+  public void close() throws IOException {
+    this.channel.close(); // A reader may still be on the window, leave it to the GC
+  }
+
+  public void setReadLimit(final int limit) throws IOException {
+    this.readCount = 0;
+    this.readLimit = limit;
+  }
+
+  @Override
+  public int available() throws IOException {
+    if (this.readLimit > 0) {
+      return this.readLimit - this.readCount;
+    } else {
+      return (int) Math.min(Integer.MAX_VALUE, this.length - position());
+    }
+  }
+
+  public boolean hasMore() throws IOException {
+    return this.available() > 0;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+    if (this.readLimit > 0 && (this.readCount + n) > this.readLimit) {
+      this.readCount += doSkip(this.readLimit - this.readCount, null);
+      throw new ExceedLimitException();
+    } else {
+      this.readCount += doSkip(n, null);
+      return n; // always skip the number of bytes specified by parameter "n"
+    }
+  }
+
+  @Override
+  public long skip(final long n, XChecksum checksum) throws IOException {
+    if (this.readLimit > 0 && (this.readCount + n) > this.readLimit) {
+      this.readCount += doSkip(this.readLimit - this.readCount, checksum);
+      throw new ExceedLimitException();
+    } else {
+      this.readCount += doSkip(n, checksum);
+      return n; // always skip the number of bytes specified by parameter "n"
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    return (int) readLong(1, true);
+  }
+
+  @Override
+  public int read(XChecksum checksum) throws IOException {
+    return (int) readLong(1, true, checksum);
+  }
+
+  @Override
+  public int read(final byte b[], final int off, final int len) throws IOException {
+    if (this.readLimit > 0 && (this.readCount + len) > this.readLimit) {
+      this.readCount += doRead(b, off, this.readLimit - this.readCount, null);
+      throw new ExceedLimitException();
+    } else {
+      this.readCount += doRead(b, off, len, null);
+      return len; // always read the number of bytes specified by parameter "len"
+    }
+  }
+
+  @Override
+  public int read(final byte b[], final int off, final int len, XChecksum checksum)
+      throws IOException {
+    if (this.readLimit > 0 && (this.readCount + len) > this.readLimit) {
+      this.readCount += doRead(b, off, this.readLimit - this.readCount, checksum);
+      throw new ExceedLimitException();
+    } else {
+      this.readCount += doRead(b, off, len, checksum);
+      return len; // always read the number of bytes specified by parameter "len"
+    }
+  }
+
+  /**
+   * Maps a window of at least the given number of bytes at the given position.
+   */
+  private void map(final long position, final int minimum) throws IOException {
+    final long size = Math.min(Math.max(this.windowSize, minimum), this.length - position);
+    final MappedByteBuffer previous = this.window;
+    this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    if (previous != null) unmap(previous);
+    this.window.order(ByteOrder.LITTLE_ENDIAN);
+    this.base = position;
+  }
+
+  /**
+   * Ensures the read limit allows, and the window holds, the next length bytes.
+   */
+  private void ensure(final int length) throws IOException {
+    if (this.readLimit > 0 && (this.readCount + length) > this.readLimit) {
+      throw new ExceedLimitException();
+    }
+    if (this.window.remaining() < length) {
+      final long position = position();
+      if (position + length > this.length) throw new EOFException();
+      map(position, length);
+    }
+  }
+
+  private long get(final int length, final boolean littleEndian) {
+    //
+    final MappedByteBuffer w = this.window;
+    this.readCount += length;
+    if (littleEndian) {
+      switch (length) {
+        case 1:
+          return w.get() & 0xFF;
+        case 2:
+          return w.getShort() & 0xFFFF;
+        case 4:
+          return w.getInt() & 0xFFFFFFFFL;
+        case 8:
+          return w.getLong();
+      }
+    }
+
+    //
+    long r = 0;
+    for (int i = 0; i < length; ++i) {
+      final long v = w.get() & 0xFF;
+      if (littleEndian) {
+        r |= (v << (i << 3));
+      } else {
+        r = (r << 8) | v;
+      }
+    }
+    return r;
+  }
+
+  /**
+   * Updates the checksum with the next length bytes of the window, without consuming them.
+   */
+  private void update(final XChecksum checksum, final int length) {
+    final int position = this.window.position();
+    for (int done = 0; done < length;) {
+      final int n = Math.min(this.scratch.length, length - done);
+      this.window.get(this.scratch, 0, n);
+      checksum.update(this.scratch, 0, n);
+      done += n;
+    }
+    this.window.position(position);
+  }
+
+  private long doSkip(final long n, final XChecksum checksum) throws IOException {
+    if (checksum == null) {
+      final long position = position();
+      if (position + n > this.length) throw new EOFException();
+      seek(position + n);
+      return n;
+    }
+
+    //
+    long total = n;
+    while (total > 0) {
+      if (!this.window.hasRemaining()) remap();
+      final int r = (int) Math.min(this.window.remaining(), total);
+      update(checksum, r);
+      this.window.position(this.window.position() + r);
+      total -= r;
+    }
+    return n;
+  }
+
+  private int doRead(final byte[] b, final int off, final int len, final XChecksum checksum)
+      throws IOException {
+    int total = len;
+    int index = off;
+    while (total > 0) {
+      if (!this.window.hasRemaining()) remap();
+      final int r = Math.min(this.window.remaining(), total);
+      this.window.get(b, index, r);
+      if (checksum != null) checksum.update(b, index, r);
+      index += r;
+      total -= r;
+    }
+    return len;
+  }
+
+  /**
+   * Maps the next window once the current one is used up.
+   */
+  private void remap() throws IOException {
+    final long position = position();
+    if (position >= this.length) throw new EOFException();
+    map(position, 0);
+  }
+
+  /**
+   * Releases the mapping of a window nothing refers to any more, mapped regions would otherwise
+   * pile up until the next GC of the buffer, see JDK-4724038.
+   */
+  private static void unmap(final MappedByteBuffer buffer) {
+    try {
+      // Java 9+
+      final Class<?> c = Class.forName("sun.misc.Unsafe");
+      final Method m = c.getMethod("invokeCleaner", ByteBuffer.class);
+      final Field f = c.getDeclaredField("theUnsafe");
+      f.setAccessible(true);
+      m.invoke(f.get(null), buffer);
+      return;
+    } catch (NoSuchMethodException e) {
+      // Fall through
+    } catch (Exception e) {
+      LOGGER.debug("failed to unmap a window", e);
+      return;
+    }
+
+    //
+    try {
+      final Method m = buffer.getClass().getMethod("cleaner");
+      m.setAccessible(true);
+      final Object cleaner = m.invoke(buffer);
+      if (cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+    } catch (Exception e) {
+      LOGGER.debug("failed to unmap a window", e);
+    }
+  }
+}
@@ -14,6 +14,7 @@
  */
 package com.google.code.or.io.impl;
 
+import java.net.InetSocketAddress;
 import java.net.Socket;
 
 import com.google.code.or.io.SocketFactory;
@@ -27,17 +28,24 @@ public class SocketFactoryImpl implements SocketFactory {
   private boolean keepAlive = true;
   private boolean tcpNoDelay = true;
   private int receiveBufferSize = 0x00080000;
+  private int connectTimeout = 0;
 
   /**
 	 * 
 	 */
   public Socket create(String host, int port) throws Exception {
-    final Socket r = new Socket(host, port);
+    final Socket r = new Socket();
     r.setKeepAlive(this.keepAlive);
     r.setTcpNoDelay(this.tcpNoDelay);
     r.setSoLinger(false, 0);
     if (this.receiveBufferSize > 0) 
     	r.setReceiveBufferSize(this.receiveBufferSize);
+    try {
+      r.connect(new InetSocketAddress(host, port), this.connectTimeout);
+    } catch (Exception e) {
+      r.close();
+      throw e;
+    }
     return r;
   }
 
@@ -67,4 +75,15 @@ public class SocketFactoryImpl implements SocketFactory {
   public void setReceiveBufferSize(int receiveBufferSize) {
     this.receiveBufferSize = receiveBufferSize;
   }
+
+  public int getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  /**
+   * @param connectTimeout in milliseconds, 0 waits as long as the system does
+   */
+  public void setConnectTimeout(int connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
 }
@@ -17,6 +17,8 @@ package com.google.code.or.io.impl;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import com.google.code.or.binlog.ext.XChecksum;
 import com.google.code.or.common.glossary.UnsignedLong;
@@ -38,6 +40,7 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
   private int readCount = 0;
   private int readLimit = 0;
   private final byte[] buffer;
+  private final ByteBuffer view; // Little-endian view of the buffer
   private final InputStream is;
 
 
@@ -51,6 +54,7 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
   public XInputStreamImpl(InputStream is, int size) {
     this.is = is;
     this.buffer = new byte[size];
+    this.view = ByteBuffer.wrap(this.buffer).order(ByteOrder.LITTLE_ENDIAN);
   }
   
 
@@ -209,6 +213,12 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
 	 * 
 	 */
   public int readSignedInt(int length) throws IOException {
+    if (length > 0 && length <= 4 && isBuffered(length)) {
+      final int shift = 32 - (length << 3);
+      return ((int) getLittleEndian(length)) << shift >> shift;
+    }
+
+    //
     int r = 0;
     for (int i = 0; i < length; ++i) {
       final int v = this.read();
@@ -227,6 +237,12 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
    * @add
    * */
   public int readSignedInt(int length, XChecksum checksum) throws IOException {
+    if (length > 0 && length <= 4 && isBuffered(length)) {
+      final int shift = 32 - (length << 3);
+      return ((int) getLittleEndian(length, checksum)) << shift >> shift;
+    }
+
+    //
     int r = 0;
     for (int i = 0; i < length; ++i) {
       final int v = this.read(checksum);
@@ -241,13 +257,19 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
   }
 
   public long readSignedLong(int length) throws IOException {
+    if (length > 0 && length <= 8 && isBuffered(length)) {
+      final int shift = 64 - (length << 3);
+      return getLittleEndian(length) << shift >> shift;
+    }
+
+    //
     long r = 0;
     for (int i = 0; i < length; ++i) {
       final long v = this.read();
       r |= (v << (i << 3));
       if ((i == length - 1) && ((v & 0x80) == 0x80)) {
         for (int j = length; j < 8; j++) {
-          r |= (255 << (j << 3));
+          r |= (255L << (j << 3));
         }
       }
     }
@@ -259,13 +281,19 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
    * @add
    * */
   public long readSignedLong(int length, XChecksum checksum) throws IOException {
+    if (length > 0 && length <= 8 && isBuffered(length)) {
+      final int shift = 64 - (length << 3);
+      return getLittleEndian(length, checksum) << shift >> shift;
+    }
+
+    //
     long r = 0;
     for (int i = 0; i < length; ++i) {
       final long v = this.read(checksum);
       r |= (v << (i << 3));
       if ((i == length - 1) && ((v & 0x80) == 0x80)) {
         for (int j = length; j < 8; j++) {
-          r |= (255 << (j << 3));
+          r |= (255L << (j << 3));
         }
       }
     }
@@ -273,6 +301,11 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
   }
 
   public int readInt(int length, boolean littleEndian) throws IOException {
+    if (littleEndian && length > 0 && length <= 4 && isBuffered(length)) {
+      return (int) getLittleEndian(length);
+    }
+
+    //
     int r = 0;
     for (int i = 0; i < length; ++i) {
       final int v = this.read();
@@ -290,6 +323,11 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
    * @add
    * */
   public int readInt(int length, boolean littleEndian, XChecksum checksum) throws IOException {
+    if (littleEndian && length > 0 && length <= 4 && isBuffered(length)) {
+      return (int) getLittleEndian(length, checksum);
+    }
+
+    //
     int r = 0;
     for (int i = 0; i < length; ++i) {
       final int v = this.read(checksum);
@@ -303,6 +341,11 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
   }
 
   public long readLong(int length, boolean littleEndian) throws IOException {
+    if (littleEndian && length > 0 && length <= 8 && isBuffered(length)) {
+      return getLittleEndian(length);
+    }
+
+    //
     long r = 0;
     for (int i = 0; i < length; ++i) {
       final long v = this.read();
@@ -320,6 +363,11 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
    * @add
    * */
   public long readLong(int length, boolean littleEndian, XChecksum checksum) throws IOException {
+    if (littleEndian && length > 0 && length <= 8 && isBuffered(length)) {
+      return getLittleEndian(length, checksum);
+    }
+
+    //
     long r = 0;
     for (int i = 0; i < length; ++i) {
       final long v = this.read(checksum);
@@ -470,15 +518,25 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
   }
 
   private long doSkip(final long n) throws IOException {
-    long total = n;
+    //
+    final int availabale = this.tail - this.head;
+    if (availabale >= n) {
+      this.head += n;
+      return n;
+    }
+
+    // Drop the buffer and let the underlying stream skip the rest, a seek for files
+    long total = n - availabale;
+    this.head = this.tail = 0;
     while (total > 0) {
-      final int availabale = this.tail - this.head;
-      if (availabale >= total) {
-        this.head += total;
-        break;
+      final long skipped = this.is.skip(total);
+      if (skipped > 0) {
+        total -= skipped;
       } else {
-        total -= availabale;
         doFill();
+        final int r = (int) Math.min(this.tail, total);
+        this.head += r;
+        total -= r;
       }
     }
     return n;
@@ -493,11 +551,11 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
     while (total > 0) {
       final int availabale = this.tail - this.head;
       if (availabale >= total) {
-        checksum.update(this.buffer, this.head, (int) total);// XXX not verified!
+        checksum.update(this.buffer, this.head, (int) total);
         this.head += total;
         break;
       } else {
-        checksum.update(this.buffer, this.head, (int) total);// XXX not verified!
+        checksum.update(this.buffer, this.head, availabale);
         total -= availabale;
         doFill();
       }
@@ -505,6 +563,62 @@ public class XInputStreamImpl extends InputStream implements XInputStream {
     return n;
   }
 
+  /**
+   * @return true if the next length bytes are in the buffer and within the read limit
+   */
+  private boolean isBuffered(final int length) {
+    return this.tail - this.head >= length
+        && (this.readLimit <= 0 || this.readCount + length <= this.readLimit);
+  }
+
+  /**
+   * Reads 1 to 8 buffered bytes as an unsigned little-endian value, see
+   * {@link #isBuffered(int)}.
+   */
+  private long getLittleEndian(final int length) {
+    //
+    final int h = this.head;
+    final long r;
+    switch (length) {
+      case 1:
+        r = this.buffer[h] & 0xFF;
+        break;
+      case 2:
+        r = this.view.getShort(h) & 0xFFFF;
+        break;
+      case 3:
+        r = (this.view.getShort(h) & 0xFFFF) | ((this.buffer[h + 2] & 0xFF) << 16);
+        break;
+      case 4:
+        r = this.view.getInt(h) & 0xFFFFFFFFL;
+        break;
+      case 8:
+        r = this.view.getLong(h);
+        break;
+      default:
+        r = (this.view.getInt(h) & 0xFFFFFFFFL) | (toLittleEndian(h + 4, length - 4) << 32);
+        break;
+    }
+
+    //
+    this.head += length;
+    this.readCount += length;
+    return r;
+  }
+
+  private long getLittleEndian(final int length, XChecksum checksum) {
+    checksum.update(this.buffer, this.head, length);
+    return getLittleEndian(length);
+  }
+
+  private long toLittleEndian(final int offset, final int length) {
+    long r = 0;
+    for (int i = length - 1; i >= 0; i--) {
+      r = (r << 8) | (this.buffer[offset + i] & 0xFF);
+    }
+    return r;
+  }
+
   private int doRead(final byte[] b, final int off, final int len) throws IOException {
     int total = len;
     int index = off;
@@ -17,10 +17,9 @@ package com.google.code.or.io.util;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.SocketTimeoutException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +27,8 @@ import org.slf4j.LoggerFactory;
 import com.google.code.or.common.util.XThreadFactory;
 
 /**
+ * Reads the underlying stream ahead on a worker thread. The bytes are handed over through a
+ * {@link SpscByteRingBuffer}, so neither side takes a lock.
  * 
  * @author Jingqi Xu
  */
@@ -42,12 +43,11 @@ public final class ActiveBufferedInputStream extends InputStream implements Runn
   private final Thread worker;
   private final InputStream is;
   private volatile IOException exception;
-  private final ByteRingBuffer ringBuffer;
+  private volatile SocketTimeoutException timeout;
+  private final SpscByteRingBuffer ringBuffer;
   private final ThreadFactory threadFactory;
-  private final ReentrantLock lock = new ReentrantLock(false);
+  private final WaitStrategy waitStrategy;
   private final AtomicBoolean closed = new AtomicBoolean(false);
-  private final Condition bufferNotFull = this.lock.newCondition();
-  private final Condition bufferNotEmpty = this.lock.newCondition();
 
 
   /**
@@ -62,10 +62,15 @@ public final class ActiveBufferedInputStream extends InputStream implements Runn
   }
 
   public ActiveBufferedInputStream(InputStream is, int size, ThreadFactory tf) {
+    this(is, size, tf, new WaitStrategy.Park());
+  }
+
+  public ActiveBufferedInputStream(InputStream is, int size, ThreadFactory tf, WaitStrategy ws) {
     //
     this.is = is;
     this.threadFactory = tf;
-    this.ringBuffer = new ByteRingBuffer(size);
+    this.waitStrategy = ws;
+    this.ringBuffer = new SpscByteRingBuffer(size);
 
     //
     this.worker = this.threadFactory.newThread(this);
@@ -77,10 +82,16 @@ public final class ActiveBufferedInputStream extends InputStream implements Runn
 	 */
   public void run() {
     try {
-      final byte[] buffer = new byte[512 * 1024];
+      final byte[] buffer = new byte[Math.min(512 * 1024, this.ringBuffer.capacity())];
       while (!this.closed.get()) {
         //
-        int r = this.is.read(buffer, 0, buffer.length);
+        int r;
+        try {
+          r = this.is.read(buffer, 0, buffer.length);
+        } catch (SocketTimeoutException e) {
+          this.timeout = e; // Transient, reported to the reader once it runs dry
+          continue;
+        }
         if (r < 0) throw new EOFException();
 
         //
@@ -95,6 +106,7 @@ public final class ActiveBufferedInputStream extends InputStream implements Runn
       this.exception = e;
     } catch (Exception e) {
       LOGGER.error("failed to transfer data", e);
+      this.exception = new IOException("failed to transfer data", e); // Or the reader waits forever
     }
   }
 
@@ -114,154 +126,52 @@ public final class ActiveBufferedInputStream extends InputStream implements Runn
     }
 
     //
-    try {
-      this.is.close();
-    } finally {
-      this.lock.lock();
-      try {
-        this.bufferNotFull.signalAll();
-        this.bufferNotEmpty.signalAll();
-      } finally {
-        this.lock.unlock();
-      }
-    }
+    this.is.close();
   }
 
   @Override
   public int read() throws IOException {
-    this.lock.lock();
-    try {
-      //
-      while (this.ringBuffer.isEmpty()) {
-        if (this.exception != null) throw this.exception;
-        this.bufferNotEmpty.awaitUninterruptibly();
-        if (this.closed.get()) throw new EOFException();
-      }
-
-      //
+    for (int retries = 0;; retries++) {
       final int r = this.ringBuffer.read();
-      this.bufferNotFull.signal();
-      return r;
-    } finally {
-      this.lock.unlock();
+      if (r >= 0) return r;
+      awaitData(retries);
     }
   }
 
   @Override
   public int read(byte b[], int off, int len) throws IOException {
-    this.lock.lock();
-    try {
-      //
-      while (this.ringBuffer.isEmpty()) {
-        if (this.exception != null) throw this.exception;
-        this.bufferNotEmpty.awaitUninterruptibly();
-        if (this.closed.get()) throw new EOFException();
-      }
-
-      //
+    if (len == 0) return 0;
+    for (int retries = 0;; retries++) {
       final int r = this.ringBuffer.read(b, off, len);
-      this.bufferNotFull.signal();
-      return r;
-    } finally {
-      this.lock.unlock();
+      if (r > 0) return r;
+      awaitData(retries);
     }
   }
 
   public int write(byte b[], int off, int len) throws IOException {
-    this.lock.lock();
-    try {
-      //
-      while (this.ringBuffer.isFull()) {
-        this.bufferNotFull.awaitUninterruptibly();
-        if (this.closed.get()) throw new EOFException();
-      }
-
-      //
+    for (int retries = 0;; retries++) {
       final int w = this.ringBuffer.write(b, off, len);
-      this.bufferNotEmpty.signal();
-      return w;
-    } finally {
-      this.lock.unlock();
+      if (w > 0) return w;
+      if (this.closed.get()) throw new EOFException();
+      this.waitStrategy.idle(retries);
     }
   }
 
   /**
 	 * 
 	 */
-  private final class ByteRingBuffer {
+  private void awaitData(int retries) throws IOException {
     //
-    private int size;
-    private int head; // Write
-    private int tail; // Read
-    private final byte[] buffer;
-
-    /**
-		 * 
-		 */
-    public ByteRingBuffer(int capacity) {
-      this.buffer = new byte[capacity];
-    }
+    if (!this.ringBuffer.isEmpty()) return;
+    if (this.exception != null) throw this.exception;
+    if (this.closed.get()) throw new EOFException();
 
-    /**
-		 * 
-		 */
-    public int size() {
-      return this.size;
-    }
-
-    public boolean isEmpty() {
-      return this.size == 0;
-    }
-
-    public boolean isFull() {
-      return this.size == this.buffer.length;
-    }
-
-    /**
-		 * 
-		 */
-    public int read() {
-      //
-      final int r = this.buffer[this.tail] & 0xFF;
-
-      //
-      this.tail = (this.tail + 1) % this.buffer.length;
-      this.size -= 1;
-      return r;
-    }
-
-    public int read(byte b[], int off, int len) {
-      //
-      final int r = Math.min(this.size, len);
-      if (this.head > this.tail) {
-        System.arraycopy(this.buffer, this.tail, b, off, r);
-      } else {
-        final int r1 = Math.min(this.buffer.length - this.tail, r);
-        System.arraycopy(this.buffer, this.tail, b, off, r1);
-        if (r1 < r) System.arraycopy(this.buffer, 0, b, off + r1, r - r1);
-      }
-
-      //
-      this.tail = (this.tail + r) % this.buffer.length;
-      this.size -= r;
-      return r;
-    }
-
-    public int write(byte b[], int off, int len) {
-      //
-      final int w = Math.min(this.buffer.length - this.size, len);
-      if (this.head < this.tail) {
-        System.arraycopy(b, off, this.buffer, this.head, w);
-      } else {
-        final int w1 = Math.min(this.buffer.length - this.head, w);
-        System.arraycopy(b, off, this.buffer, this.head, w1);
-        if (w1 < w) System.arraycopy(b, off + w1, this.buffer, 0, w - w1);
-      }
-
-      //
-      this.head = (this.head + w) % this.buffer.length;
-      this.size += w;
-      return w;
+    //
+    final SocketTimeoutException e = this.timeout;
+    if (e != null) {
+      this.timeout = null;
+      throw e;
     }
+    this.waitStrategy.idle(retries);
   }
 }
@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.io.util;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A lock-free byte ring buffer for exactly one producer thread and one consumer thread.
+ * <p>
+ * The read and write sequences live on their own cache lines, padded on both sides, each along
+ * with the last seen sequence of the other side cached by its owner, so a side only ever writes to
+ * its own line. A whole batch of bytes is published by a single ordered store.
+ * Neither {@link #read(byte[], int, int)} nor {@link #write(byte[], int, int)} ever blocks, waiting
+ * is up to the caller, see {@link WaitStrategy}.
+ */
+public final class SpscByteRingBuffer {
+  //
+  private final int mask;
+  private final byte[] buffer;
+  private final Sequence head = new Sequence(); // Read, cached is the consumer's view of the tail
+  private final Sequence tail = new Sequence(); // Write, cached is the producer's view of the head
+
+  /**
+	 * 
+	 */
+  public SpscByteRingBuffer(int capacity) {
+    if (capacity <= 0 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("invalid capacity: " + capacity);
+    }
+    final int size = Integer.highestOneBit(capacity - 1) << 1;
+    this.buffer = new byte[capacity == 1 ? 1 : size];
+    this.mask = this.buffer.length - 1;
+  }
+
+  /**
+	 * 
+	 */
+  public int capacity() {
+    return this.buffer.length;
+  }
+
+  public int size() {
+    return (int) (this.tail.get() - this.head.get());
+  }
+
+  public boolean isEmpty() {
+    return this.tail.get() == this.head.get();
+  }
+
+  /**
+   * Consumer only.
+   *
+   * @return the next byte, or -1 if the buffer is empty
+   */
+  public int read() {
+    final long h = this.head.get();
+    if (h == this.head.cached && h == (this.head.cached = this.tail.get())) return -1;
+    final int r = this.buffer[(int) h & this.mask] & 0xFF;
+    this.head.lazySet(h + 1);
+    return r;
+  }
+
+  /**
+   * Consumer only.
+   *
+   * @return the number of bytes read, 0 if the buffer is empty
+   */
+  public int read(byte b[], int off, int len) {
+    //
+    final long h = this.head.get();
+    long available = this.head.cached - h;
+    if (available < len) available = (this.head.cached = this.tail.get()) - h;
+    final int r = (int) Math.min(available, len);
+    if (r <= 0) return 0;
+
+    //
+    final int index = (int) h & this.mask;
+    final int r1 = Math.min(this.buffer.length - index, r);
+    System.arraycopy(this.buffer, index, b, off, r1);
+    if (r1 < r) System.arraycopy(this.buffer, 0, b, off + r1, r - r1);
+    this.head.lazySet(h + r);
+    return r;
+  }
+
+  /**
+   * Producer only.
+   *
+   * @return the number of bytes written, 0 if the buffer is full
+   */
+  public int write(byte b[], int off, int len) {
+    //
+    final long t = this.tail.get();
+    long free = this.buffer.length - (t - this.tail.cached);
+    if (free < len) free = this.buffer.length - (t - (this.tail.cached = this.head.get()));
+    final int w = (int) Math.min(free, len);
+    if (w <= 0) return 0;
+
+    //
+    final int index = (int) t & this.mask;
+    final int w1 = Math.min(this.buffer.length - index, w);
+    System.arraycopy(b, off, this.buffer, index, w1);
+    if (w1 < w) System.arraycopy(b, off + w1, this.buffer, 0, w - w1);
+    this.tail.lazySet(t + w);
+    return w;
+  }
+
+  /**
+   * The padding ahead of a sequence, the classes are not private so that the field updater can
+   * access the value.
+   */
+  @SuppressWarnings("unused")
+  static class LhsPadding {
+    //
+    private long p1, p2, p3, p4, p5, p6, p7;
+  }
+
+  static class Value extends LhsPadding {
+    //
+    volatile long value;
+    long cached;
+  }
+
+  /**
+   * A sequence and the cached sequence of the other side, both written by the owner side only,
+   * padded on both sides to keep them on a cache line of their own.
+   */
+  @SuppressWarnings("unused")
+  static final class Sequence extends Value {
+    //
+    private static final AtomicLongFieldUpdater<Value> UPDATER =
+        AtomicLongFieldUpdater.newUpdater(Value.class, "value");
+
+    //
+    private long p9, p10, p11, p12, p13, p14, p15;
+
+    /**
+		 * 
+		 */
+    long get() {
+      return this.value;
+    }
+
+    void lazySet(long value) {
+      UPDATER.lazySet(this, value);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.io.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits for the other side of a {@link SpscByteRingBuffer}. Implementations never
+ * block indefinitely, the caller re-checks its condition after each call.
+ */
+public interface WaitStrategy {
+
+  /**
+   * @param retries the number of previous calls for the current wait, starting from 0
+   */
+  void idle(int retries);
+
+  /**
+   * Busy spins, lowest latency at the cost of a fully used core.
+   */
+  public static final class Spin implements WaitStrategy {
+
+    public void idle(int retries) {
+      // NOP
+    }
+  }
+
+  /**
+   * Spins for a while, then yields the processor.
+   */
+  public static final class Yield implements WaitStrategy {
+    //
+    private final int spins;
+
+    public Yield() {
+      this(100);
+    }
+
+    public Yield(int spins) {
+      this.spins = spins;
+    }
+
+    public void idle(int retries) {
+      if (retries >= this.spins) Thread.yield();
+    }
+  }
+
+  /**
+   * Spins, yields, then parks for a bounded time, the default for mostly idle streams.
+   */
+  public static final class Park implements WaitStrategy {
+    //
+    private final int spins;
+    private final int yields;
+    private final long parkNanos;
+
+    public Park() {
+      this(100, 100, 100 * 1000L);
+    }
+
+    public Park(int spins, int yields, long parkNanos) {
+      this.spins = spins;
+      this.yields = yields;
+      this.parkNanos = parkNanos;
+    }
+
+    public void idle(int retries) {
+      if (retries < this.spins) {
+        // NOP
+      } else if (retries < this.spins + this.yields) {
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(this.parkNanos);
+      }
+    }
+  }
+}
@@ -14,7 +14,6 @@
  */
 package com.google.code.or.io.util;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
 import com.google.code.or.binlog.ext.XChecksum;
@@ -22,9 +21,11 @@ import com.google.code.or.common.glossary.UnsignedLong;
 import com.google.code.or.common.glossary.column.BitColumn;
 import com.google.code.or.common.glossary.column.StringColumn;
 import com.google.code.or.io.XInputStream;
-import com.google.code.or.io.impl.XInputStreamImpl;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 
 /**
+ * An {@link XInputStream} over a byte array, kept for compatibility, the array is read in place by
+ * a {@link ByteArrayXInputStream}.
  * 
  * @author Jingqi Xu
  */
@@ -36,7 +37,7 @@ public class XDeserializer implements XInputStream {
 	 * 
 	 */
   public XDeserializer(byte[] data) {
-    this.tis = new XInputStreamImpl(new ByteArrayInputStream(data));
+    this.tis = new ByteArrayXInputStream(data);
   }
 
   /**
@@ -198,6 +199,11 @@ public class XDeserializer implements XInputStream {
     return this.tis.read(checksum);
   }
 
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    return this.tis.read(b, off, len);
+  }
+
   @Override
   public int read(byte[] b, int off, int len, XChecksum checksum) throws IOException {
     return this.tis.read(b, off, len, checksum);
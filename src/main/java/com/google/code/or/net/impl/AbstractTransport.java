@@ -16,15 +16,25 @@ package com.google.code.or.net.impl;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.google.code.or.common.util.ToStringBuilder;
+import com.google.code.or.net.Packet;
 import com.google.code.or.net.Transport;
 import com.google.code.or.net.TransportContext;
+import com.google.code.or.net.TransportException;
+import com.google.code.or.net.impl.packet.ErrorPacket;
+import com.google.code.or.net.impl.packet.GreetingPacket;
 
 /**
  * 
  * @author Jingqi Xu
  */
 public abstract class AbstractTransport implements Transport {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTransport.class);
+
   //
   protected Transport.Authenticator authenticator;
   protected final Context context = new Context();
@@ -53,6 +63,38 @@ public abstract class AbstractTransport implements Transport {
     this.authenticator = authenticator;
   }
 
+  /**
+   * Takes the server's greeting into the context, or fails with the server's error.
+   */
+  protected void handshake(String host, int port, Packet packet) throws Exception {
+    //
+    if (packet.getPacketBody()[0] == ErrorPacket.PACKET_MARKER) {
+      final ErrorPacket error = ErrorPacket.valueOf(packet);
+      LOGGER.info("failed to connect to host: {}, port: {}, error",
+          new Object[] {host, port, error});
+      throw new TransportException(error);
+    }
+
+    //
+    final GreetingPacket greeting = GreetingPacket.valueOf(packet);
+    this.context.setServerHost(host);
+    this.context.setServerPort(port);
+    this.context.setServerStatus(greeting.getServerStatus());
+    this.context.setServerVersion(greeting.getServerVersion().toString());
+    this.context.setServerCollation(greeting.getServerCollation());
+    this.context.setServerCapabilities(greeting.getServerCapabilities());
+    this.context.setThreadId(greeting.getThreadId());
+    this.context.setProtocolVersion(greeting.getProtocolVersion());
+    this.context.setScramble(greeting.getScramble1().toString()
+        + greeting.getScramble2().toString());
+
+    //
+    if (isVerbose() && LOGGER.isInfoEnabled()) {
+      LOGGER.info("connected to host: {}, port: {}, context: {}", new Object[] {host, port,
+          this.context});
+    }
+  }
+
   /**
 	 * 
 	 */
@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.net.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.code.or.common.util.MySQLConstants;
+
+/**
+ * A connection registered with a {@link NioReactor}: the bytes read by the reactor are assembled
+ * into whole packets, a packet split in parts of {@link MySQLConstants#MAX_PACKET_LENGTH} bytes
+ * being joined back, and handed to the handler on the reactor's thread.
+ * <p>
+ * Each packet must be {@link #release()}d once processed. The reactor stops reading from the
+ * connection while {@link #getMaxPendingPackets()} packets are not, and resumes once half of them
+ * are.
+ */
+public class NioConnection {
+  //
+  private final NioReactor.Loop loop;
+  private final SocketChannel channel;
+  private final Handler handler;
+  private final int maxPendingPackets;
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+  private volatile boolean suspended;
+  private SelectionKey key;
+
+  // Packet being assembled, only accessed by the reactor's thread
+  private final byte[] header = new byte[4];
+  private int headerLength;
+  private byte[] body;
+  private int bodyLength;
+  private List<byte[]> parts;
+  private long packets;
+  private long bytes;
+
+  /**
+	 * 
+	 */
+  NioConnection(NioReactor.Loop loop, SocketChannel channel, Handler handler,
+      int maxPendingPackets) {
+    this.loop = loop;
+    this.channel = channel;
+    this.handler = handler;
+    this.maxPendingPackets = Math.max(2, maxPendingPackets);
+  }
+
+  /**
+	 * 
+	 */
+  public SocketChannel getChannel() {
+    return channel;
+  }
+
+  public int getMaxPendingPackets() {
+    return maxPendingPackets;
+  }
+
+  public int getPendingPackets() {
+    return this.pending.get();
+  }
+
+  public long getReceivedPackets() {
+    return packets;
+  }
+
+  public long getReceivedBytes() {
+    return bytes;
+  }
+
+  public boolean isClosed() {
+    return this.closed.get();
+  }
+
+  /**
+   * Releases a packet handed to the handler, which resumes reading if it was suspended.
+   */
+  public void release() {
+    if (this.pending.decrementAndGet() <= this.maxPendingPackets / 2 && this.suspended) {
+      this.loop.execute(new Runnable() {
+        public void run() {
+          resume();
+        }
+      });
+    }
+  }
+
+  public void close() {
+    if (!this.closed.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      this.channel.close(); // Cancels the key
+    } catch (IOException e) {
+      // NOP
+    }
+    this.loop.wakeup();
+  }
+
+  /**
+	 * 
+	 */
+  void register(SelectionKey key) {
+    this.key = key;
+  }
+
+  boolean isSuspended() {
+    return this.suspended;
+  }
+
+  void fail(Exception exception) {
+    if (isClosed()) return;
+    close();
+    this.handler.onException(this, exception);
+  }
+
+  /**
+   * Assembles the packets of the given bytes, the reactor's thread.
+   */
+  void onRead(ByteBuffer buffer) {
+    this.bytes += buffer.remaining();
+    while (buffer.hasRemaining() && !isClosed()) {
+      //
+      if (this.headerLength < this.header.length) {
+        final int n = Math.min(this.header.length - this.headerLength, buffer.remaining());
+        buffer.get(this.header, this.headerLength, n);
+        this.headerLength += n;
+        if (this.headerLength < this.header.length) return;
+        final int length = (this.header[0] & 0xFF) | ((this.header[1] & 0xFF) << 8)
+            | ((this.header[2] & 0xFF) << 16);
+        this.body = new byte[length];
+        this.bodyLength = 0;
+      }
+
+      //
+      final int n = Math.min(this.body.length - this.bodyLength, buffer.remaining());
+      buffer.get(this.body, this.bodyLength, n);
+      this.bodyLength += n;
+      if (this.bodyLength < this.body.length) return;
+      this.headerLength = 0;
+      onPacket(this.header[3] & 0xFF, this.body);
+      this.body = null;
+    }
+  }
+
+  private void onPacket(int sequence, byte[] packet) {
+    // The last part is shorter, possibly empty
+    if (packet.length == MySQLConstants.MAX_PACKET_LENGTH) {
+      if (this.parts == null) this.parts = new ArrayList<byte[]>(2);
+      this.parts.add(packet);
+      return;
+    } else if (this.parts != null) {
+      int length = packet.length;
+      for (byte[] part : this.parts) length += part.length;
+      final byte[] r = new byte[length];
+      int offset = 0;
+      for (byte[] part : this.parts) {
+        System.arraycopy(part, 0, r, offset, part.length);
+        offset += part.length;
+      }
+      System.arraycopy(packet, 0, r, offset, packet.length);
+      this.parts = null;
+      packet = r;
+    }
+
+    //
+    this.packets++;
+    if (this.pending.incrementAndGet() >= this.maxPendingPackets && !this.suspended) {
+      this.suspended = true;
+      if (this.key.isValid()) this.key.interestOps(0);
+    }
+    this.handler.onPacket(this, sequence, packet);
+  }
+
+  private void resume() {
+    if (!this.suspended || this.pending.get() > this.maxPendingPackets / 2) return;
+    this.suspended = false;
+    if (this.key.isValid()) this.key.interestOps(SelectionKey.OP_READ);
+  }
+
+  /**
+   * Receives the packets of a connection.
+   */
+  public interface Handler {
+
+    /**
+     * Called by the reactor's thread, which must not be held up.
+     */
+    void onPacket(NioConnection connection, int sequence, byte[] packet);
+
+    /**
+     * Called once the connection is closed by the server or failed, by the reactor's thread.
+     */
+    void onException(NioConnection connection, Exception exception);
+  }
+}
@@ -0,0 +1,312 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.net.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.common.util.XThreadFactory;
+
+/**
+ * Multiplexes the reads of many {@link NioTransport}s over {@link #getSelectorThreads()}
+ * selector threads, each of them reading into a direct buffer of its own, and provides the decoder
+ * pool shared by their {@link com.google.code.or.binlog.impl.NioBinlogParser}s.
+ * <p>
+ * A connection is bound to one selector thread for its lifetime, picked in turn at registration.
+ */
+public class NioReactor {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(NioReactor.class);
+
+  //
+  private int selectorThreads = 1;
+  private int decoderThreads = Runtime.getRuntime().availableProcessors();
+  private int readBufferSize = 256 * 1024;
+  private int maxPendingPackets = 1024;
+  private ThreadFactory threadFactory = new XThreadFactory("nio-reactor", true);
+
+  //
+  private Loop[] loops;
+  private ExecutorService decoders;
+  private boolean sharedDecoders;
+  private final AtomicInteger next = new AtomicInteger();
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  /**
+	 * 
+	 */
+  public boolean isRunning() {
+    return this.running.get();
+  }
+
+  public void start() throws IOException {
+    //
+    if (!this.running.compareAndSet(false, true)) {
+      return;
+    }
+
+    //
+    if (this.decoders == null) {
+      final ThreadFactory tf = new XThreadFactory("nio-decoder", true);
+      this.decoders = Executors.newFixedThreadPool(Math.max(1, this.decoderThreads), tf);
+      this.sharedDecoders = false;
+    }
+
+    //
+    this.loops = new Loop[Math.max(1, this.selectorThreads)];
+    for (int i = 0; i < this.loops.length; i++) {
+      this.loops[i] = new Loop(Selector.open());
+      this.threadFactory.newThread(this.loops[i]).start();
+    }
+  }
+
+  /**
+   * Stops the selector threads, closing the connections left, and the decoder pool unless it was
+   * given.
+   */
+  public void stop(long timeout, TimeUnit unit) throws Exception {
+    //
+    if (!this.running.compareAndSet(true, false)) {
+      return;
+    }
+
+    //
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Loop loop : this.loops) {
+      loop.selector.wakeup();
+    }
+    for (Loop loop : this.loops) {
+      loop.stopped.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+    if (!this.sharedDecoders) {
+      this.decoders.shutdown();
+      this.decoders.awaitTermination(Math.max(0, deadline - System.nanoTime()),
+          TimeUnit.NANOSECONDS);
+      this.decoders = null;
+    }
+  }
+
+  /**
+   * Registers the given connected channel, which is switched to non blocking mode, its packets
+   * are handed to the given handler from then on.
+   */
+  public NioConnection register(final SocketChannel channel, NioConnection.Handler handler)
+      throws IOException {
+    //
+    if (!isRunning()) {
+      throw new IllegalStateException("reactor is not running");
+    }
+
+    //
+    channel.configureBlocking(false);
+    final Loop loop = this.loops[(this.next.getAndIncrement() & Integer.MAX_VALUE)
+        % this.loops.length];
+    final NioConnection r = new NioConnection(loop, channel, handler, this.maxPendingPackets);
+    loop.execute(new Runnable() {
+      public void run() {
+        try {
+          r.register(channel.register(loop.selector, SelectionKey.OP_READ, r));
+        } catch (Exception e) {
+          r.fail(e);
+        }
+      }
+    });
+    return r;
+  }
+
+  /**
+   * @return the number of connections currently registered
+   */
+  public int getConnectionCount() {
+    int r = 0;
+    final Loop[] loops = this.loops;
+    if (loops != null) {
+      for (Loop loop : loops) {
+        if (loop.selector.isOpen()) r += loop.selector.keys().size();
+      }
+    }
+    return r;
+  }
+
+  /**
+	 * 
+	 */
+  public int getSelectorThreads() {
+    return selectorThreads;
+  }
+
+  public void setSelectorThreads(int selectorThreads) {
+    this.selectorThreads = selectorThreads;
+  }
+
+  public int getDecoderThreads() {
+    return decoderThreads;
+  }
+
+  public void setDecoderThreads(int decoderThreads) {
+    this.decoderThreads = decoderThreads;
+  }
+
+  public int getReadBufferSize() {
+    return readBufferSize;
+  }
+
+  public void setReadBufferSize(int readBufferSize) {
+    this.readBufferSize = readBufferSize;
+  }
+
+  public int getMaxPendingPackets() {
+    return maxPendingPackets;
+  }
+
+  /**
+   * @param maxPendingPackets the number of packets of a connection handed over but not released
+   *        yet past which the reactor stops reading from it
+   */
+  public void setMaxPendingPackets(int maxPendingPackets) {
+    this.maxPendingPackets = maxPendingPackets;
+  }
+
+  public ThreadFactory getThreadFactory() {
+    return threadFactory;
+  }
+
+  public void setThreadFactory(ThreadFactory tf) {
+    this.threadFactory = tf;
+  }
+
+  public ExecutorService getDecoders() {
+    return decoders;
+  }
+
+  /**
+   * Sets the pool decoding the packets of the connections, which is not shut down with the
+   * reactor, a pool of {@link #getDecoderThreads()} threads is created at start otherwise.
+   */
+  public void setDecoders(ExecutorService decoders) {
+    this.decoders = decoders;
+    this.sharedDecoders = decoders != null;
+  }
+
+  /**
+   * A selector thread.
+   */
+  final class Loop implements Runnable {
+    //
+    private final Selector selector;
+    private final ByteBuffer buffer;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+		 * 
+		 */
+    Loop(Selector selector) {
+      this.selector = selector;
+      this.buffer = ByteBuffer.allocateDirect(readBufferSize);
+    }
+
+    /**
+     * Runs the given task on the selector thread.
+     */
+    void execute(Runnable task) {
+      this.tasks.offer(task);
+      this.selector.wakeup();
+    }
+
+    void wakeup() {
+      this.selector.wakeup();
+    }
+
+    /**
+		 * 
+		 */
+    public void run() {
+      try {
+        while (isRunning()) {
+          //
+          this.selector.select(1000);
+          for (Runnable task = this.tasks.poll(); task != null; task = this.tasks.poll()) {
+            task.run();
+          }
+
+          //
+          final Iterator<SelectionKey> it = this.selector.selectedKeys().iterator();
+          while (it.hasNext()) {
+            final SelectionKey key = it.next();
+            it.remove();
+            if (key.isValid() && key.isReadable()) read((NioConnection) key.attachment());
+          }
+        }
+      } catch (Exception e) {
+        LOGGER.error("selector thread failed", e);
+      } finally {
+        close();
+        this.stopped.countDown();
+      }
+    }
+
+    /**
+     * Reads up to a few buffers from the given connection, so that others get their turn.
+     */
+    private void read(NioConnection connection) {
+      try {
+        for (int i = 0; i < 4 && !connection.isSuspended() && !connection.isClosed(); i++) {
+          this.buffer.clear();
+          final int n = connection.getChannel().read(this.buffer);
+          if (n < 0) {
+            throw new EOFException("connection closed by server");
+          } else if (n == 0) {
+            break;
+          }
+          this.buffer.flip();
+          connection.onRead(this.buffer);
+          if (this.buffer.hasRemaining()) break; // Closed
+        }
+      } catch (Exception e) {
+        connection.fail(e);
+      }
+    }
+
+    private void close() {
+      for (SelectionKey key : this.selector.keys()) {
+        final NioConnection connection = (NioConnection) key.attachment();
+        if (connection != null) connection.fail(new IOException("reactor stopped"));
+      }
+      try {
+        this.selector.close();
+      } catch (IOException e) {
+        // NOP
+      }
+    }
+  }
+}
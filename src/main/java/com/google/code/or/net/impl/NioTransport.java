@@ -0,0 +1,272 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.or.net.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.code.or.common.util.IOUtils;
+import com.google.code.or.net.TransportInputStream;
+import com.google.code.or.net.TransportOutputStream;
+
+/**
+ * A transport over a {@link SocketChannel}: the handshake, the login by the {@link Authenticator}
+ * and the commands up to the binlog dump go through the blocking streams of the channel, after
+ * which {@link #receive(NioConnection.Handler)} registers it with a shared {@link NioReactor}. The
+ * streams are unusable from then on.
+ * <p>
+ * The input stream never reads past the end of the packet being read, so no byte of the binlog
+ * dump is left in its buffer when the reactor takes over.
+ */
+public class NioTransport extends AbstractTransport {
+  //
+  private static final Logger LOGGER = LoggerFactory.getLogger(NioTransport.class);
+
+  //
+  protected NioReactor reactor;
+  protected SocketChannel channel;
+  protected NioConnection connection;
+  protected TransportInputStream is;
+  protected TransportOutputStream os;
+  protected boolean keepAlive = true;
+  protected boolean tcpNoDelay = false;
+  protected int receiveBufferSize = 512 * 1024;
+  protected int connectTimeout = 10000;
+  protected int readTimeout = 5000;
+  protected final AtomicBoolean connected = new AtomicBoolean(false);
+
+  /**
+	 * 
+	 */
+  public NioTransport() {}
+
+  public NioTransport(NioReactor reactor) {
+    this.reactor = reactor;
+  }
+
+  /**
+	 * 
+	 */
+  public boolean isConnected() {
+    return this.connected.get();
+  }
+
+  public void connect(String host, int port) throws Exception {
+    //
+    if (!this.connected.compareAndSet(false, true)) {
+      return;
+    }
+
+    //
+    if (isVerbose() && LOGGER.isInfoEnabled()) {
+      LOGGER.info("connecting to host: {}, port: {}", host, port);
+    }
+
+    //
+    this.channel = SocketChannel.open();
+    this.channel.socket().setKeepAlive(this.keepAlive);
+    this.channel.socket().setTcpNoDelay(this.tcpNoDelay);
+    if (this.receiveBufferSize > 0) {
+      this.channel.socket().setReceiveBufferSize(this.receiveBufferSize);
+    }
+    this.channel.socket().connect(new InetSocketAddress(host, port), this.connectTimeout);
+    this.channel.socket().setSoTimeout(this.readTimeout);
+
+    //
+    final InputStream in = new PacketBoundedInputStream(this.channel.socket().getInputStream());
+    this.is = new TransportInputStreamImpl(in, 16 * 1024);
+    this.os = new TransportOutputStreamImpl(this.channel.socket().getOutputStream());
+    handshake(host, port, this.is.readPacket());
+    this.authenticator.login(this);
+  }
+
+  /**
+   * Hands the channel over to the reactor, which delivers the packets to the given handler from
+   * then on.
+   */
+  public NioConnection receive(NioConnection.Handler handler) throws IOException {
+    //
+    if (!isConnected()) {
+      throw new IllegalStateException("transport is not connected");
+    } else if (this.connection != null) {
+      throw new IllegalStateException("transport is already receiving");
+    } else if (this.is.available() != 0) {
+      throw new RuntimeException("assertion failed, available: " + this.is.available());
+    }
+
+    //
+    this.connection = this.reactor.register(this.channel, handler);
+    return this.connection;
+  }
+
+  public void disconnect() throws Exception {
+    //
+    if (!this.connected.compareAndSet(true, false)) {
+      return;
+    }
+
+    //
+    if (this.connection != null) {
+      this.connection.close();
+      this.connection = null;
+    }
+    IOUtils.closeQuietly(this.is);
+    IOUtils.closeQuietly(this.os);
+    try {
+      this.channel.close();
+    } catch (IOException e) {
+      // NOP
+    }
+
+    //
+    if (isVerbose() && LOGGER.isInfoEnabled()) {
+      LOGGER.info("disconnected from {}:{}", this.context.getServerHost(),
+          this.context.getServerPort());
+    }
+  }
+
+  /**
+	 * 
+	 */
+  public TransportInputStream getInputStream() {
+    return this.is;
+  }
+
+  public TransportOutputStream getOutputStream() {
+    return this.os;
+  }
+
+  public NioConnection getConnection() {
+    return connection;
+  }
+
+  public NioReactor getReactor() {
+    return reactor;
+  }
+
+  public void setReactor(NioReactor reactor) {
+    this.reactor = reactor;
+  }
+
+  public boolean isKeepAlive() {
+    return keepAlive;
+  }
+
+  public void setKeepAlive(boolean keepAlive) {
+    this.keepAlive = keepAlive;
+  }
+
+  public boolean isTcpNoDelay() {
+    return tcpNoDelay;
+  }
+
+  public void setTcpNoDelay(boolean tcpNoDelay) {
+    this.tcpNoDelay = tcpNoDelay;
+  }
+
+  public int getReceiveBufferSize() {
+    return receiveBufferSize;
+  }
+
+  public void setReceiveBufferSize(int receiveBufferSize) {
+    this.receiveBufferSize = receiveBufferSize;
+  }
+
+  public int getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(int connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public int getReadTimeout() {
+    return readTimeout;
+  }
+
+  /**
+   * @param readTimeout in milliseconds of the reads up to the binlog dump
+   */
+  public void setReadTimeout(int readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  /**
+   * Reads no further than the end of the current packet.
+   */
+  private static final class PacketBoundedInputStream extends FilterInputStream {
+    //
+    private final byte[] header = new byte[4];
+    private int headerLength;
+    private int bodyLength;
+
+    /**
+		 * 
+		 */
+    public PacketBoundedInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      final byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      //
+      if (len == 0) {
+        return 0;
+      } else if (this.headerLength < this.header.length) {
+        final int n = this.in.read(b, off, Math.min(len, this.header.length - this.headerLength));
+        if (n <= 0) return n;
+        System.arraycopy(b, off, this.header, this.headerLength, n);
+        this.headerLength += n;
+        if (this.headerLength == this.header.length) {
+          this.bodyLength = (this.header[0] & 0xFF) | ((this.header[1] & 0xFF) << 8)
+              | ((this.header[2] & 0xFF) << 16);
+          if (this.bodyLength == 0) this.headerLength = 0;
+        }
+        return n;
+      }
+
+      //
+      final int n = this.in.read(b, off, Math.min(len, this.bodyLength));
+      if (n <= 0) return n;
+      this.bodyLength -= n;
+      if (this.bodyLength == 0) this.headerLength = 0;
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      final byte[] b = new byte[(int) Math.min(n, 4096)];
+      return Math.max(0, read(b, 0, b.length));
+    }
+
+    @Override
+    public int available() throws IOException {
+      return 0;
+    }
+  }
+}
@@ -14,7 +14,6 @@
  */
 package com.google.code.or.net.impl;
 
-import java.io.BufferedInputStream;
 import java.net.Socket;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -22,14 +21,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.code.or.common.util.IOUtils;
+import com.google.code.or.common.util.XThreadFactory;
 import com.google.code.or.io.SocketFactory;
 import com.google.code.or.io.util.ActiveBufferedInputStream;
-import com.google.code.or.net.Packet;
-import com.google.code.or.net.TransportException;
+import com.google.code.or.io.util.WaitStrategy;
 import com.google.code.or.net.TransportInputStream;
 import com.google.code.or.net.TransportOutputStream;
-import com.google.code.or.net.impl.packet.ErrorPacket;
-import com.google.code.or.net.impl.packet.GreetingPacket;
 
 /**
  * 
@@ -46,6 +43,8 @@ public class TransportImpl extends AbstractTransport {
   protected SocketFactory socketFactory;
   protected int level1BufferSize = 1024 * 1024;
   protected int level2BufferSize = 8 * 1024 * 1024;
+  protected int readTimeout = 5000;
+  protected WaitStrategy waitStrategy = new WaitStrategy.Park();
   protected final AtomicBoolean connected = new AtomicBoolean(false);
 
   /**
@@ -73,45 +72,16 @@ public class TransportImpl extends AbstractTransport {
     if (this.level2BufferSize <= 0) {
       this.is = new TransportInputStreamImpl(this.socket.getInputStream(), this.level1BufferSize);
     } else {
-        //this.is = new TransportInputStreamImpl(new BufferedInputStream(this.socket.getInputStream(), this.level2BufferSize), this.level1BufferSize);
-    	this.is = new TransportInputStreamImpl(this.socket.getInputStream(), this.level1BufferSize);
-
-/*      this.is =
+      this.is =
           new TransportInputStreamImpl(new ActiveBufferedInputStream(this.socket.getInputStream(),
-              this.level2BufferSize), this.level1BufferSize);
-*/    }
-    
-    this.socket.setSoTimeout(5000);
-
-    //
-    final Packet packet = this.is.readPacket();
-    if (packet.getPacketBody()[0] == ErrorPacket.PACKET_MARKER) {
-      final ErrorPacket error = ErrorPacket.valueOf(packet);
-      LOGGER.info("failed to connect to host: {}, port: {}, error",
-          new Object[] {host, port, error});
-      throw new TransportException(error);
-    } else {
-      //
-      final GreetingPacket greeting = GreetingPacket.valueOf(packet);
-      this.context.setServerHost(host);
-      this.context.setServerPort(port);
-      this.context.setServerStatus(greeting.getServerStatus());
-      this.context.setServerVersion(greeting.getServerVersion().toString());
-      this.context.setServerCollation(greeting.getServerCollation());
-      this.context.setServerCapabilities(greeting.getServerCapabilities());
-      this.context.setThreadId(greeting.getThreadId());
-      this.context.setProtocolVersion(greeting.getProtocolVersion());
-      this.context.setScramble(greeting.getScramble1().toString()
-          + greeting.getScramble2().toString());
-
-      //
-      if (isVerbose() && LOGGER.isInfoEnabled()) {
-        LOGGER.info("connected to host: {}, port: {}, context: {}", new Object[] {host, port,
-            this.context});
-      }
+              this.level2BufferSize, new XThreadFactory("active-bis", true), this.waitStrategy),
+              this.level1BufferSize);
     }
 
+    this.socket.setSoTimeout(this.readTimeout);
+
     //
+    handshake(host, port, this.is.readPacket());
     this.authenticator.login(this);
   }
 
@@ -152,6 +122,29 @@ public class TransportImpl extends AbstractTransport {
     this.level2BufferSize = size;
   }
 
+  public int getReadTimeout() {
+    return readTimeout;
+  }
+
+  /**
+   * @param readTimeout in milliseconds of every read, 0 never times out
+   */
+  public void setReadTimeout(int readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  public WaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  /**
+   * @param waitStrategy how the parser waits for the level 2 buffer to fill, and its reader thread
+   *        for it to drain
+   */
+  public void setWaitStrategy(WaitStrategy waitStrategy) {
+    this.waitStrategy = waitStrategy;
+  }
+
   public TransportInputStream getInputStream() {
     return this.is;
   }
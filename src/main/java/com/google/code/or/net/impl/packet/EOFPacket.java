@@ -18,7 +18,7 @@ import java.io.IOException;
 
 import com.google.code.or.common.util.ToStringBuilder;
 import com.google.code.or.io.XInputStream;
-import com.google.code.or.io.util.XDeserializer;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 import com.google.code.or.io.util.XSerializer;
 import com.google.code.or.net.Packet;
 
@@ -89,7 +89,7 @@ public class EOFPacket extends AbstractPacket {
 	 * 
 	 */
   public static EOFPacket valueOf(Packet packet) throws IOException {
-    final XDeserializer d = new XDeserializer(packet.getPacketBody());
+    final ByteArrayXInputStream d = new ByteArrayXInputStream(packet.getPacketBody());
     final EOFPacket r = new EOFPacket();
     r.length = packet.getLength();
     r.sequence = packet.getSequence();
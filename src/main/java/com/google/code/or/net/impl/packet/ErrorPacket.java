@@ -19,7 +19,7 @@ import java.io.IOException;
 import com.google.code.or.common.glossary.column.StringColumn;
 import com.google.code.or.common.util.ToStringBuilder;
 import com.google.code.or.io.XInputStream;
-import com.google.code.or.io.util.XDeserializer;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 import com.google.code.or.io.util.XSerializer;
 import com.google.code.or.net.Packet;
 
@@ -111,7 +111,7 @@ public class ErrorPacket extends AbstractPacket {
 	 * 
 	 */
   public static ErrorPacket valueOf(Packet packet) throws IOException {
-    final XDeserializer d = new XDeserializer(packet.getPacketBody());
+    final ByteArrayXInputStream d = new ByteArrayXInputStream(packet.getPacketBody());
     final ErrorPacket r = new ErrorPacket();
     r.length = packet.getLength();
     r.sequence = packet.getSequence();
@@ -18,7 +18,7 @@ import java.io.IOException;
 
 import com.google.code.or.common.glossary.column.StringColumn;
 import com.google.code.or.common.util.ToStringBuilder;
-import com.google.code.or.io.util.XDeserializer;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 import com.google.code.or.io.util.XSerializer;
 import com.google.code.or.net.Packet;
 
@@ -110,7 +110,7 @@ public class GreetingPacket extends AbstractPacket {
 	 * 
 	 */
   public static GreetingPacket valueOf(Packet packet) throws IOException {
-    final XDeserializer d = new XDeserializer(packet.getPacketBody());
+    final ByteArrayXInputStream d = new ByteArrayXInputStream(packet.getPacketBody());
     final GreetingPacket r = new GreetingPacket();
     r.length = packet.getLength();
     r.sequence = packet.getSequence();
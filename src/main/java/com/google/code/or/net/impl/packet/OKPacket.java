@@ -19,7 +19,7 @@ import java.io.IOException;
 import com.google.code.or.common.glossary.UnsignedLong;
 import com.google.code.or.common.glossary.column.StringColumn;
 import com.google.code.or.common.util.ToStringBuilder;
-import com.google.code.or.io.util.XDeserializer;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 import com.google.code.or.io.util.XSerializer;
 import com.google.code.or.net.Packet;
 
@@ -122,7 +122,7 @@ public class OKPacket extends AbstractPacket {
 	 * 
 	 */
   public static OKPacket valueOf(Packet packet) throws IOException {
-    final XDeserializer d = new XDeserializer(packet.getPacketBody());
+    final ByteArrayXInputStream d = new ByteArrayXInputStream(packet.getPacketBody());
     final OKPacket r = new OKPacket();
     r.length = packet.getLength();
     r.sequence = packet.getSequence();
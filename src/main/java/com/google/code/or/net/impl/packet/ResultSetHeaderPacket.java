@@ -18,7 +18,7 @@ import java.io.IOException;
 
 import com.google.code.or.common.glossary.UnsignedLong;
 import com.google.code.or.common.util.ToStringBuilder;
-import com.google.code.or.io.util.XDeserializer;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 import com.google.code.or.io.util.XSerializer;
 import com.google.code.or.net.Packet;
 
@@ -76,7 +76,7 @@ public class ResultSetHeaderPacket extends AbstractPacket {
 	 * 
 	 */
   public static ResultSetHeaderPacket valueOf(Packet packet) throws IOException {
-    final XDeserializer d = new XDeserializer(packet.getPacketBody());
+    final ByteArrayXInputStream d = new ByteArrayXInputStream(packet.getPacketBody());
     final ResultSetHeaderPacket r = new ResultSetHeaderPacket();
     r.length = packet.getLength();
     r.sequence = packet.getSequence();
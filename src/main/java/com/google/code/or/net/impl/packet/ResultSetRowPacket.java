@@ -20,7 +20,7 @@ import java.util.List;
 
 import com.google.code.or.common.glossary.column.StringColumn;
 import com.google.code.or.common.util.ToStringBuilder;
-import com.google.code.or.io.util.XDeserializer;
+import com.google.code.or.io.impl.ByteArrayXInputStream;
 import com.google.code.or.io.util.XSerializer;
 import com.google.code.or.net.Packet;
 
@@ -69,7 +69,7 @@ public class ResultSetRowPacket extends AbstractPacket {
 	 * 
 	 */
   public static ResultSetRowPacket valueOf(Packet packet) throws IOException {
-    final XDeserializer d = new XDeserializer(packet.getPacketBody());
+    final ByteArrayXInputStream d = new ByteArrayXInputStream(packet.getPacketBody());
     final ResultSetRowPacket r = new ResultSetRowPacket();
     r.length = packet.getLength();
     r.sequence = packet.getSequence();
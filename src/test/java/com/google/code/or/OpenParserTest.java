@@ -2,6 +2,8 @@ package com.google.code.or;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -33,6 +35,9 @@ public class OpenParserTest {
 		});
 		op.start();
 		
+		// A CRC32 checksummed binlog of MySQL 5.6 or later, resumed past its format description event
+		resume("mysql-bin.000001", "C:/ProgramData/MySQL/MySQL Server 5.6/data");
+
 		//
 		LOGGER.info("press 'q' to stop");
 		final BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
@@ -43,4 +48,38 @@ public class OpenParserTest {
 		    }
 		}
 	}
+
+	private static void resume(String name, String path) throws Exception {
+		//
+		final List<Long> xids = parse(name, path, 4);
+		if(xids.size() < 2) return;
+
+		//
+		final List<Long> resumed = parse(name, path, xids.get(0));
+		LOGGER.info("resumed from {}, xids: {}, expected: {}", new Object[] {xids.get(0), resumed, xids.subList(1, xids.size())});
+	}
+
+	private static List<Long> parse(String name, String path, long startPosition) throws Exception {
+		//
+		final List<Long> r = new ArrayList<Long>();
+		final OpenParser op = new OpenParser();
+		op.setStartPosition(startPosition);
+		op.setBinlogFileName(name);
+		op.setBinlogFilePath(path);
+		op.setBinlogEventListener(new BinlogEventListener() {
+		    public void onEvents(BinlogEventV4 event) {
+		    	if(event instanceof XidEvent) {
+		    		r.add(event.getHeader().getNextPosition());
+		    	}
+		    }
+		});
+		op.start();
+
+		//
+		while(op.getBinlogParser().isRunning()) {
+			Thread.sleep(100);
+		}
+		op.stop(0, TimeUnit.MILLISECONDS);
+		return r;
+	}
 }